@@ -12,6 +12,7 @@ import {
   getGraphHealth,
   getGraphSummary,
   getProject,
+  openDiscoveryEvents,
   patchProject,
   runPipelineCheck
 } from "./api";
@@ -76,12 +77,17 @@ export default function App() {
     regions: "us-east-1"
   });
   const pollTimerRef = useRef(null);
+  const eventSourceRef = useRef(null);
 
   function clearDiscoveryPoller() {
     if (pollTimerRef.current) {
       clearTimeout(pollTimerRef.current);
       pollTimerRef.current = null;
     }
+    if (eventSourceRef.current) {
+      eventSourceRef.current.close();
+      eventSourceRef.current = null;
+    }
   }
 
   async function loadDashboard(activeProjectId) {
@@ -196,7 +202,7 @@ export default function App() {
     try {
       const statusResp = await getDiscoveryStatus(projectId, discoveryId);
       setDiscoveryStatus(statusResp);
-      if (["COMPLETED", "FAILED"].includes(statusResp.status)) {
+      if (["COMPLETED", "FAILED", "CANCELLED"].includes(statusResp.status)) {
         clearDiscoveryPoller();
         await loadDashboard(projectId);
         return;
@@ -208,6 +214,40 @@ export default function App() {
     }
   }
 
+  function watchDiscovery(discoveryId) {
+    if (!projectId || !discoveryId) return;
+    if (typeof EventSource === "undefined") {
+      pollDiscoveryStatus(discoveryId);
+      return;
+    }
+    const source = openDiscoveryEvents(projectId, discoveryId);
+    eventSourceRef.current = source;
+    source.addEventListener("region", (event) => {
+      const data = JSON.parse(event.data);
+      setDiscoveryStatus((prev) => ({ ...prev, id: discoveryId, progress: data.progress ?? prev?.progress ?? 0 }));
+    });
+    source.addEventListener("status", async (event) => {
+      const data = JSON.parse(event.data);
+      setDiscoveryStatus((prev) => ({
+        ...prev,
+        id: discoveryId,
+        status: data.status,
+        progress: data.progress ?? prev?.progress ?? 0
+      }));
+      if (["COMPLETED", "FAILED", "CANCELLED"].includes(data.status)) {
+        clearDiscoveryPoller();
+        await loadDashboard(projectId);
+      }
+    });
+    source.onerror = () => {
+      // Fall back to polling if the stream drops before the run finishes.
+      if (eventSourceRef.current === source) {
+        clearDiscoveryPoller();
+        pollDiscoveryStatus(discoveryId);
+      }
+    };
+  }
+
   async function onExecuteDiscovery() {
     if (!projectId || !discoveryRun?.id) return;
     setError("");
@@ -215,7 +255,7 @@ export default function App() {
     try {
       const run = await executeDiscovery(projectId, discoveryRun.id);
       setDiscoveryRun(run);
-      await pollDiscoveryStatus(discoveryRun.id);
+      watchDiscovery(discoveryRun.id);
     } catch (e) {
       setError(e.message || "Failed to execute discovery.");
     }
@@ -80,6 +80,10 @@ export function getDiscoveryStatus(projectId, discoveryId) {
   return request(`/projects/${projectId}/discoveries/${discoveryId}/status`);
 }
 
+export function openDiscoveryEvents(projectId, discoveryId) {
+  return new EventSource(`${API_BASE_URL}/projects/${projectId}/discoveries/${discoveryId}/events`);
+}
+
 export function createTerraformPlan(projectId) {
   return request(`/projects/${projectId}/terraform/plan`, {
     method: "POST"
@@ -5,13 +5,11 @@ import com.cloudcity.platform.api.dto.DiscoveryResponse;
 import com.cloudcity.platform.api.dto.DiscoveryStatusResponse;
 import com.cloudcity.platform.domain.DiscoveryRun;
 import com.cloudcity.platform.service.DiscoveryService;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import java.util.Map;
 import jakarta.validation.Valid;
 import java.util.UUID;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -19,17 +17,16 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/api/v1/projects/{projectId}/discoveries")
 @Tag(name = "Discovery")
 public class DiscoveryController {
     private final DiscoveryService discoveryService;
-    private final ObjectMapper objectMapper;
 
-    public DiscoveryController(DiscoveryService discoveryService, ObjectMapper objectMapper) {
+    public DiscoveryController(DiscoveryService discoveryService) {
         this.discoveryService = discoveryService;
-        this.objectMapper = objectMapper;
     }
 
     @PostMapping
@@ -48,13 +45,12 @@ public class DiscoveryController {
 
     @GetMapping("/{discoveryId}/status")
     public DiscoveryStatusResponse getStatus(@PathVariable UUID projectId, @PathVariable UUID discoveryId) {
-        DiscoveryRun run = discoveryService.getDiscovery(projectId, discoveryId);
-        return new DiscoveryStatusResponse(
-                run.getId(),
-                run.getStatus(),
-                extractProgress(run.getSummaryJson()),
-                run.getFinishedAt()
-        );
+        return discoveryService.getStatus(projectId, discoveryId);
+    }
+
+    @GetMapping(path = "/{discoveryId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents(@PathVariable UUID projectId, @PathVariable UUID discoveryId) {
+        return discoveryService.streamProgress(projectId, discoveryId);
     }
 
     @PostMapping("/{discoveryId}/execute")
@@ -64,6 +60,12 @@ public class DiscoveryController {
         return toResponse(run);
     }
 
+    @PostMapping("/{discoveryId}/cancel")
+    public DiscoveryResponse cancelDiscovery(@PathVariable UUID projectId, @PathVariable UUID discoveryId) {
+        DiscoveryRun run = discoveryService.cancelDiscovery(projectId, discoveryId);
+        return toResponse(run);
+    }
+
     private DiscoveryResponse toResponse(DiscoveryRun run) {
         return new DiscoveryResponse(
                 run.getId(),
@@ -76,20 +78,4 @@ public class DiscoveryController {
                 run.getSummaryJson()
         );
     }
-
-    private Integer extractProgress(String summaryJson) {
-        if (summaryJson == null || summaryJson.isBlank()) {
-            return null;
-        }
-        try {
-            Map<String, Object> summary = objectMapper.readValue(summaryJson, Map.class);
-            Object progress = summary.get("progress");
-            if (progress instanceof Number) {
-                return ((Number) progress).intValue();
-            }
-            return null;
-        } catch (JsonProcessingException e) {
-            return null;
-        }
-    }
 }
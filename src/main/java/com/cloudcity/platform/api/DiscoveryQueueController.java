@@ -0,0 +1,24 @@
+package com.cloudcity.platform.api;
+
+import com.cloudcity.platform.api.dto.DiscoveryQueueResponse;
+import com.cloudcity.platform.service.DiscoveryService;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/v1/discovery/queue")
+@Tag(name = "Discovery")
+public class DiscoveryQueueController {
+    private final DiscoveryService discoveryService;
+
+    public DiscoveryQueueController(DiscoveryService discoveryService) {
+        this.discoveryService = discoveryService;
+    }
+
+    @GetMapping
+    public DiscoveryQueueResponse getQueue() {
+        return discoveryService.getQueueStats();
+    }
+}
@@ -1,10 +1,12 @@
 package com.cloudcity.platform.api;
 
-import com.cloudcity.platform.api.dto.GraphResponse;
+import com.cloudcity.platform.api.dto.GraphFilterRequest;
 import com.cloudcity.platform.api.dto.GraphHealthResponse;
 import com.cloudcity.platform.api.dto.GraphSummaryResponse;
+import com.cloudcity.platform.api.dto.ResourceEdgePageResponse;
 import com.cloudcity.platform.api.dto.ResourceEdgeRequest;
 import com.cloudcity.platform.api.dto.ResourceEdgeResponse;
+import com.cloudcity.platform.api.dto.ResourceNodePageResponse;
 import com.cloudcity.platform.api.dto.ResourceNodeRequest;
 import com.cloudcity.platform.api.dto.ResourceNodeResponse;
 import com.cloudcity.platform.api.dto.ResourceNodeUpdateRequest;
@@ -12,11 +14,14 @@ import com.cloudcity.platform.domain.ResourceEdge;
 import com.cloudcity.platform.domain.ResourceNode;
 import com.cloudcity.platform.service.ResourceGraphService;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import java.io.IOException;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -24,6 +29,7 @@ import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -44,6 +50,15 @@ public class ResourceGraphController {
         return toNodeResponse(saved);
     }
 
+    @GetMapping("/nodes")
+    public List<ResourceNodeResponse> findNodesByExternalId(@PathVariable UUID projectId,
+                                                            @RequestParam("externalId") List<String> externalIds) {
+        return graphService.findNodesByExternalId(projectId, externalIds)
+                .stream()
+                .map(this::toNodeResponse)
+                .collect(Collectors.toList());
+    }
+
     @PatchMapping("/nodes/{nodeId}")
     public ResourceNodeResponse updateNode(@PathVariable UUID projectId,
                                            @PathVariable UUID nodeId,
@@ -71,17 +86,28 @@ public class ResourceGraphController {
         graphService.deleteEdge(projectId, edgeId);
     }
 
-    @GetMapping("/graph")
-    public GraphResponse getGraph(@PathVariable UUID projectId) {
-        List<ResourceNodeResponse> nodes = graphService.getNodes(projectId)
-                .stream()
-                .map(this::toNodeResponse)
-                .collect(Collectors.toList());
-        List<ResourceEdgeResponse> edges = graphService.getEdges(projectId)
-                .stream()
-                .map(this::toEdgeResponse)
-                .collect(Collectors.toList());
-        return new GraphResponse(nodes, edges);
+    @GetMapping(value = "/graph", produces = MediaType.APPLICATION_JSON_VALUE)
+    public void getGraph(@PathVariable UUID projectId,
+                         GraphFilterRequest filter,
+                         HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        graphService.writeGraph(projectId, filter, response.getOutputStream());
+    }
+
+    @GetMapping("/graph/nodes")
+    public ResourceNodePageResponse getNodePage(@PathVariable UUID projectId,
+                                                GraphFilterRequest filter,
+                                                @RequestParam(required = false) UUID after,
+                                                @RequestParam(defaultValue = "500") int limit) {
+        return graphService.getNodePage(projectId, filter, after, limit);
+    }
+
+    @GetMapping("/graph/edges")
+    public ResourceEdgePageResponse getEdgePage(@PathVariable UUID projectId,
+                                                GraphFilterRequest filter,
+                                                @RequestParam(required = false) UUID after,
+                                                @RequestParam(defaultValue = "500") int limit) {
+        return graphService.getEdgePage(projectId, filter, after, limit);
     }
 
     @GetMapping("/graph/summary")
@@ -90,8 +116,11 @@ public class ResourceGraphController {
     }
 
     @GetMapping("/graph/health")
-    public GraphHealthResponse getGraphHealth(@PathVariable UUID projectId) {
-        return graphService.getGraphHealth(projectId);
+    public GraphHealthResponse getGraphHealth(@PathVariable UUID projectId,
+                                              @RequestParam(defaultValue = "100") int limit,
+                                              @RequestParam(required = false) UUID orphanAfter,
+                                              @RequestParam(required = false) UUID misconfiguredAfter) {
+        return graphService.getGraphHealth(projectId, limit, orphanAfter, misconfiguredAfter);
     }
 
     private ResourceNodeResponse toNodeResponse(ResourceNode node) {
@@ -104,6 +133,7 @@ public class ResourceGraphController {
                 node.getRegion(),
                 node.getZone(),
                 node.getState(),
+                node.getExternalId(),
                 node.getSource(),
                 node.getCostEstimate(),
                 node.getMetadataJson(),
@@ -0,0 +1,37 @@
+package com.cloudcity.platform.api.dto;
+
+public class DiscoveryClientStatsResponse {
+    private long hits;
+    private long misses;
+    private long evictions;
+    private int liveClients;
+    private int cachedRoles;
+
+    public DiscoveryClientStatsResponse(long hits, long misses, long evictions, int liveClients, int cachedRoles) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.liveClients = liveClients;
+        this.cachedRoles = cachedRoles;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public int getLiveClients() {
+        return liveClients;
+    }
+
+    public int getCachedRoles() {
+        return cachedRoles;
+    }
+}
@@ -16,6 +16,9 @@ public class DiscoveryCreateRequest {
 
     private List<String> regions;
 
+    // Further accounts discovered in the same run, each across every region.
+    private List<DiscoveryAccountRequest> accounts;
+
     public CloudProvider getProvider() {
         return provider;
     }
@@ -55,4 +58,12 @@ public class DiscoveryCreateRequest {
     public void setRegions(List<String> regions) {
         this.regions = regions;
     }
+
+    public List<DiscoveryAccountRequest> getAccounts() {
+        return accounts;
+    }
+
+    public void setAccounts(List<DiscoveryAccountRequest> accounts) {
+        this.accounts = accounts;
+    }
 }
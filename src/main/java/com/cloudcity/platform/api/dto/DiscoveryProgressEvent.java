@@ -0,0 +1,68 @@
+package com.cloudcity.platform.api.dto;
+
+import java.util.UUID;
+
+public class DiscoveryProgressEvent {
+    public static final String STATUS = "status";
+    public static final String REGION = "region";
+    public static final String RESOURCE = "resource";
+
+    private UUID discoveryId;
+    private String event;
+    private String status;
+    private Integer progress;
+    private String region;
+    private String resourceType;
+    private Integer resourceCount;
+    private String message;
+
+    public DiscoveryProgressEvent(UUID discoveryId,
+                                  String event,
+                                  String status,
+                                  Integer progress,
+                                  String region,
+                                  String resourceType,
+                                  Integer resourceCount,
+                                  String message) {
+        this.discoveryId = discoveryId;
+        this.event = event;
+        this.status = status;
+        this.progress = progress;
+        this.region = region;
+        this.resourceType = resourceType;
+        this.resourceCount = resourceCount;
+        this.message = message;
+    }
+
+    public UUID getDiscoveryId() {
+        return discoveryId;
+    }
+
+    public String getEvent() {
+        return event;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public Integer getProgress() {
+        return progress;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public String getResourceType() {
+        return resourceType;
+    }
+
+    public Integer getResourceCount() {
+        return resourceCount;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
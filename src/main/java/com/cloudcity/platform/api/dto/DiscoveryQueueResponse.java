@@ -0,0 +1,65 @@
+package com.cloudcity.platform.api.dto;
+
+import java.time.OffsetDateTime;
+
+public class DiscoveryQueueResponse {
+    private int queued;
+    private int queuedInteractive;
+    private int queuedScheduled;
+    private int running;
+    private int maxQueued;
+    private double saturation;
+    private long rejectedInteractive;
+    private long rejectedScheduled;
+    private OffsetDateTime oldestQueuedAt;
+
+    public DiscoveryQueueResponse(int queued, int queuedInteractive, int queuedScheduled, int running, int maxQueued,
+                                  double saturation, long rejectedInteractive, long rejectedScheduled,
+                                  OffsetDateTime oldestQueuedAt) {
+        this.queued = queued;
+        this.queuedInteractive = queuedInteractive;
+        this.queuedScheduled = queuedScheduled;
+        this.running = running;
+        this.maxQueued = maxQueued;
+        this.saturation = saturation;
+        this.rejectedInteractive = rejectedInteractive;
+        this.rejectedScheduled = rejectedScheduled;
+        this.oldestQueuedAt = oldestQueuedAt;
+    }
+
+    public int getQueued() {
+        return queued;
+    }
+
+    public int getQueuedInteractive() {
+        return queuedInteractive;
+    }
+
+    public int getQueuedScheduled() {
+        return queuedScheduled;
+    }
+
+    public int getRunning() {
+        return running;
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    public double getSaturation() {
+        return saturation;
+    }
+
+    public long getRejectedInteractive() {
+        return rejectedInteractive;
+    }
+
+    public long getRejectedScheduled() {
+        return rejectedScheduled;
+    }
+
+    public OffsetDateTime getOldestQueuedAt() {
+        return oldestQueuedAt;
+    }
+}
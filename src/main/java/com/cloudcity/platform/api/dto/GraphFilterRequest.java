@@ -0,0 +1,63 @@
+package com.cloudcity.platform.api.dto;
+
+import com.cloudcity.platform.domain.RelationType;
+import com.cloudcity.platform.domain.ResourceSource;
+import com.cloudcity.platform.domain.ResourceType;
+import java.util.List;
+
+public class GraphFilterRequest {
+    private List<ResourceType> type;
+    private String region;
+    private ResourceSource source;
+    private String state;
+    private String namePrefix;
+    private RelationType relationType;
+
+    public List<ResourceType> getType() {
+        return type;
+    }
+
+    public void setType(List<ResourceType> type) {
+        this.type = type;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public void setRegion(String region) {
+        this.region = region;
+    }
+
+    public ResourceSource getSource() {
+        return source;
+    }
+
+    public void setSource(ResourceSource source) {
+        this.source = source;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public String getNamePrefix() {
+        return namePrefix;
+    }
+
+    public void setNamePrefix(String namePrefix) {
+        this.namePrefix = namePrefix;
+    }
+
+    public RelationType getRelationType() {
+        return relationType;
+    }
+
+    public void setRelationType(RelationType relationType) {
+        this.relationType = relationType;
+    }
+}
@@ -1,27 +1,34 @@
 package com.cloudcity.platform.api.dto;
 
 import java.util.List;
+import java.util.UUID;
 
 public class GraphHealthResponse {
     private int totalNodes;
     private int totalEdges;
-    private int orphanNodeCount;
-    private int misconfiguredNodeCount;
+    private Integer orphanNodeCount;
+    private Integer misconfiguredNodeCount;
     private List<GraphHealthIssueResponse> orphanNodes;
     private List<GraphHealthIssueResponse> misconfiguredNodes;
+    private UUID nextOrphanCursor;
+    private UUID nextMisconfiguredCursor;
 
     public GraphHealthResponse(int totalNodes,
                                int totalEdges,
-                               int orphanNodeCount,
-                               int misconfiguredNodeCount,
+                               Integer orphanNodeCount,
+                               Integer misconfiguredNodeCount,
                                List<GraphHealthIssueResponse> orphanNodes,
-                               List<GraphHealthIssueResponse> misconfiguredNodes) {
+                               List<GraphHealthIssueResponse> misconfiguredNodes,
+                               UUID nextOrphanCursor,
+                               UUID nextMisconfiguredCursor) {
         this.totalNodes = totalNodes;
         this.totalEdges = totalEdges;
         this.orphanNodeCount = orphanNodeCount;
         this.misconfiguredNodeCount = misconfiguredNodeCount;
         this.orphanNodes = orphanNodes;
         this.misconfiguredNodes = misconfiguredNodes;
+        this.nextOrphanCursor = nextOrphanCursor;
+        this.nextMisconfiguredCursor = nextMisconfiguredCursor;
     }
 
     public int getTotalNodes() {
@@ -32,11 +39,11 @@ public class GraphHealthResponse {
         return totalEdges;
     }
 
-    public int getOrphanNodeCount() {
+    public Integer getOrphanNodeCount() {
         return orphanNodeCount;
     }
 
-    public int getMisconfiguredNodeCount() {
+    public Integer getMisconfiguredNodeCount() {
         return misconfiguredNodeCount;
     }
 
@@ -47,4 +54,12 @@ public class GraphHealthResponse {
     public List<GraphHealthIssueResponse> getMisconfiguredNodes() {
         return misconfiguredNodes;
     }
+
+    public UUID getNextOrphanCursor() {
+        return nextOrphanCursor;
+    }
+
+    public UUID getNextMisconfiguredCursor() {
+        return nextMisconfiguredCursor;
+    }
 }
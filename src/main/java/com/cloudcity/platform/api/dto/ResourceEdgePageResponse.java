@@ -0,0 +1,22 @@
+package com.cloudcity.platform.api.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+public class ResourceEdgePageResponse {
+    private List<ResourceEdgeResponse> items;
+    private UUID nextCursor;
+
+    public ResourceEdgePageResponse(List<ResourceEdgeResponse> items, UUID nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<ResourceEdgeResponse> getItems() {
+        return items;
+    }
+
+    public UUID getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,22 @@
+package com.cloudcity.platform.api.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+public class ResourceNodePageResponse {
+    private List<ResourceNodeResponse> items;
+    private UUID nextCursor;
+
+    public ResourceNodePageResponse(List<ResourceNodeResponse> items, UUID nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<ResourceNodeResponse> getItems() {
+        return items;
+    }
+
+    public UUID getNextCursor() {
+        return nextCursor;
+    }
+}
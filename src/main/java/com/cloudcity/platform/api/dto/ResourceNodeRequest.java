@@ -23,6 +23,8 @@ public class ResourceNodeRequest {
 
     private String state;
 
+    private String externalId;
+
     @NotNull
     private ResourceSource source;
 
@@ -78,6 +80,14 @@ public class ResourceNodeRequest {
         this.state = state;
     }
 
+    public String getExternalId() {
+        return externalId;
+    }
+
+    public void setExternalId(String externalId) {
+        this.externalId = externalId;
+    }
+
     public ResourceSource getSource() {
         return source;
     }
@@ -16,6 +16,7 @@ public class ResourceNodeResponse {
     private String region;
     private String zone;
     private String state;
+    private String externalId;
     private ResourceSource source;
     private BigDecimal costEstimate;
     private String metadataJson;
@@ -23,7 +24,7 @@ public class ResourceNodeResponse {
     private OffsetDateTime updatedAt;
 
     public ResourceNodeResponse(UUID id, UUID projectId, CloudProvider provider, ResourceType type, String name, String region,
-                                String zone, String state, ResourceSource source, BigDecimal costEstimate,
+                                String zone, String state, String externalId, ResourceSource source, BigDecimal costEstimate,
                                 String metadataJson, OffsetDateTime createdAt, OffsetDateTime updatedAt) {
         this.id = id;
         this.projectId = projectId;
@@ -33,6 +34,7 @@ public class ResourceNodeResponse {
         this.region = region;
         this.zone = zone;
         this.state = state;
+        this.externalId = externalId;
         this.source = source;
         this.costEstimate = costEstimate;
         this.metadataJson = metadataJson;
@@ -72,6 +74,10 @@ public class ResourceNodeResponse {
         return state;
     }
 
+    public String getExternalId() {
+        return externalId;
+    }
+
     public ResourceSource getSource() {
         return source;
     }
@@ -1,22 +1,86 @@
 package com.cloudcity.platform.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.system.JavaVersion;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SyncTaskExecutor;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 @Configuration
 @EnableAsync
+@EnableScheduling
 public class AsyncConfig {
+    private final boolean virtualThreads;
+
+    // Discovery waits on AWS and Postgres almost all the time; on virtual threads the limits below are
+    // semaphore permits rather than pool sizes and can be raised into the hundreds. Needs Java 21.
+    public AsyncConfig(@Value("${cloudcity.discovery.executor.virtual-threads:false}") boolean virtualThreads) {
+        // Checked up front so a Java 17 runtime fails startup with the reason, not on the first discovery.
+        if (virtualThreads && !JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE)) {
+            throw new IllegalStateException("cloudcity.discovery.executor.virtual-threads needs Java 21 or newer, "
+                    + "but this is Java " + JavaVersion.getJavaVersion() + "; unset DISCOVERY_VIRTUAL_THREADS");
+        }
+        this.virtualThreads = virtualThreads;
+    }
+
     @Bean
-    public TaskExecutor discoveryTaskExecutor() {
+    public TaskExecutor discoveryTaskExecutor(@Value("${cloudcity.discovery.queue.concurrency:4}") int concurrency) {
+        if (virtualThreads) {
+            return new BoundedVirtualThreadExecutor("discovery-", concurrency);
+        }
+        // Sized to the worker's slots: queued runs wait in discovery_runs, not in memory.
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(2);
-        executor.setMaxPoolSize(4);
-        executor.setQueueCapacity(100);
+        executor.setCorePoolSize(Math.max(1, concurrency));
+        executor.setMaxPoolSize(Math.max(1, concurrency));
+        executor.setQueueCapacity(Math.max(1, concurrency));
         executor.setThreadNamePrefix("discovery-");
         executor.initialize();
         return executor;
     }
+
+    @Bean
+    public TaskExecutor discoveryFanOutExecutor(@Value("${cloudcity.discovery.fan-out.parallelism:8}") int parallelism) {
+        if (virtualThreads) {
+            return new BoundedVirtualThreadExecutor("discovery-fanout-", parallelism);
+        }
+        if (parallelism <= 1) {
+            return new SyncTaskExecutor();
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setThreadNamePrefix("discovery-fanout-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean
+    public TaskExecutor discoveryListingExecutor(
+            @Value("${cloudcity.discovery.fan-out.listing-parallelism:16}") int parallelism) {
+        if (virtualThreads) {
+            return new BoundedVirtualThreadExecutor("discovery-listing-", parallelism);
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Math.max(1, parallelism));
+        executor.setMaxPoolSize(Math.max(1, parallelism));
+        executor.setThreadNamePrefix("discovery-listing-");
+        executor.initialize();
+        return executor;
+    }
+
+    // One thread: the summary verifier runs a batch at a time, off the shared scheduler threads.
+    @Bean
+    public TaskExecutor graphSummaryVerifyExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setThreadNamePrefix("graph-summary-verify-");
+        executor.initialize();
+        return executor;
+    }
 }
@@ -0,0 +1,38 @@
+package com.cloudcity.platform.config;
+
+import java.util.concurrent.Semaphore;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+// Every task gets its own virtual thread at once and waits for a permit there, so submitting never
+// blocks: a region thread starting listings keeps draining its pages while they queue for permits.
+final class BoundedVirtualThreadExecutor implements TaskExecutor {
+    private final TaskExecutor threads;
+    private final Semaphore permits;
+
+    BoundedVirtualThreadExecutor(String threadNamePrefix, int limit) {
+        this(new VirtualThreadTaskExecutor(threadNamePrefix), limit);
+    }
+
+    BoundedVirtualThreadExecutor(TaskExecutor threads, int limit) {
+        this.threads = threads;
+        this.permits = new Semaphore(Math.max(1, limit), true);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        threads.execute(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        });
+    }
+}
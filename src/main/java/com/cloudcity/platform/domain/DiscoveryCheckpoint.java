@@ -0,0 +1,85 @@
+package com.cloudcity.platform.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+// A segment is either a resource type listed within a region or the whole region once reconciled.
+@Entity
+@Table(name = "discovery_checkpoints",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"discovery_run_id", "account_id", "region", "segment"}))
+public class DiscoveryCheckpoint {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "discovery_run_id", nullable = false)
+    private DiscoveryRun discoveryRun;
+
+    // Empty for runs that discover the caller's own account without naming it.
+    @Column(name = "account_id", nullable = false)
+    private String accountId = "";
+
+    @Column(nullable = false)
+    private String region;
+
+    @Column(nullable = false)
+    private String segment;
+
+    @Column(name = "completed_at", nullable = false)
+    private OffsetDateTime completedAt;
+
+    public UUID getId() {
+        return id;
+    }
+
+    public DiscoveryRun getDiscoveryRun() {
+        return discoveryRun;
+    }
+
+    public void setDiscoveryRun(DiscoveryRun discoveryRun) {
+        this.discoveryRun = discoveryRun;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(String accountId) {
+        this.accountId = accountId;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public void setRegion(String region) {
+        this.region = region;
+    }
+
+    public String getSegment() {
+        return segment;
+    }
+
+    public void setSegment(String segment) {
+        this.segment = segment;
+    }
+
+    public OffsetDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(OffsetDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+}
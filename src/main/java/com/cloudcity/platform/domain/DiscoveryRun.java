@@ -12,6 +12,7 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
 import java.time.OffsetDateTime;
+import java.util.List;
 import java.util.UUID;
 
 @Entity
@@ -44,6 +45,38 @@ public class DiscoveryRun {
     @Column(name = "summary_json", columnDefinition = "jsonb")
     private String summaryJson;
 
+    @Column(nullable = false)
+    private int progress;
+
+    // Comma-separated region codes.
+    @Column(name = "regions")
+    private String regions;
+
+    @Column(name = "error_message")
+    private String errorMessage;
+
+    @Column(name = "available_at")
+    private OffsetDateTime availableAt;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(nullable = false)
+    private int priority;
+
+    @Column(name = "lease_owner")
+    private String leaseOwner;
+
+    @Column(name = "lease_expires_at")
+    private OffsetDateTime leaseExpiresAt;
+
+    @Column(name = "heartbeat_at")
+    private OffsetDateTime heartbeatAt;
+
+    // Written only by DiscoveryJobRepository, so saving a stale copy of the run cannot clear a request.
+    @Column(name = "cancel_requested_at", insertable = false, updatable = false)
+    private OffsetDateTime cancelRequestedAt;
+
     public UUID getId() {
         return id;
     }
@@ -103,4 +136,83 @@ public class DiscoveryRun {
     public void setSummaryJson(String summaryJson) {
         this.summaryJson = summaryJson;
     }
+
+    public int getProgress() {
+        return progress;
+    }
+
+    public void setProgress(int progress) {
+        this.progress = progress;
+    }
+
+    public List<String> getRegions() {
+        if (regions == null || regions.isBlank()) {
+            return List.of();
+        }
+        return List.of(regions.split(","));
+    }
+
+    public void setRegions(List<String> regions) {
+        this.regions = regions == null || regions.isEmpty() ? null : String.join(",", regions);
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public OffsetDateTime getAvailableAt() {
+        return availableAt;
+    }
+
+    public void setAvailableAt(OffsetDateTime availableAt) {
+        this.availableAt = availableAt;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+
+    public String getLeaseOwner() {
+        return leaseOwner;
+    }
+
+    public void setLeaseOwner(String leaseOwner) {
+        this.leaseOwner = leaseOwner;
+    }
+
+    public OffsetDateTime getLeaseExpiresAt() {
+        return leaseExpiresAt;
+    }
+
+    public void setLeaseExpiresAt(OffsetDateTime leaseExpiresAt) {
+        this.leaseExpiresAt = leaseExpiresAt;
+    }
+
+    public OffsetDateTime getHeartbeatAt() {
+        return heartbeatAt;
+    }
+
+    public void setHeartbeatAt(OffsetDateTime heartbeatAt) {
+        this.heartbeatAt = heartbeatAt;
+    }
+
+    public OffsetDateTime getCancelRequestedAt() {
+        return cancelRequestedAt;
+    }
 }
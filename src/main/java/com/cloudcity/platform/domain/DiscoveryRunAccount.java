@@ -0,0 +1,72 @@
+package com.cloudcity.platform.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.util.UUID;
+
+// One AWS account a run discovers, with the role assumed to reach it when it is not the caller's own.
+@Entity
+@Table(name = "discovery_run_accounts",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"discovery_run_id", "account_id"}))
+public class DiscoveryRunAccount {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "discovery_run_id", nullable = false)
+    private DiscoveryRun discoveryRun;
+
+    @Column(name = "account_id", nullable = false)
+    private String accountId;
+
+    @Column(name = "role_arn")
+    private String roleArn;
+
+    @Column(name = "external_id")
+    private String externalId;
+
+    public UUID getId() {
+        return id;
+    }
+
+    public DiscoveryRun getDiscoveryRun() {
+        return discoveryRun;
+    }
+
+    public void setDiscoveryRun(DiscoveryRun discoveryRun) {
+        this.discoveryRun = discoveryRun;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(String accountId) {
+        this.accountId = accountId;
+    }
+
+    public String getRoleArn() {
+        return roleArn;
+    }
+
+    public void setRoleArn(String roleArn) {
+        this.roleArn = roleArn;
+    }
+
+    public String getExternalId() {
+        return externalId;
+    }
+
+    public void setExternalId(String externalId) {
+        this.externalId = externalId;
+    }
+}
@@ -0,0 +1,73 @@
+package com.cloudcity.platform.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+// One per project that has completed a discovery; the run it points at is re-executed on each refresh.
+@Entity
+@Table(name = "discovery_schedules")
+public class DiscoverySchedule {
+    @Id
+    @Column(name = "project_id")
+    private UUID projectId;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "discovery_run_id", nullable = false)
+    private DiscoveryRun discoveryRun;
+
+    @Column(name = "interval_seconds", nullable = false)
+    private int intervalSeconds;
+
+    @Column(name = "next_run_at", nullable = false)
+    private OffsetDateTime nextRunAt;
+
+    @Column(name = "last_scheduled_at")
+    private OffsetDateTime lastScheduledAt;
+
+    public UUID getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(UUID projectId) {
+        this.projectId = projectId;
+    }
+
+    public DiscoveryRun getDiscoveryRun() {
+        return discoveryRun;
+    }
+
+    public void setDiscoveryRun(DiscoveryRun discoveryRun) {
+        this.discoveryRun = discoveryRun;
+    }
+
+    public int getIntervalSeconds() {
+        return intervalSeconds;
+    }
+
+    public void setIntervalSeconds(int intervalSeconds) {
+        this.intervalSeconds = intervalSeconds;
+    }
+
+    public OffsetDateTime getNextRunAt() {
+        return nextRunAt;
+    }
+
+    public void setNextRunAt(OffsetDateTime nextRunAt) {
+        this.nextRunAt = nextRunAt;
+    }
+
+    public OffsetDateTime getLastScheduledAt() {
+        return lastScheduledAt;
+    }
+
+    public void setLastScheduledAt(OffsetDateTime lastScheduledAt) {
+        this.lastScheduledAt = lastScheduledAt;
+    }
+}
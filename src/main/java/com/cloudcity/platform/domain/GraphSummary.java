@@ -0,0 +1,59 @@
+package com.cloudcity.platform.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+// Maintained incrementally through GraphSummaryRepository; the row also serializes writers of a
+// project's summary against the verifier.
+@Entity
+@Table(name = "graph_summaries")
+public class GraphSummary {
+    @Id
+    @Column(name = "project_id")
+    private UUID projectId;
+
+    @Column(name = "edge_count", nullable = false)
+    private long edgeCount;
+
+    @Column(name = "updated_at", nullable = false)
+    private OffsetDateTime updatedAt;
+
+    @Column(name = "verified_at")
+    private OffsetDateTime verifiedAt;
+
+    public UUID getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(UUID projectId) {
+        this.projectId = projectId;
+    }
+
+    public long getEdgeCount() {
+        return edgeCount;
+    }
+
+    public void setEdgeCount(long edgeCount) {
+        this.edgeCount = edgeCount;
+    }
+
+    public OffsetDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(OffsetDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public OffsetDateTime getVerifiedAt() {
+        return verifiedAt;
+    }
+
+    public void setVerifiedAt(OffsetDateTime verifiedAt) {
+        this.verifiedAt = verifiedAt;
+    }
+}
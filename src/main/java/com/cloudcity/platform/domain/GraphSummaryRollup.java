@@ -0,0 +1,84 @@
+package com.cloudcity.platform.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.math.BigDecimal;
+import java.util.UUID;
+
+// Node count and cost of one (type, region) pair of a project. Nodes without a region are kept
+// under "unknown", as the summary reports them.
+@Entity
+@Table(name = "graph_summary_rollups",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"project_id", "type", "region"}))
+public class GraphSummaryRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "project_id", nullable = false)
+    private UUID projectId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ResourceType type;
+
+    @Column(nullable = false)
+    private String region;
+
+    @Column(name = "node_count", nullable = false)
+    private long nodeCount;
+
+    @Column(name = "estimated_cost", nullable = false, precision = 16, scale = 2)
+    private BigDecimal estimatedCost;
+
+    public UUID getId() {
+        return id;
+    }
+
+    public UUID getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(UUID projectId) {
+        this.projectId = projectId;
+    }
+
+    public ResourceType getType() {
+        return type;
+    }
+
+    public void setType(ResourceType type) {
+        this.type = type;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public void setRegion(String region) {
+        this.region = region;
+    }
+
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    public void setNodeCount(long nodeCount) {
+        this.nodeCount = nodeCount;
+    }
+
+    public BigDecimal getEstimatedCost() {
+        return estimatedCost;
+    }
+
+    public void setEstimatedCost(BigDecimal estimatedCost) {
+        this.estimatedCost = estimatedCost;
+    }
+}
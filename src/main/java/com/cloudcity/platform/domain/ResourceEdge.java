@@ -12,6 +12,8 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
 import java.util.UUID;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
 
 @Entity
 @Table(name = "resource_edges")
@@ -24,12 +26,15 @@ public class ResourceEdge extends CreatedEntity {
     @JoinColumn(name = "project_id", nullable = false)
     private Project project;
 
+    // Mirrors the on delete cascade of V1, so bulk node deletes take their edges with them.
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "from_node_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
     private ResourceNode fromNode;
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "to_node_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
     private ResourceNode toNode;
 
     @Enumerated(EnumType.STRING)
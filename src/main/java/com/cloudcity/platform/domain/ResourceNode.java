@@ -38,6 +38,13 @@ public class ResourceNode extends CreatedUpdatedEntity {
 
     private String region;
 
+    @Column(name = "account_id")
+    private String accountId;
+
+    // The provider's own id (i-0abc..., vpc-...), indexed for lookups by console id.
+    @Column(name = "external_id")
+    private String externalId;
+
     private String zone;
 
     private String state;
@@ -96,6 +103,22 @@ public class ResourceNode extends CreatedUpdatedEntity {
         this.region = region;
     }
 
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(String accountId) {
+        this.accountId = accountId;
+    }
+
+    public String getExternalId() {
+        return externalId;
+    }
+
+    public void setExternalId(String externalId) {
+        this.externalId = externalId;
+    }
+
     public String getZone() {
         return zone;
     }
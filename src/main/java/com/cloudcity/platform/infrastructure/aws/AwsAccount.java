@@ -0,0 +1,8 @@
+package com.cloudcity.platform.infrastructure.aws;
+
+// An account to discover. Without a role the caller's own credentials are used.
+public record AwsAccount(String accountId, String roleArn, String externalId) {
+    public boolean assumesRole() {
+        return roleArn != null && !roleArn.isBlank();
+    }
+}
@@ -0,0 +1,83 @@
+package com.cloudcity.platform.infrastructure.aws;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.sts.StsClient;
+import software.amazon.awssdk.services.sts.auth.StsAssumeRoleCredentialsProvider;
+import software.amazon.awssdk.services.sts.model.AssumeRoleRequest;
+
+// One assume-role provider per role and external id, shared by every run and region. The provider
+// caches its session and refreshes it in the background ahead of expiry, so AssumeRole is called
+// about once per session rather than once per client or run; reusing the same provider instance also
+// keeps AwsClientRegistry hits for the account's clients.
+@Component
+@Profile("!stub-aws")
+public class AwsAssumeRoleCredentials implements DisposableBean {
+    private static final String SESSION_NAME = "cloudcity-discovery";
+
+    private final StsClient stsClient;
+    private final AwsCredentialsProvider defaultCredentials;
+    private final Duration sessionDuration;
+    private final Duration refreshAhead;
+    private final Map<RoleKey, StsAssumeRoleCredentialsProvider> providers = new ConcurrentHashMap<>();
+
+    public AwsAssumeRoleCredentials(@Value("${cloudcity.aws.sts.region:us-east-1}") String region,
+                                    @Value("${cloudcity.aws.sts.session-seconds:3600}") long sessionSeconds,
+                                    @Value("${cloudcity.aws.sts.refresh-ahead-seconds:300}") long refreshAheadSeconds) {
+        this.defaultCredentials = DefaultCredentialsProvider.create();
+        this.stsClient = StsClient.builder()
+                .region(Region.of(region))
+                .credentialsProvider(defaultCredentials)
+                .httpClientBuilder(ApacheHttpClient.builder())
+                .build();
+        this.sessionDuration = Duration.ofSeconds(sessionSeconds);
+        this.refreshAhead = Duration.ofSeconds(refreshAheadSeconds);
+    }
+
+    public AwsCredentialsProvider forAccount(AwsAccount account) {
+        if (account == null || !account.assumesRole()) {
+            return defaultCredentials;
+        }
+        return providers.computeIfAbsent(new RoleKey(account.roleArn(), account.externalId()), this::create);
+    }
+
+    public int cachedRoles() {
+        return providers.size();
+    }
+
+    @Override
+    public void destroy() {
+        providers.values().forEach(StsAssumeRoleCredentialsProvider::close);
+        providers.clear();
+        stsClient.close();
+    }
+
+    private StsAssumeRoleCredentialsProvider create(RoleKey key) {
+        AssumeRoleRequest.Builder request = AssumeRoleRequest.builder()
+                .roleArn(key.roleArn())
+                .roleSessionName(SESSION_NAME)
+                .durationSeconds((int) sessionDuration.toSeconds());
+        if (key.externalId() != null && !key.externalId().isBlank()) {
+            request.externalId(key.externalId());
+        }
+        return StsAssumeRoleCredentialsProvider.builder()
+                .stsClient(stsClient)
+                .refreshRequest(request.build())
+                .prefetchTime(refreshAhead)
+                .staleTime(refreshAhead.dividedBy(2))
+                .asyncCredentialUpdateEnabled(true)
+                .build();
+    }
+
+    private record RoleKey(String roleArn, String externalId) {
+    }
+}
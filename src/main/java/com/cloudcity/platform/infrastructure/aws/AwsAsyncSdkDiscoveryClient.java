@@ -0,0 +1,233 @@
+package com.cloudcity.platform.infrastructure.aws;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.services.ec2.Ec2AsyncClient;
+import software.amazon.awssdk.services.ec2.model.DescribeInstancesRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeSecurityGroupsRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeSubnetsRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeVpcsRequest;
+import software.amazon.awssdk.services.elasticloadbalancingv2.ElasticLoadBalancingV2AsyncClient;
+import software.amazon.awssdk.services.elasticloadbalancingv2.model.DescribeLoadBalancersRequest;
+import software.amazon.awssdk.services.rds.RdsAsyncClient;
+import software.amazon.awssdk.services.rds.model.DescribeDbInstancesRequest;
+
+// Requests run on the shared Netty event loop while the calling thread consumes the pages.
+// Pages are requested one at a time, so a slow consumer back-pressures the listing.
+@Component
+@Profile("!stub-aws")
+@ConditionalOnProperty(name = "cloudcity.aws.client-mode", havingValue = "async")
+public class AwsAsyncSdkDiscoveryClient implements AwsDiscoveryClient {
+    private static final long CANCEL_CHECK_MILLIS = 200;
+    private static final String DESCRIBE_VPCS = "ec2:DescribeVpcs";
+    private static final String DESCRIBE_SUBNETS = "ec2:DescribeSubnets";
+    private static final String DESCRIBE_INSTANCES = "ec2:DescribeInstances";
+    private static final String DESCRIBE_SECURITY_GROUPS = "ec2:DescribeSecurityGroups";
+    private static final String DESCRIBE_LOAD_BALANCERS = "elasticloadbalancingv2:DescribeLoadBalancers";
+    private static final String DESCRIBE_DB_INSTANCES = "rds:DescribeDBInstances";
+
+    private final AwsClientRegistry clientRegistry;
+    private final AwsRateLimiter rateLimiter;
+    private final AwsAssumeRoleCredentials assumeRoleCredentials;
+    private final int pageSize;
+
+    public AwsAsyncSdkDiscoveryClient(AwsClientRegistry clientRegistry,
+                                      AwsRateLimiter rateLimiter,
+                                      AwsAssumeRoleCredentials assumeRoleCredentials,
+                                      @Value("${cloudcity.discovery.page-size:500}") int pageSize) {
+        this.clientRegistry = clientRegistry;
+        this.rateLimiter = rateLimiter;
+        this.assumeRoleCredentials = assumeRoleCredentials;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public void listVpc(AwsDiscoveryContext context, Consumer<List<AwsDiscoveredResource>> pageConsumer) {
+        try (AwsClientRegistry.Lease<Ec2AsyncClient> lease =
+                     clientRegistry.ec2Async(context.region(), credentials(context))) {
+            DescribeVpcsRequest request = DescribeVpcsRequest.builder()
+                    .maxResults(AwsResourceMapper.ec2PageSize(pageSize))
+                    .overrideConfiguration(rateLimiter.requestOverrides(context, DESCRIBE_VPCS))
+                    .build();
+            await(context, () -> rateLimiter.awaitCapacity(context, DESCRIBE_VPCS),
+                    lease.client().describeVpcsPaginator(request),
+                    page -> AwsResourceMapper.vpcs(page, context.region()), pageConsumer);
+        }
+    }
+
+    @Override
+    public void listSubnets(AwsDiscoveryContext context, Consumer<List<AwsDiscoveredResource>> pageConsumer) {
+        try (AwsClientRegistry.Lease<Ec2AsyncClient> lease =
+                     clientRegistry.ec2Async(context.region(), credentials(context))) {
+            DescribeSubnetsRequest request = DescribeSubnetsRequest.builder()
+                    .maxResults(AwsResourceMapper.ec2PageSize(pageSize))
+                    .overrideConfiguration(rateLimiter.requestOverrides(context, DESCRIBE_SUBNETS))
+                    .build();
+            await(context, () -> rateLimiter.awaitCapacity(context, DESCRIBE_SUBNETS),
+                    lease.client().describeSubnetsPaginator(request),
+                    page -> AwsResourceMapper.subnets(page, context.region()), pageConsumer);
+        }
+    }
+
+    @Override
+    public void listInstances(AwsDiscoveryContext context, Consumer<List<AwsDiscoveredResource>> pageConsumer) {
+        try (AwsClientRegistry.Lease<Ec2AsyncClient> lease =
+                     clientRegistry.ec2Async(context.region(), credentials(context))) {
+            DescribeInstancesRequest request = DescribeInstancesRequest.builder()
+                    .maxResults(AwsResourceMapper.ec2PageSize(pageSize))
+                    .overrideConfiguration(rateLimiter.requestOverrides(context, DESCRIBE_INSTANCES))
+                    .build();
+            await(context, () -> rateLimiter.awaitCapacity(context, DESCRIBE_INSTANCES),
+                    lease.client().describeInstancesPaginator(request),
+                    page -> AwsResourceMapper.instances(page, context.region()), pageConsumer);
+        }
+    }
+
+    @Override
+    public void listSecurityGroups(AwsDiscoveryContext context, Consumer<List<AwsDiscoveredResource>> pageConsumer) {
+        try (AwsClientRegistry.Lease<Ec2AsyncClient> lease =
+                     clientRegistry.ec2Async(context.region(), credentials(context))) {
+            DescribeSecurityGroupsRequest request = DescribeSecurityGroupsRequest.builder()
+                    .maxResults(AwsResourceMapper.ec2PageSize(pageSize))
+                    .overrideConfiguration(rateLimiter.requestOverrides(context, DESCRIBE_SECURITY_GROUPS))
+                    .build();
+            await(context, () -> rateLimiter.awaitCapacity(context, DESCRIBE_SECURITY_GROUPS),
+                    lease.client().describeSecurityGroupsPaginator(request),
+                    page -> AwsResourceMapper.securityGroups(page, context.region()), pageConsumer);
+        }
+    }
+
+    @Override
+    public void listLoadBalancers(AwsDiscoveryContext context, Consumer<List<AwsDiscoveredResource>> pageConsumer) {
+        try (AwsClientRegistry.Lease<ElasticLoadBalancingV2AsyncClient> lease =
+                     clientRegistry.elbAsync(context.region(), credentials(context))) {
+            DescribeLoadBalancersRequest request = DescribeLoadBalancersRequest.builder()
+                    .pageSize(AwsResourceMapper.elbPageSize(pageSize))
+                    .overrideConfiguration(rateLimiter.requestOverrides(context, DESCRIBE_LOAD_BALANCERS))
+                    .build();
+            await(context, () -> rateLimiter.awaitCapacity(context, DESCRIBE_LOAD_BALANCERS),
+                    lease.client().describeLoadBalancersPaginator(request),
+                    page -> AwsResourceMapper.loadBalancers(page, context.region()), pageConsumer);
+        }
+    }
+
+    @Override
+    public void listRdsInstances(AwsDiscoveryContext context, Consumer<List<AwsDiscoveredResource>> pageConsumer) {
+        try (AwsClientRegistry.Lease<RdsAsyncClient> lease =
+                     clientRegistry.rdsAsync(context.region(), credentials(context))) {
+            DescribeDbInstancesRequest request = DescribeDbInstancesRequest.builder()
+                    .maxRecords(AwsResourceMapper.rdsPageSize(pageSize))
+                    .overrideConfiguration(rateLimiter.requestOverrides(context, DESCRIBE_DB_INSTANCES))
+                    .build();
+            await(context, () -> rateLimiter.awaitCapacity(context, DESCRIBE_DB_INSTANCES),
+                    lease.client().describeDBInstancesPaginator(request),
+                    page -> AwsResourceMapper.rdsInstances(page, context.region()), pageConsumer);
+        }
+    }
+
+    private AwsCredentialsProvider credentials(AwsDiscoveryContext context) {
+        return assumeRoleCredentials.forAccount(context.account());
+    }
+
+    // Each page is handed to the consumer on this thread and only then is the next one requested, so
+    // a full page queue or an empty rate-limit bucket holds back the listing instead of an event loop
+    // thread. Cancelling the subscription stops the listing; a page already in flight is dropped.
+    static <P> void await(AwsDiscoveryContext context,
+                          Runnable awaitCapacity,
+                          Publisher<P> listing,
+                          Function<P, List<AwsDiscoveredResource>> mapper,
+                          Consumer<List<AwsDiscoveredResource>> pageConsumer) {
+        PageSubscriber<P> subscriber = new PageSubscriber<>();
+        awaitCapacity.run();
+        listing.subscribe(subscriber);
+        try {
+            while (true) {
+                Signal<P> signal = subscriber.signals.poll(CANCEL_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+                if (signal == null) {
+                    context.deadline().check();
+                    continue;
+                }
+                if (signal.error() != null) {
+                    throw failure(signal.error());
+                }
+                if (signal.page() == null) {
+                    return;
+                }
+                pageConsumer.accept(mapper.apply(signal.page()));
+                awaitCapacity.run();
+                subscriber.request();
+            }
+        } catch (InterruptedException e) {
+            subscriber.cancel();
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Discovery interrupted");
+        } catch (RuntimeException e) {
+            subscriber.cancel();
+            throw e;
+        }
+    }
+
+    private static RuntimeException failure(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        return new CompletionException(cause);
+    }
+
+    // Requests one page at a time. Signals are only queued, never waited on, so the SDK threads
+    // delivering them never block.
+    private static final class PageSubscriber<P> implements Subscriber<P> {
+        private final BlockingQueue<Signal<P>> signals = new LinkedBlockingQueue<>();
+        private volatile Subscription subscription;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(P page) {
+            signals.add(new Signal<>(page, null));
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            signals.add(new Signal<>(null, error));
+        }
+
+        @Override
+        public void onComplete() {
+            signals.add(new Signal<>(null, null));
+        }
+
+        private void request() {
+            subscription.request(1);
+        }
+
+        private void cancel() {
+            Subscription current = subscription;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+    }
+
+    private record Signal<P>(P page, Throwable error) {
+    }
+}
@@ -0,0 +1,37 @@
+package com.cloudcity.platform.infrastructure.aws;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+
+// One per discovery run, shared by every call it makes: the run's deadline plus a cancel flag.
+// Checked before each request and page, and turned into the SDK's api-call timeout.
+public final class AwsCallDeadline {
+    private final long deadlineNanos;
+    private volatile String cancelReason;
+
+    public AwsCallDeadline(Duration timeout) {
+        this.deadlineNanos = System.nanoTime() + timeout.toNanos();
+    }
+
+    public void cancel(String reason) {
+        cancelReason = reason;
+    }
+
+    public boolean isCancelled() {
+        return cancelReason != null;
+    }
+
+    public Duration remaining() {
+        return Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime()));
+    }
+
+    public void check() {
+        String reason = cancelReason;
+        if (reason != null) {
+            throw new CancellationException(reason);
+        }
+        if (deadlineNanos - System.nanoTime() <= 0) {
+            throw new CancellationException("Discovery deadline exceeded");
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.cloudcity.platform.infrastructure.aws;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Per-run tally of AWS throttling, shared by every region and listing of the run.
+public final class AwsCallStats {
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+
+    public void recordThrottle() {
+        throttled.incrementAndGet();
+    }
+
+    public void recordWait(long nanos) {
+        waitNanos.addAndGet(nanos);
+    }
+
+    public long getThrottled() {
+        return throttled.get();
+    }
+
+    public long getWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(waitNanos.get());
+    }
+}
@@ -0,0 +1,242 @@
+package com.cloudcity.platform.infrastructure.aws;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.ec2.Ec2AsyncClient;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.elasticloadbalancingv2.ElasticLoadBalancingV2AsyncClient;
+import software.amazon.awssdk.services.elasticloadbalancingv2.ElasticLoadBalancingV2Client;
+import software.amazon.awssdk.services.rds.RdsAsyncClient;
+import software.amazon.awssdk.services.rds.RdsClient;
+import software.amazon.awssdk.utils.SdkAutoCloseable;
+
+@Component
+@Profile("!stub-aws")
+public class AwsClientRegistry implements DisposableBean {
+    private final SdkHttpClient httpClient;
+    private final int maxConnections;
+    private volatile SdkAsyncHttpClient asyncHttpClient;
+    private final AwsCredentialsProvider defaultCredentials;
+    private final ClientOverrideConfiguration clientOverrides;
+    private final ClientOverrideConfiguration asyncClientOverrides;
+    private final long idleTimeoutMillis;
+    private final Map<ClientKey, Entry> clients = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public AwsClientRegistry(AwsRateLimiter rateLimiter,
+                             @Value("${cloudcity.aws.clients.max-connections:200}") int maxConnections,
+                             @Value("${cloudcity.aws.clients.idle-timeout-seconds:900}") long idleTimeoutSeconds) {
+        this.httpClient = ApacheHttpClient.builder()
+                .maxConnections(maxConnections)
+                .connectionMaxIdleTime(Duration.ofSeconds(60))
+                .build();
+        this.maxConnections = maxConnections;
+        this.defaultCredentials = DefaultCredentialsProvider.create();
+        this.clientOverrides = rateLimiter.clientOverrides();
+        this.asyncClientOverrides = rateLimiter.asyncClientOverrides();
+        this.idleTimeoutMillis = Duration.ofSeconds(idleTimeoutSeconds).toMillis();
+    }
+
+    public Lease<Ec2Client> ec2(String region) {
+        return ec2(region, defaultCredentials);
+    }
+
+    public Lease<Ec2Client> ec2(String region, AwsCredentialsProvider credentials) {
+        return acquire(Ec2Client.class, region, credentials, regionId -> Ec2Client.builder()
+                .region(regionId)
+                .credentialsProvider(credentials)
+                .overrideConfiguration(clientOverrides)
+                .httpClient(httpClient)
+                .build());
+    }
+
+    public Lease<RdsClient> rds(String region) {
+        return rds(region, defaultCredentials);
+    }
+
+    public Lease<RdsClient> rds(String region, AwsCredentialsProvider credentials) {
+        return acquire(RdsClient.class, region, credentials, regionId -> RdsClient.builder()
+                .region(regionId)
+                .credentialsProvider(credentials)
+                .overrideConfiguration(clientOverrides)
+                .httpClient(httpClient)
+                .build());
+    }
+
+    public Lease<ElasticLoadBalancingV2Client> elb(String region) {
+        return elb(region, defaultCredentials);
+    }
+
+    public Lease<ElasticLoadBalancingV2Client> elb(String region, AwsCredentialsProvider credentials) {
+        return acquire(ElasticLoadBalancingV2Client.class, region, credentials,
+                regionId -> ElasticLoadBalancingV2Client.builder()
+                        .region(regionId)
+                        .credentialsProvider(credentials)
+                        .overrideConfiguration(clientOverrides)
+                        .httpClient(httpClient)
+                        .build());
+    }
+
+    public Lease<Ec2AsyncClient> ec2Async(String region) {
+        return ec2Async(region, defaultCredentials);
+    }
+
+    public Lease<Ec2AsyncClient> ec2Async(String region, AwsCredentialsProvider credentials) {
+        return acquire(Ec2AsyncClient.class, region, credentials, regionId -> Ec2AsyncClient.builder()
+                .region(regionId)
+                .credentialsProvider(credentials)
+                .overrideConfiguration(asyncClientOverrides)
+                .httpClient(asyncHttpClient())
+                .build());
+    }
+
+    public Lease<RdsAsyncClient> rdsAsync(String region) {
+        return rdsAsync(region, defaultCredentials);
+    }
+
+    public Lease<RdsAsyncClient> rdsAsync(String region, AwsCredentialsProvider credentials) {
+        return acquire(RdsAsyncClient.class, region, credentials, regionId -> RdsAsyncClient.builder()
+                .region(regionId)
+                .credentialsProvider(credentials)
+                .overrideConfiguration(asyncClientOverrides)
+                .httpClient(asyncHttpClient())
+                .build());
+    }
+
+    public Lease<ElasticLoadBalancingV2AsyncClient> elbAsync(String region) {
+        return elbAsync(region, defaultCredentials);
+    }
+
+    public Lease<ElasticLoadBalancingV2AsyncClient> elbAsync(String region, AwsCredentialsProvider credentials) {
+        return acquire(ElasticLoadBalancingV2AsyncClient.class, region, credentials,
+                regionId -> ElasticLoadBalancingV2AsyncClient.builder()
+                        .region(regionId)
+                        .credentialsProvider(credentials)
+                        .overrideConfiguration(asyncClientOverrides)
+                        .httpClient(asyncHttpClient())
+                        .build());
+    }
+
+    public Stats stats() {
+        return new Stats(hits.get(), misses.get(), evictions.get(), clients.size());
+    }
+
+    @Scheduled(fixedDelayString = "${cloudcity.aws.clients.eviction-interval-ms:60000}")
+    public void evictIdleClients() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        for (ClientKey key : clients.keySet()) {
+            clients.computeIfPresent(key, (ignored, entry) -> {
+                if (entry.leases.get() > 0 || entry.lastAccess.get() >= cutoff) {
+                    return entry;
+                }
+                evictions.incrementAndGet();
+                entry.client.close();
+                return null;
+            });
+        }
+    }
+
+    @Override
+    public void destroy() {
+        clients.values().forEach(entry -> entry.client.close());
+        clients.clear();
+        httpClient.close();
+        if (asyncHttpClient != null) {
+            asyncHttpClient.close();
+        }
+    }
+
+    // Built on first use so the sync client mode never starts Netty event loop threads.
+    private SdkAsyncHttpClient asyncHttpClient() {
+        SdkAsyncHttpClient client = asyncHttpClient;
+        if (client == null) {
+            synchronized (this) {
+                client = asyncHttpClient;
+                if (client == null) {
+                    client = NettyNioAsyncHttpClient.builder()
+                            .maxConcurrency(maxConnections)
+                            .connectionMaxIdleTime(Duration.ofSeconds(60))
+                            .build();
+                    asyncHttpClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    private <T extends SdkAutoCloseable> Lease<T> acquire(Class<T> type,
+                                                           String region,
+                                                           AwsCredentialsProvider credentials,
+                                                           Function<Region, T> factory) {
+        ClientKey key = new ClientKey(type, region, credentials);
+        // compute() keeps the lease increment atomic with lookup so eviction never closes a client in use.
+        Entry entry = clients.compute(key, (ignored, existing) -> {
+            Entry current = existing;
+            if (current == null) {
+                misses.incrementAndGet();
+                current = new Entry(factory.apply(Region.of(region)));
+            } else {
+                hits.incrementAndGet();
+            }
+            current.leases.incrementAndGet();
+            current.lastAccess.set(System.currentTimeMillis());
+            return current;
+        });
+        return new Lease<>(type.cast(entry.client), entry);
+    }
+
+    public static final class Lease<T> implements AutoCloseable {
+        private final T client;
+        private final Entry entry;
+
+        private Lease(T client, Entry entry) {
+            this.client = client;
+            this.entry = entry;
+        }
+
+        public T client() {
+            return client;
+        }
+
+        @Override
+        public void close() {
+            entry.lastAccess.set(System.currentTimeMillis());
+            entry.leases.decrementAndGet();
+        }
+    }
+
+    public record Stats(long hits, long misses, long evictions, int liveClients) {
+    }
+
+    private record ClientKey(Class<?> type, String region, AwsCredentialsProvider credentials) {
+    }
+
+    private static final class Entry {
+        private final SdkAutoCloseable client;
+        private final AtomicInteger leases = new AtomicInteger();
+        private final AtomicLong lastAccess = new AtomicLong();
+
+        private Entry(SdkAutoCloseable client) {
+            this.client = client;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.cloudcity.platform.infrastructure.aws;
+
+import com.cloudcity.platform.domain.ResourceType;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// The built-in collectors, each backed by one AwsDiscoveryClient listing.
+@Configuration
+public class AwsCollectors {
+    @Bean
+    public AwsResourceCollector vpcCollector(AwsDiscoveryClient client) {
+        return new ClientCollector(ResourceType.VPC, null, resource -> null, client::listVpc);
+    }
+
+    @Bean
+    public AwsResourceCollector subnetCollector(AwsDiscoveryClient client) {
+        return new ClientCollector(ResourceType.SUBNET, ResourceType.VPC, AwsDiscoveredResource::getVpcId,
+                client::listSubnets);
+    }
+
+    @Bean
+    public AwsResourceCollector securityGroupCollector(AwsDiscoveryClient client) {
+        return new ClientCollector(ResourceType.SG, ResourceType.VPC, AwsDiscoveredResource::getVpcId,
+                client::listSecurityGroups);
+    }
+
+    @Bean
+    public AwsResourceCollector instanceCollector(AwsDiscoveryClient client) {
+        return new ClientCollector(ResourceType.EC2, ResourceType.SUBNET, AwsDiscoveredResource::getSubnetId,
+                client::listInstances);
+    }
+
+    @Bean
+    public AwsResourceCollector loadBalancerCollector(AwsDiscoveryClient client) {
+        return new ClientCollector(ResourceType.ELB, ResourceType.SUBNET, AwsDiscoveredResource::getSubnetId,
+                client::listLoadBalancers);
+    }
+
+    @Bean
+    public AwsResourceCollector rdsCollector(AwsDiscoveryClient client) {
+        return new ClientCollector(ResourceType.RDS, ResourceType.SUBNET, AwsDiscoveredResource::getSubnetId,
+                client::listRdsInstances);
+    }
+
+    private record ClientCollector(ResourceType type,
+                                   ResourceType parentType,
+                                   Function<AwsDiscoveredResource, String> parentIds,
+                                   BiConsumer<AwsDiscoveryContext, Consumer<List<AwsDiscoveredResource>>> listing)
+            implements AwsResourceCollector {
+        @Override
+        public String parentId(AwsDiscoveredResource resource) {
+            return parentIds.apply(resource);
+        }
+
+        @Override
+        public void collect(AwsDiscoveryContext context, Consumer<List<AwsDiscoveredResource>> pageConsumer) {
+            listing.accept(context, pageConsumer);
+        }
+    }
+}
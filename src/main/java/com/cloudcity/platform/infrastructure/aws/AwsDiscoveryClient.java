@@ -1,17 +1,19 @@
 package com.cloudcity.platform.infrastructure.aws;
 
 import java.util.List;
+import java.util.function.Consumer;
 
+// Each call blocks until the last page has been handed to the consumer; pages are never buffered whole.
 public interface AwsDiscoveryClient {
-    List<AwsDiscoveredResource> listVpc(String region);
+    void listVpc(AwsDiscoveryContext context, Consumer<List<AwsDiscoveredResource>> pageConsumer);
 
-    List<AwsDiscoveredResource> listSubnets(String region);
+    void listSubnets(AwsDiscoveryContext context, Consumer<List<AwsDiscoveredResource>> pageConsumer);
 
-    List<AwsDiscoveredResource> listInstances(String region);
+    void listInstances(AwsDiscoveryContext context, Consumer<List<AwsDiscoveredResource>> pageConsumer);
 
-    List<AwsDiscoveredResource> listSecurityGroups(String region);
+    void listSecurityGroups(AwsDiscoveryContext context, Consumer<List<AwsDiscoveredResource>> pageConsumer);
 
-    List<AwsDiscoveredResource> listLoadBalancers(String region);
+    void listLoadBalancers(AwsDiscoveryContext context, Consumer<List<AwsDiscoveredResource>> pageConsumer);
 
-    List<AwsDiscoveredResource> listRdsInstances(String region);
+    void listRdsInstances(AwsDiscoveryContext context, Consumer<List<AwsDiscoveredResource>> pageConsumer);
 }
@@ -0,0 +1,7 @@
+package com.cloudcity.platform.infrastructure.aws;
+
+public record AwsDiscoveryContext(AwsAccount account, String region, AwsCallStats stats, AwsCallDeadline deadline) {
+    public String accountId() {
+        return account == null ? null : account.accountId();
+    }
+}
@@ -0,0 +1,263 @@
+package com.cloudcity.platform.infrastructure.aws;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.awscore.AwsExecutionAttribute;
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.core.retry.RetryPolicyContext;
+import software.amazon.awssdk.core.retry.RetryUtils;
+import software.amazon.awssdk.core.retry.conditions.RetryCondition;
+import software.amazon.awssdk.core.retry.conditions.TokenBucketExceptionCostFunction;
+import software.amazon.awssdk.core.retry.conditions.TokenBucketRetryCondition;
+import software.amazon.awssdk.regions.Region;
+
+// Paces AWS calls per account, region and API with token buckets whose rate adapts to throttling:
+// each success adds a little rate, each throttle halves it (AIMD). Retries of every client draw
+// from one shared budget, so a throttling storm cannot turn into a retry storm. Sync clients wait for
+// their token inside the SDK; async clients must never block an event loop thread there, so their
+// callers wait for capacity up front and the SDK only takes the token.
+@Component
+public class AwsRateLimiter {
+    public static final ExecutionAttribute<AwsDiscoveryContext> DISCOVERY_CONTEXT =
+            new ExecutionAttribute<>("CloudCityDiscoveryContext");
+    private static final ExecutionAttribute<String> API = new ExecutionAttribute<>("CloudCityRateLimitApi");
+
+    private final double initialRate;
+    private final double minRate;
+    private final double maxRate;
+    private final double increase;
+    private final double decreaseFactor;
+    private final double burst;
+    private final int maxRetries;
+    private final TokenBucketRetryCondition retryBudget;
+    private final Map<LimiterKey, AdaptiveBucket> buckets = new ConcurrentHashMap<>();
+
+    public AwsRateLimiter(@Value("${cloudcity.aws.rate-limit.initial-rate:10}") double initialRate,
+                          @Value("${cloudcity.aws.rate-limit.min-rate:1}") double minRate,
+                          @Value("${cloudcity.aws.rate-limit.max-rate:50}") double maxRate,
+                          @Value("${cloudcity.aws.rate-limit.increase:0.5}") double increase,
+                          @Value("${cloudcity.aws.rate-limit.decrease-factor:0.5}") double decreaseFactor,
+                          @Value("${cloudcity.aws.rate-limit.burst:10}") double burst,
+                          @Value("${cloudcity.aws.retry.max-retries:5}") int maxRetries,
+                          @Value("${cloudcity.aws.retry.budget:500}") int retryBudget) {
+        this.minRate = Math.max(0.1, minRate);
+        this.maxRate = Math.max(this.minRate, maxRate);
+        this.initialRate = Math.min(this.maxRate, Math.max(this.minRate, initialRate));
+        this.increase = increase;
+        this.decreaseFactor = decreaseFactor;
+        this.burst = Math.max(1, burst);
+        this.maxRetries = maxRetries;
+        this.retryBudget = TokenBucketRetryCondition.builder()
+                .tokenBucketSize(retryBudget)
+                .exceptionCostFunction(TokenBucketExceptionCostFunction.builder()
+                        .throttlingExceptionCost(5)
+                        .defaultExceptionCost(5)
+                        .build())
+                .build();
+    }
+
+    public ClientOverrideConfiguration clientOverrides() {
+        return clientOverrides(true);
+    }
+
+    public ClientOverrideConfiguration asyncClientOverrides() {
+        return clientOverrides(false);
+    }
+
+    private ClientOverrideConfiguration clientOverrides(boolean blocking) {
+        return ClientOverrideConfiguration.builder()
+                .addExecutionInterceptor(new RateLimitInterceptor(blocking))
+                .retryPolicy(RetryPolicy.builder()
+                        .numRetries(maxRetries)
+                        .retryCondition(new ThrottleAwareRetryCondition())
+                        .retryCapacityCondition(retryBudget)
+                        .build())
+                .build();
+    }
+
+    // The api-call timeout covers retries and rate-limit waits, so no call outlives its run's deadline.
+    public AwsRequestOverrideConfiguration requestOverrides(AwsDiscoveryContext context) {
+        context.deadline().check();
+        return AwsRequestOverrideConfiguration.builder()
+                .putExecutionAttribute(DISCOVERY_CONTEXT, context)
+                .apiCallTimeout(context.deadline().remaining())
+                .build();
+    }
+
+    // Async requests name their API up front so the caller's wait and the SDK's take hit the same bucket.
+    public AwsRequestOverrideConfiguration requestOverrides(AwsDiscoveryContext context, String api) {
+        return requestOverrides(context).toBuilder()
+                .putExecutionAttribute(API, api)
+                .build();
+    }
+
+    public int retryBudgetRemaining() {
+        return retryBudget.tokensAvailable();
+    }
+
+    // Blocks until the bucket grants a call and returns how long that took.
+    public long acquire(String accountId, String region, String api) {
+        long waitNanos = bucket(new LimiterKey(accountId, region, api)).reserve();
+        if (waitNanos > 0) {
+            sleep(waitNanos);
+        }
+        return waitNanos;
+    }
+
+    private static void sleep(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw SdkClientException.create("Interrupted while waiting for AWS rate limit");
+        }
+    }
+
+    // Blocks until the bucket has a token to spare without taking it; the request itself takes it.
+    public void awaitCapacity(AwsDiscoveryContext context, String api) {
+        AdaptiveBucket bucket = bucket(new LimiterKey(accountOf(context), context.region(), api));
+        long waited = 0;
+        long waitNanos;
+        while ((waitNanos = bucket.delay()) > 0) {
+            context.deadline().check();
+            sleep(waitNanos);
+            waited += waitNanos;
+        }
+        if (waited > 0) {
+            context.stats().recordWait(waited);
+        }
+    }
+
+    public void onSuccess(String accountId, String region, String api) {
+        bucket(new LimiterKey(accountId, region, api)).increase();
+    }
+
+    public void onThrottle(String accountId, String region, String api) {
+        bucket(new LimiterKey(accountId, region, api)).decrease();
+    }
+
+    private AdaptiveBucket bucket(LimiterKey key) {
+        return buckets.computeIfAbsent(key, ignored -> new AdaptiveBucket());
+    }
+
+    private static String accountOf(ExecutionAttributes attributes) {
+        return accountOf(attributes.getAttribute(DISCOVERY_CONTEXT));
+    }
+
+    private static String accountOf(AwsDiscoveryContext context) {
+        return context == null || context.accountId() == null ? "default" : context.accountId();
+    }
+
+    private static String regionOf(ExecutionAttributes attributes) {
+        Region region = attributes.getAttribute(AwsExecutionAttribute.AWS_REGION);
+        return region == null ? "global" : region.id();
+    }
+
+    private static String apiOf(ExecutionAttributes attributes) {
+        String api = attributes.getAttribute(API);
+        if (api != null) {
+            return api;
+        }
+        return attributes.getAttribute(SdkExecutionAttribute.SERVICE_NAME)
+                + ":" + attributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+    }
+
+    private final class RateLimitInterceptor implements ExecutionInterceptor {
+        private final boolean blocking;
+
+        private RateLimitInterceptor(boolean blocking) {
+            this.blocking = blocking;
+        }
+
+        // Runs before every attempt, retries included. Without blocking a retry still takes its token,
+        // and the debt is waited off by the caller's next awaitCapacity.
+        @Override
+        public void beforeTransmission(Context.BeforeTransmission context, ExecutionAttributes attributes) {
+            AwsDiscoveryContext discovery = attributes.getAttribute(DISCOVERY_CONTEXT);
+            if (discovery != null) {
+                discovery.deadline().check();
+            }
+            if (!blocking) {
+                bucket(new LimiterKey(accountOf(attributes), regionOf(attributes), apiOf(attributes))).reserve();
+                return;
+            }
+            long waited = acquire(accountOf(attributes), regionOf(attributes), apiOf(attributes));
+            if (discovery != null && waited > 0) {
+                discovery.stats().recordWait(waited);
+            }
+        }
+
+        @Override
+        public void afterExecution(Context.AfterExecution context, ExecutionAttributes attributes) {
+            onSuccess(accountOf(attributes), regionOf(attributes), apiOf(attributes));
+        }
+    }
+
+    private final class ThrottleAwareRetryCondition implements RetryCondition {
+        private final RetryCondition delegate = RetryCondition.defaultRetryCondition();
+
+        @Override
+        public boolean shouldRetry(RetryPolicyContext context) {
+            if (RetryUtils.isThrottlingException(context.exception())) {
+                ExecutionAttributes attributes = context.executionAttributes();
+                onThrottle(accountOf(attributes), regionOf(attributes), apiOf(attributes));
+                AwsDiscoveryContext discovery = attributes.getAttribute(DISCOVERY_CONTEXT);
+                if (discovery != null) {
+                    discovery.stats().recordThrottle();
+                }
+            }
+            return delegate.shouldRetry(context);
+        }
+    }
+
+    private final class AdaptiveBucket {
+        private double rate = initialRate;
+        private double tokens = burst;
+        private long lastRefill = System.nanoTime();
+
+        // Reservations may drive the balance negative; the caller then sleeps off its share of the debt.
+        private synchronized long reserve() {
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (now - lastRefill) / 1_000_000_000.0 * rate);
+            lastRefill = now;
+            tokens -= 1;
+            if (tokens >= 0) {
+                return 0;
+            }
+            return (long) (-tokens / rate * 1_000_000_000L);
+        }
+
+        // How long until a token is free, without taking it.
+        private synchronized long delay() {
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (now - lastRefill) / 1_000_000_000.0 * rate);
+            lastRefill = now;
+            if (tokens >= 1) {
+                return 0;
+            }
+            return (long) ((1 - tokens) / rate * 1_000_000_000L);
+        }
+
+        private synchronized void increase() {
+            rate = Math.min(maxRate, rate + increase);
+        }
+
+        private synchronized void decrease() {
+            rate = Math.max(minRate, rate * decreaseFactor);
+        }
+    }
+
+    private record LimiterKey(String accountId, String region, String api) {
+    }
+}
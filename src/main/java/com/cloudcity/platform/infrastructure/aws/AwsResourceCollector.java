@@ -0,0 +1,20 @@
+package com.cloudcity.platform.infrastructure.aws;
+
+import com.cloudcity.platform.domain.ResourceType;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Lists one resource type. A collector names the type that contains its resources (null for roots)
+// and picks each resource's parent AWS id; discovery only starts it once that parent type has been
+// collected, and collectors whose parents are done run in parallel. New types are added by
+// registering another collector bean.
+public interface AwsResourceCollector {
+    ResourceType type();
+
+    ResourceType parentType();
+
+    String parentId(AwsDiscoveredResource resource);
+
+    // Blocks until the last page has been handed to the consumer.
+    void collect(AwsDiscoveryContext context, Consumer<List<AwsDiscoveredResource>> pageConsumer);
+}
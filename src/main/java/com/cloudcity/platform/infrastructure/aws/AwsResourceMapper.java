@@ -0,0 +1,132 @@
+package com.cloudcity.platform.infrastructure.aws;
+
+import java.util.ArrayList;
+import java.util.List;
+import software.amazon.awssdk.services.ec2.model.DescribeInstancesResponse;
+import software.amazon.awssdk.services.ec2.model.DescribeSecurityGroupsResponse;
+import software.amazon.awssdk.services.ec2.model.DescribeSubnetsResponse;
+import software.amazon.awssdk.services.ec2.model.DescribeVpcsResponse;
+import software.amazon.awssdk.services.ec2.model.Instance;
+import software.amazon.awssdk.services.ec2.model.SecurityGroup;
+import software.amazon.awssdk.services.ec2.model.Subnet;
+import software.amazon.awssdk.services.ec2.model.Tag;
+import software.amazon.awssdk.services.ec2.model.Vpc;
+import software.amazon.awssdk.services.elasticloadbalancingv2.model.DescribeLoadBalancersResponse;
+import software.amazon.awssdk.services.elasticloadbalancingv2.model.LoadBalancer;
+import software.amazon.awssdk.services.rds.model.DBInstance;
+import software.amazon.awssdk.services.rds.model.DescribeDbInstancesResponse;
+
+final class AwsResourceMapper {
+    private AwsResourceMapper() {
+    }
+
+    static int ec2PageSize(int pageSize) {
+        return Math.max(5, Math.min(pageSize, 1000));
+    }
+
+    static int elbPageSize(int pageSize) {
+        return Math.min(pageSize, 400);
+    }
+
+    static int rdsPageSize(int pageSize) {
+        return Math.max(20, Math.min(pageSize, 100));
+    }
+
+    static List<AwsDiscoveredResource> vpcs(DescribeVpcsResponse page, String region) {
+        List<AwsDiscoveredResource> results = new ArrayList<>(page.vpcs().size());
+        for (Vpc vpc : page.vpcs()) {
+            results.add(new AwsDiscoveredResource(vpc.vpcId(), extractName(vpc.tags(), "vpc"), region, null, null));
+        }
+        return results;
+    }
+
+    static List<AwsDiscoveredResource> subnets(DescribeSubnetsResponse page, String region) {
+        List<AwsDiscoveredResource> results = new ArrayList<>(page.subnets().size());
+        for (Subnet subnet : page.subnets()) {
+            results.add(new AwsDiscoveredResource(
+                    subnet.subnetId(),
+                    extractName(subnet.tags(), "subnet"),
+                    region,
+                    subnet.vpcId(),
+                    null
+            ));
+        }
+        return results;
+    }
+
+    static List<AwsDiscoveredResource> instances(DescribeInstancesResponse page, String region) {
+        List<AwsDiscoveredResource> results = new ArrayList<>();
+        for (var reservation : page.reservations()) {
+            for (Instance instance : reservation.instances()) {
+                results.add(new AwsDiscoveredResource(
+                        instance.instanceId(),
+                        extractName(instance.tags(), "ec2"),
+                        region,
+                        instance.vpcId(),
+                        instance.subnetId()
+                ));
+            }
+        }
+        return results;
+    }
+
+    static List<AwsDiscoveredResource> securityGroups(DescribeSecurityGroupsResponse page, String region) {
+        List<AwsDiscoveredResource> results = new ArrayList<>(page.securityGroups().size());
+        for (SecurityGroup sg : page.securityGroups()) {
+            results.add(new AwsDiscoveredResource(
+                    sg.groupId(),
+                    sg.groupName(),
+                    region,
+                    sg.vpcId(),
+                    null
+            ));
+        }
+        return results;
+    }
+
+    static List<AwsDiscoveredResource> loadBalancers(DescribeLoadBalancersResponse page, String region) {
+        List<AwsDiscoveredResource> results = new ArrayList<>(page.loadBalancers().size());
+        for (LoadBalancer lb : page.loadBalancers()) {
+            String subnetId = lb.availabilityZones().isEmpty()
+                    ? null
+                    : lb.availabilityZones().get(0).subnetId();
+            results.add(new AwsDiscoveredResource(
+                    lb.loadBalancerArn(),
+                    lb.loadBalancerName(),
+                    region,
+                    lb.vpcId(),
+                    subnetId
+            ));
+        }
+        return results;
+    }
+
+    static List<AwsDiscoveredResource> rdsInstances(DescribeDbInstancesResponse page, String region) {
+        List<AwsDiscoveredResource> results = new ArrayList<>(page.dbInstances().size());
+        for (DBInstance db : page.dbInstances()) {
+            String subnetId = db.dbSubnetGroup() == null || db.dbSubnetGroup().subnets().isEmpty()
+                    ? null
+                    : db.dbSubnetGroup().subnets().get(0).subnetIdentifier();
+            results.add(new AwsDiscoveredResource(
+                    db.dbInstanceIdentifier(),
+                    db.dbInstanceIdentifier(),
+                    region,
+                    db.dbSubnetGroup() == null ? null : db.dbSubnetGroup().vpcId(),
+                    subnetId
+            ));
+        }
+        return results;
+    }
+
+    private static String extractName(List<Tag> tags, String fallbackPrefix) {
+        if (tags == null || tags.isEmpty()) {
+            return fallbackPrefix;
+        }
+        for (Tag tag : tags) {
+            if ("Name".equalsIgnoreCase(tag.key()) && tag.value() != null && !tag.value().isBlank()) {
+                return tag.value();
+            }
+        }
+        return fallbackPrefix;
+    }
+}
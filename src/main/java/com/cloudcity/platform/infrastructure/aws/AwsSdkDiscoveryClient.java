@@ -1,145 +1,127 @@
 package com.cloudcity.platform.infrastructure.aws;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
-import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.services.ec2.Ec2Client;
 import software.amazon.awssdk.services.ec2.model.DescribeInstancesRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeInstancesResponse;
+import software.amazon.awssdk.services.ec2.model.DescribeSecurityGroupsRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeSecurityGroupsResponse;
 import software.amazon.awssdk.services.ec2.model.DescribeSubnetsRequest;
+import software.amazon.awssdk.services.ec2.model.DescribeSubnetsResponse;
 import software.amazon.awssdk.services.ec2.model.DescribeVpcsRequest;
-import software.amazon.awssdk.services.ec2.model.Instance;
-import software.amazon.awssdk.services.ec2.model.SecurityGroup;
-import software.amazon.awssdk.services.ec2.model.Subnet;
-import software.amazon.awssdk.services.ec2.model.Tag;
-import software.amazon.awssdk.services.ec2.model.Vpc;
+import software.amazon.awssdk.services.ec2.model.DescribeVpcsResponse;
 import software.amazon.awssdk.services.rds.RdsClient;
-import software.amazon.awssdk.services.rds.model.DBInstance;
 import software.amazon.awssdk.services.rds.model.DescribeDbInstancesRequest;
+import software.amazon.awssdk.services.rds.model.DescribeDbInstancesResponse;
 import software.amazon.awssdk.services.elasticloadbalancingv2.ElasticLoadBalancingV2Client;
 import software.amazon.awssdk.services.elasticloadbalancingv2.model.DescribeLoadBalancersRequest;
-import software.amazon.awssdk.services.elasticloadbalancingv2.model.LoadBalancer;
+import software.amazon.awssdk.services.elasticloadbalancingv2.model.DescribeLoadBalancersResponse;
 
 @Component
 @Profile("!stub-aws")
+@ConditionalOnProperty(name = "cloudcity.aws.client-mode", havingValue = "sync", matchIfMissing = true)
 public class AwsSdkDiscoveryClient implements AwsDiscoveryClient {
+    private final AwsClientRegistry clientRegistry;
+    private final AwsRateLimiter rateLimiter;
+    private final AwsAssumeRoleCredentials assumeRoleCredentials;
+    private final int pageSize;
+
+    public AwsSdkDiscoveryClient(AwsClientRegistry clientRegistry,
+                                 AwsRateLimiter rateLimiter,
+                                 AwsAssumeRoleCredentials assumeRoleCredentials,
+                                 @Value("${cloudcity.discovery.page-size:500}") int pageSize) {
+        this.clientRegistry = clientRegistry;
+        this.rateLimiter = rateLimiter;
+        this.assumeRoleCredentials = assumeRoleCredentials;
+        this.pageSize = pageSize;
+    }
+
     @Override
-    public List<AwsDiscoveredResource> listVpc(String region) {
-        try (Ec2Client client = Ec2Client.builder().region(Region.of(region)).build()) {
-            List<AwsDiscoveredResource> results = new ArrayList<>();
-            for (Vpc vpc : client.describeVpcs(DescribeVpcsRequest.builder().build()).vpcs()) {
-                results.add(new AwsDiscoveredResource(vpc.vpcId(), extractName(vpc.tags(), "vpc"), region, null, null));
+    public void listVpc(AwsDiscoveryContext context, Consumer<List<AwsDiscoveredResource>> pageConsumer) {
+        try (AwsClientRegistry.Lease<Ec2Client> lease = clientRegistry.ec2(context.region(), credentials(context))) {
+            DescribeVpcsRequest request = DescribeVpcsRequest.builder()
+                    .maxResults(AwsResourceMapper.ec2PageSize(pageSize))
+                    .overrideConfiguration(rateLimiter.requestOverrides(context))
+                    .build();
+            for (DescribeVpcsResponse page : lease.client().describeVpcsPaginator(request)) {
+                pageConsumer.accept(AwsResourceMapper.vpcs(page, context.region()));
             }
-            return results;
         }
     }
 
     @Override
-    public List<AwsDiscoveredResource> listSubnets(String region) {
-        try (Ec2Client client = Ec2Client.builder().region(Region.of(region)).build()) {
-            List<AwsDiscoveredResource> results = new ArrayList<>();
-            for (Subnet subnet : client.describeSubnets(DescribeSubnetsRequest.builder().build()).subnets()) {
-                results.add(new AwsDiscoveredResource(
-                        subnet.subnetId(),
-                        extractName(subnet.tags(), "subnet"),
-                        region,
-                        subnet.vpcId(),
-                        null
-                ));
+    public void listSubnets(AwsDiscoveryContext context, Consumer<List<AwsDiscoveredResource>> pageConsumer) {
+        try (AwsClientRegistry.Lease<Ec2Client> lease = clientRegistry.ec2(context.region(), credentials(context))) {
+            DescribeSubnetsRequest request = DescribeSubnetsRequest.builder()
+                    .maxResults(AwsResourceMapper.ec2PageSize(pageSize))
+                    .overrideConfiguration(rateLimiter.requestOverrides(context))
+                    .build();
+            for (DescribeSubnetsResponse page : lease.client().describeSubnetsPaginator(request)) {
+                pageConsumer.accept(AwsResourceMapper.subnets(page, context.region()));
             }
-            return results;
         }
     }
 
     @Override
-    public List<AwsDiscoveredResource> listInstances(String region) {
-        try (Ec2Client client = Ec2Client.builder().region(Region.of(region)).build()) {
-            List<AwsDiscoveredResource> results = new ArrayList<>();
-            for (var reservation : client.describeInstances(DescribeInstancesRequest.builder().build()).reservations()) {
-                for (Instance instance : reservation.instances()) {
-                    results.add(new AwsDiscoveredResource(
-                            instance.instanceId(),
-                            extractName(instance.tags(), "ec2"),
-                            region,
-                            instance.vpcId(),
-                            instance.subnetId()
-                    ));
-                }
+    public void listInstances(AwsDiscoveryContext context, Consumer<List<AwsDiscoveredResource>> pageConsumer) {
+        try (AwsClientRegistry.Lease<Ec2Client> lease = clientRegistry.ec2(context.region(), credentials(context))) {
+            DescribeInstancesRequest request = DescribeInstancesRequest.builder()
+                    .maxResults(AwsResourceMapper.ec2PageSize(pageSize))
+                    .overrideConfiguration(rateLimiter.requestOverrides(context))
+                    .build();
+            for (DescribeInstancesResponse page : lease.client().describeInstancesPaginator(request)) {
+                pageConsumer.accept(AwsResourceMapper.instances(page, context.region()));
             }
-            return results;
         }
     }
 
     @Override
-    public List<AwsDiscoveredResource> listSecurityGroups(String region) {
-        try (Ec2Client client = Ec2Client.builder().region(Region.of(region)).build()) {
-            List<AwsDiscoveredResource> results = new ArrayList<>();
-            for (SecurityGroup sg : client.describeSecurityGroups().securityGroups()) {
-                results.add(new AwsDiscoveredResource(
-                        sg.groupId(),
-                        sg.groupName(),
-                        region,
-                        sg.vpcId(),
-                        null
-                ));
+    public void listSecurityGroups(AwsDiscoveryContext context, Consumer<List<AwsDiscoveredResource>> pageConsumer) {
+        try (AwsClientRegistry.Lease<Ec2Client> lease = clientRegistry.ec2(context.region(), credentials(context))) {
+            DescribeSecurityGroupsRequest request = DescribeSecurityGroupsRequest.builder()
+                    .maxResults(AwsResourceMapper.ec2PageSize(pageSize))
+                    .overrideConfiguration(rateLimiter.requestOverrides(context))
+                    .build();
+            for (DescribeSecurityGroupsResponse page : lease.client().describeSecurityGroupsPaginator(request)) {
+                pageConsumer.accept(AwsResourceMapper.securityGroups(page, context.region()));
             }
-            return results;
         }
     }
 
     @Override
-    public List<AwsDiscoveredResource> listLoadBalancers(String region) {
-        try (ElasticLoadBalancingV2Client client = ElasticLoadBalancingV2Client.builder()
-                .region(Region.of(region))
-                .build()) {
-            List<AwsDiscoveredResource> results = new ArrayList<>();
-            for (LoadBalancer lb : client.describeLoadBalancers(DescribeLoadBalancersRequest.builder().build())
-                    .loadBalancers()) {
-                String subnetId = lb.availabilityZones().isEmpty()
-                        ? null
-                        : lb.availabilityZones().get(0).subnetId();
-                results.add(new AwsDiscoveredResource(
-                        lb.loadBalancerArn(),
-                        lb.loadBalancerName(),
-                        region,
-                        lb.vpcId(),
-                        subnetId
-                ));
+    public void listLoadBalancers(AwsDiscoveryContext context, Consumer<List<AwsDiscoveredResource>> pageConsumer) {
+        try (AwsClientRegistry.Lease<ElasticLoadBalancingV2Client> lease =
+                     clientRegistry.elb(context.region(), credentials(context))) {
+            DescribeLoadBalancersRequest request = DescribeLoadBalancersRequest.builder()
+                    .pageSize(AwsResourceMapper.elbPageSize(pageSize))
+                    .overrideConfiguration(rateLimiter.requestOverrides(context))
+                    .build();
+            for (DescribeLoadBalancersResponse page : lease.client().describeLoadBalancersPaginator(request)) {
+                pageConsumer.accept(AwsResourceMapper.loadBalancers(page, context.region()));
             }
-            return results;
         }
     }
 
     @Override
-    public List<AwsDiscoveredResource> listRdsInstances(String region) {
-        try (RdsClient client = RdsClient.builder().region(Region.of(region)).build()) {
-            List<AwsDiscoveredResource> results = new ArrayList<>();
-            for (DBInstance db : client.describeDBInstances(DescribeDbInstancesRequest.builder().build()).dbInstances()) {
-                String subnetId = db.dbSubnetGroup() == null || db.dbSubnetGroup().subnets().isEmpty()
-                        ? null
-                        : db.dbSubnetGroup().subnets().get(0).subnetIdentifier();
-                results.add(new AwsDiscoveredResource(
-                        db.dbInstanceIdentifier(),
-                        db.dbInstanceIdentifier(),
-                        region,
-                        db.dbSubnetGroup() == null ? null : db.dbSubnetGroup().vpcId(),
-                        subnetId
-                ));
+    public void listRdsInstances(AwsDiscoveryContext context, Consumer<List<AwsDiscoveredResource>> pageConsumer) {
+        try (AwsClientRegistry.Lease<RdsClient> lease = clientRegistry.rds(context.region(), credentials(context))) {
+            DescribeDbInstancesRequest request = DescribeDbInstancesRequest.builder()
+                    .maxRecords(AwsResourceMapper.rdsPageSize(pageSize))
+                    .overrideConfiguration(rateLimiter.requestOverrides(context))
+                    .build();
+            for (DescribeDbInstancesResponse page : lease.client().describeDBInstancesPaginator(request)) {
+                pageConsumer.accept(AwsResourceMapper.rdsInstances(page, context.region()));
             }
-            return results;
         }
     }
 
-    private String extractName(List<Tag> tags, String fallbackPrefix) {
-        if (tags == null || tags.isEmpty()) {
-            return fallbackPrefix;
-        }
-        for (Tag tag : tags) {
-            if ("Name".equalsIgnoreCase(tag.key()) && tag.value() != null && !tag.value().isBlank()) {
-                return tag.value();
-            }
-        }
-        return fallbackPrefix;
+    private AwsCredentialsProvider credentials(AwsDiscoveryContext context) {
+        return assumeRoleCredentials.forAccount(context.account());
     }
 }
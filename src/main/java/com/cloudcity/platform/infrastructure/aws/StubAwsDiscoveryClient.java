@@ -1,42 +1,178 @@
 package com.cloudcity.platform.infrastructure.aws;
 
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
+// Serves the small fixture account by default. With cloudcity.aws.stub.synthetic.enabled it serves a
+// generated large account instead, so discovery and graph work can be measured without AWS. Page
+// latency and throttling can be injected in either mode; both are seeded and reproducible.
 @Component
 @Profile("stub-aws")
 public class StubAwsDiscoveryClient implements AwsDiscoveryClient {
+    private final int pageSize;
+    private final boolean synthetic;
+    private final int vpcsPerRegion;
+    private final int subnetsPerVpc;
+    private final int instancesPerSubnet;
+    private final int securityGroupsPerVpc;
+    private final int loadBalancersPerVpc;
+    private final int rdsPerVpc;
+    private final long latencyMillis;
+    private final double throttleRate;
+    private final long throttleBackoffMillis;
+    private final long seed;
+
+    public StubAwsDiscoveryClient(
+            @Value("${cloudcity.discovery.page-size:500}") int pageSize,
+            @Value("${cloudcity.aws.stub.synthetic.enabled:false}") boolean synthetic,
+            @Value("${cloudcity.aws.stub.synthetic.vpcs-per-region:10}") int vpcsPerRegion,
+            @Value("${cloudcity.aws.stub.synthetic.subnets-per-vpc:6}") int subnetsPerVpc,
+            @Value("${cloudcity.aws.stub.synthetic.instances-per-subnet:50}") int instancesPerSubnet,
+            @Value("${cloudcity.aws.stub.synthetic.security-groups-per-vpc:20}") int securityGroupsPerVpc,
+            @Value("${cloudcity.aws.stub.synthetic.load-balancers-per-vpc:4}") int loadBalancersPerVpc,
+            @Value("${cloudcity.aws.stub.synthetic.rds-per-vpc:4}") int rdsPerVpc,
+            @Value("${cloudcity.aws.stub.latency-ms:0}") long latencyMillis,
+            @Value("${cloudcity.aws.stub.throttle-rate:0}") double throttleRate,
+            @Value("${cloudcity.aws.stub.throttle-backoff-ms:100}") long throttleBackoffMillis,
+            @Value("${cloudcity.aws.stub.seed:42}") long seed) {
+        this.pageSize = Math.max(1, pageSize);
+        this.synthetic = synthetic;
+        this.vpcsPerRegion = vpcsPerRegion;
+        this.subnetsPerVpc = subnetsPerVpc;
+        this.instancesPerSubnet = instancesPerSubnet;
+        this.securityGroupsPerVpc = securityGroupsPerVpc;
+        this.loadBalancersPerVpc = loadBalancersPerVpc;
+        this.rdsPerVpc = rdsPerVpc;
+        this.latencyMillis = Math.max(0, latencyMillis);
+        this.throttleRate = Math.min(0.99, Math.max(0, throttleRate));
+        this.throttleBackoffMillis = Math.max(0, throttleBackoffMillis);
+        this.seed = seed;
+    }
+
     @Override
-    public List<AwsDiscoveredResource> listVpc(String region) {
-        return List.of(new AwsDiscoveredResource("vpc-123", "vpc-main", region, null, null));
+    public void listVpc(AwsDiscoveryContext context, Consumer<List<AwsDiscoveredResource>> pageConsumer) {
+        if (synthetic) {
+            SyntheticAwsInventory inventory = inventory(context);
+            emitPages(context, "vpc", inventory.vpcCount(), inventory::vpc, pageConsumer);
+            return;
+        }
+        emitPages(context, "vpc",
+                List.of(new AwsDiscoveredResource("vpc-123", "vpc-main", context.region(), null, null)),
+                pageConsumer);
     }
 
     @Override
-    public List<AwsDiscoveredResource> listSubnets(String region) {
-        return List.of(
-                new AwsDiscoveredResource("subnet-123", "subnet-public", region, "vpc-123", null),
-                new AwsDiscoveredResource("subnet-456", "subnet-private", region, "vpc-123", null)
-        );
+    public void listSubnets(AwsDiscoveryContext context, Consumer<List<AwsDiscoveredResource>> pageConsumer) {
+        if (synthetic) {
+            SyntheticAwsInventory inventory = inventory(context);
+            emitPages(context, "subnet", inventory.subnetCount(), inventory::subnet, pageConsumer);
+            return;
+        }
+        emitPages(context, "subnet", List.of(
+                new AwsDiscoveredResource("subnet-123", "subnet-public", context.region(), "vpc-123", null),
+                new AwsDiscoveredResource("subnet-456", "subnet-private", context.region(), "vpc-123", null)
+        ), pageConsumer);
     }
 
     @Override
-    public List<AwsDiscoveredResource> listInstances(String region) {
-        return List.of(new AwsDiscoveredResource("i-123", "app-1", region, "vpc-123", "subnet-123"));
+    public void listInstances(AwsDiscoveryContext context, Consumer<List<AwsDiscoveredResource>> pageConsumer) {
+        if (synthetic) {
+            SyntheticAwsInventory inventory = inventory(context);
+            emitPages(context, "instance", inventory.instanceCount(), inventory::instance, pageConsumer);
+            return;
+        }
+        emitPages(context, "instance",
+                List.of(new AwsDiscoveredResource("i-123", "app-1", context.region(), "vpc-123", "subnet-123")),
+                pageConsumer);
     }
 
     @Override
-    public List<AwsDiscoveredResource> listSecurityGroups(String region) {
-        return List.of(new AwsDiscoveredResource("sg-123", "sg-app", region, "vpc-123", null));
+    public void listSecurityGroups(AwsDiscoveryContext context, Consumer<List<AwsDiscoveredResource>> pageConsumer) {
+        if (synthetic) {
+            SyntheticAwsInventory inventory = inventory(context);
+            emitPages(context, "sg", inventory.securityGroupCount(), inventory::securityGroup, pageConsumer);
+            return;
+        }
+        emitPages(context, "sg",
+                List.of(new AwsDiscoveredResource("sg-123", "sg-app", context.region(), "vpc-123", null)),
+                pageConsumer);
     }
 
     @Override
-    public List<AwsDiscoveredResource> listLoadBalancers(String region) {
-        return List.of(new AwsDiscoveredResource("alb-123", "alb-app", region, "vpc-123", "subnet-123"));
+    public void listLoadBalancers(AwsDiscoveryContext context, Consumer<List<AwsDiscoveredResource>> pageConsumer) {
+        if (synthetic) {
+            SyntheticAwsInventory inventory = inventory(context);
+            emitPages(context, "elb", inventory.loadBalancerCount(), inventory::loadBalancer, pageConsumer);
+            return;
+        }
+        emitPages(context, "elb",
+                List.of(new AwsDiscoveredResource("alb-123", "alb-app", context.region(), "vpc-123", "subnet-123")),
+                pageConsumer);
     }
 
     @Override
-    public List<AwsDiscoveredResource> listRdsInstances(String region) {
-        return List.of(new AwsDiscoveredResource("rds-123", "db-main", region, "vpc-123", "subnet-123"));
+    public void listRdsInstances(AwsDiscoveryContext context, Consumer<List<AwsDiscoveredResource>> pageConsumer) {
+        if (synthetic) {
+            SyntheticAwsInventory inventory = inventory(context);
+            emitPages(context, "rds", inventory.rdsCount(), inventory::rds, pageConsumer);
+            return;
+        }
+        emitPages(context, "rds",
+                List.of(new AwsDiscoveredResource("rds-123", "db-main", context.region(), "vpc-123", "subnet-123")),
+                pageConsumer);
+    }
+
+    private SyntheticAwsInventory inventory(AwsDiscoveryContext context) {
+        return new SyntheticAwsInventory(context.region(), vpcsPerRegion, subnetsPerVpc, instancesPerSubnet,
+                securityGroupsPerVpc, loadBalancersPerVpc, rdsPerVpc);
+    }
+
+    private void emitPages(AwsDiscoveryContext context,
+                           String api,
+                           List<AwsDiscoveredResource> resources,
+                           Consumer<List<AwsDiscoveredResource>> pageConsumer) {
+        emitPages(context, api, resources.size(), resources::get, pageConsumer);
+    }
+
+    private void emitPages(AwsDiscoveryContext context,
+                           String api,
+                           int total,
+                           IntFunction<AwsDiscoveredResource> resource,
+                           Consumer<List<AwsDiscoveredResource>> pageConsumer) {
+        Random random = new Random(seed ^ (context.region() + ":" + api).hashCode());
+        for (int start = 0; start < total; start += pageSize) {
+            fetchPage(context, random);
+            pageConsumer.accept(SyntheticAwsInventory.page(start, Math.min(start + pageSize, total), resource));
+        }
+    }
+
+    // Stands in for one paginated request: latency, then throttled attempts retried after a backoff.
+    private void fetchPage(AwsDiscoveryContext context, Random random) {
+        context.deadline().check();
+        sleep(latencyMillis);
+        while (random.nextDouble() < throttleRate) {
+            context.stats().recordThrottle();
+            sleep(throttleBackoffMillis);
+            context.deadline().check();
+        }
+    }
+
+    private void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Stub listing interrupted");
+        }
     }
 }
@@ -0,0 +1,113 @@
+package com.cloudcity.platform.infrastructure.aws;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+// Deterministic large-account inventory for one region. Every resource is derived from its index,
+// so nothing is held in memory and the same settings always produce the same ids and parent links:
+// M VPCs per region, K subnets per VPC, instances per subnet, and SGs, load balancers and RDS
+// instances per VPC spread across that VPC's subnets.
+final class SyntheticAwsInventory {
+    private final String region;
+    private final String tag;
+    private final int vpcs;
+    private final int subnetsPerVpc;
+    private final int instancesPerSubnet;
+    private final int securityGroupsPerVpc;
+    private final int loadBalancersPerVpc;
+    private final int rdsPerVpc;
+
+    SyntheticAwsInventory(String region,
+                          int vpcs,
+                          int subnetsPerVpc,
+                          int instancesPerSubnet,
+                          int securityGroupsPerVpc,
+                          int loadBalancersPerVpc,
+                          int rdsPerVpc) {
+        this.region = region;
+        this.tag = String.format("%04x", region.hashCode() & 0xffff);
+        this.vpcs = Math.max(0, vpcs);
+        this.subnetsPerVpc = Math.max(1, subnetsPerVpc);
+        this.instancesPerSubnet = Math.max(0, instancesPerSubnet);
+        this.securityGroupsPerVpc = Math.max(0, securityGroupsPerVpc);
+        this.loadBalancersPerVpc = Math.max(0, loadBalancersPerVpc);
+        this.rdsPerVpc = Math.max(0, rdsPerVpc);
+    }
+
+    int vpcCount() {
+        return vpcs;
+    }
+
+    int subnetCount() {
+        return vpcs * subnetsPerVpc;
+    }
+
+    int instanceCount() {
+        return subnetCount() * instancesPerSubnet;
+    }
+
+    int securityGroupCount() {
+        return vpcs * securityGroupsPerVpc;
+    }
+
+    int loadBalancerCount() {
+        return vpcs * loadBalancersPerVpc;
+    }
+
+    int rdsCount() {
+        return vpcs * rdsPerVpc;
+    }
+
+    AwsDiscoveredResource vpc(int index) {
+        return new AwsDiscoveredResource(vpcId(index), "vpc-" + index, region, null, null);
+    }
+
+    AwsDiscoveredResource subnet(int index) {
+        return new AwsDiscoveredResource(subnetId(index), "subnet-" + index, region,
+                vpcId(index / subnetsPerVpc), null);
+    }
+
+    AwsDiscoveredResource instance(int index) {
+        int subnet = index / instancesPerSubnet;
+        return new AwsDiscoveredResource(id("i", index), "app-" + index, region,
+                vpcId(subnet / subnetsPerVpc), subnetId(subnet));
+    }
+
+    AwsDiscoveredResource securityGroup(int index) {
+        return new AwsDiscoveredResource(id("sg", index), "sg-" + index, region,
+                vpcId(index / securityGroupsPerVpc), null);
+    }
+
+    AwsDiscoveredResource loadBalancer(int index) {
+        int vpc = index / loadBalancersPerVpc;
+        return new AwsDiscoveredResource(id("alb", index), "alb-" + index, region,
+                vpcId(vpc), subnetId(vpc * subnetsPerVpc + index % subnetsPerVpc));
+    }
+
+    AwsDiscoveredResource rds(int index) {
+        int vpc = index / rdsPerVpc;
+        return new AwsDiscoveredResource(id("rds", index), "db-" + index, region,
+                vpcId(vpc), subnetId(vpc * subnetsPerVpc + index % subnetsPerVpc));
+    }
+
+    static List<AwsDiscoveredResource> page(int start, int end, IntFunction<AwsDiscoveredResource> resource) {
+        List<AwsDiscoveredResource> page = new ArrayList<>(end - start);
+        for (int index = start; index < end; index++) {
+            page.add(resource.apply(index));
+        }
+        return page;
+    }
+
+    private String vpcId(int index) {
+        return id("vpc", index);
+    }
+
+    private String subnetId(int index) {
+        return id("subnet", index);
+    }
+
+    private String id(String prefix, int index) {
+        return prefix + "-" + tag + String.format("%08x", index);
+    }
+}
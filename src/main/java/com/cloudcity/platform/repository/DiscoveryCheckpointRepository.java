@@ -0,0 +1,58 @@
+package com.cloudcity.platform.repository;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+// Checkpoints are written by region workers inside the same transaction as the rows they cover,
+// so a checkpoint exists exactly when its segment's data is durable.
+@Repository
+public class DiscoveryCheckpointRepository {
+    public static final String REGION_SEGMENT = "REGION";
+
+    private static final String INSERT = """
+            insert into discovery_checkpoints (id, discovery_run_id, account_id, region, segment, completed_at)
+            values (?, ?, ?, ?, ?, ?)
+            """;
+    private static final String SELECT_SEGMENTS = """
+            select segment from discovery_checkpoints where discovery_run_id = ? and account_id = ? and region = ?
+            """;
+    private static final String SELECT_REGIONS = """
+            select region from discovery_checkpoints where discovery_run_id = ? and account_id = ? and segment = ?
+            """;
+    private static final String DELETE_ALL = "delete from discovery_checkpoints where discovery_run_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DiscoveryCheckpointRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void markCompleted(UUID discoveryId, String accountId, String region, String segment) {
+        jdbcTemplate.update(INSERT, UUID.randomUUID(), discoveryId, accountKey(accountId), region, segment,
+                OffsetDateTime.now(ZoneOffset.UTC));
+    }
+
+    public Set<String> findCompletedSegments(UUID discoveryId, String accountId, String region) {
+        return new HashSet<>(jdbcTemplate.queryForList(SELECT_SEGMENTS, String.class,
+                discoveryId, accountKey(accountId), region));
+    }
+
+    public Set<String> findCompletedRegions(UUID discoveryId, String accountId) {
+        return new HashSet<>(jdbcTemplate.queryForList(SELECT_REGIONS, String.class,
+                discoveryId, accountKey(accountId), REGION_SEGMENT));
+    }
+
+    public void deleteAll(UUID discoveryId) {
+        jdbcTemplate.update(DELETE_ALL, discoveryId);
+    }
+
+    // account_id is part of the unique key, so an unnamed account is stored as '' rather than null.
+    private String accountKey(String accountId) {
+        return accountId == null ? "" : accountId;
+    }
+}
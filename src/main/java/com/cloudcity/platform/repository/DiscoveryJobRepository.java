@@ -0,0 +1,258 @@
+package com.cloudcity.platform.repository;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+// Lease bookkeeping for the discovery queue. All timestamps come from the database clock so
+// replicas with skewed clocks still agree on who owns a run.
+@Repository
+public class DiscoveryJobRepository {
+    private static final String SELECT_CLAIMABLE = """
+            select id, project_id
+            from discovery_runs
+            where status = 'QUEUED' and available_at <= now()
+            order by priority desc, available_at
+            limit ?
+            for update skip locked
+            """;
+    private static final String CLAIM = """
+            update discovery_runs
+            set status = 'RUNNING',
+                attempts = attempts + 1,
+                lease_owner = ?,
+                lease_expires_at = now() + cast(? as integer) * interval '1' second,
+                heartbeat_at = now(),
+                cancel_requested_at = null
+            where id = ?
+            """;
+    private static final String HEARTBEAT = """
+            update discovery_runs
+            set lease_expires_at = now() + cast(? as integer) * interval '1' second, heartbeat_at = now()
+            where id = ? and lease_owner = ? and status = 'RUNNING'
+            """;
+    // The writes of an executing run below are conditional on still owning it (%s is the owner
+    // check), so an execution whose lease expired cannot overwrite the run's next owner.
+    private static final String MARK_RUNNING = """
+            update discovery_runs
+            set status = 'RUNNING', progress = ?
+            where id = ? and status in ('QUEUED', 'RUNNING') and %s
+            """;
+    private static final String UPDATE_PROGRESS = """
+            update discovery_runs set progress = ? where id = ? and status = 'RUNNING' and %s
+            """;
+    private static final String COMPLETE = """
+            update discovery_runs
+            set status = 'COMPLETED',
+                finished_at = now(),
+                lease_owner = null,
+                lease_expires_at = null,
+                progress = 100,
+                error_message = null,
+                summary_json = cast(? as jsonb)
+            where id = ? and status = 'RUNNING' and %s
+            """;
+    private static final String FINISH = """
+            update discovery_runs
+            set status = ?,
+                finished_at = now(),
+                lease_owner = null,
+                lease_expires_at = null,
+                progress = 100,
+                error_message = ?,
+                summary_json = cast(? as jsonb)
+            where id = ? and status = 'RUNNING' and %s
+            """;
+    private static final String RETRY = """
+            update discovery_runs
+            set status = 'QUEUED',
+                lease_owner = null,
+                lease_expires_at = null,
+                available_at = now() + attempts * cast(? as integer) * interval '1' second,
+                progress = 10,
+                error_message = ?,
+                summary_json = cast(? as jsonb)
+            where id = ? and status = 'RUNNING' and %s
+            """;
+    private static final String REQUEUE_EXPIRED = """
+            update discovery_runs
+            set status = 'QUEUED',
+                lease_owner = null,
+                lease_expires_at = null,
+                available_at = now() + attempts * cast(? as integer) * interval '1' second
+            where status = 'RUNNING' and lease_expires_at < now() and attempts < ?
+            """;
+    private static final String FAIL_EXPIRED = """
+            update discovery_runs
+            set status = 'FAILED',
+                lease_owner = null,
+                lease_expires_at = null,
+                finished_at = now(),
+                progress = 100,
+                error_message = 'Lease expired after ' || attempts || ' attempts'
+            where status = 'RUNNING' and lease_expires_at < now() and attempts >= ?
+            """;
+    private static final String CANCEL_QUEUED = """
+            update discovery_runs
+            set status = 'CANCELLED', finished_at = now(), progress = 100, error_message = 'Discovery cancelled'
+            where id = ? and status = 'QUEUED'
+            """;
+    private static final String REQUEST_CANCEL = """
+            update discovery_runs
+            set cancel_requested_at = now()
+            where id = ? and status = 'RUNNING' and lease_owner is not null
+            """;
+    private static final String CANCEL_UNLEASED = """
+            update discovery_runs
+            set status = 'CANCELLED', finished_at = now(), progress = 100, error_message = 'Discovery cancelled'
+            where id = ? and status = 'RUNNING' and lease_owner is null
+            """;
+    private static final String COUNT_QUEUED = """
+            select count(*) from discovery_runs where status = 'QUEUED' and available_at is not null
+            """;
+    private static final String SELECT_QUEUE_STATS = """
+            select coalesce(sum(case when status = 'QUEUED' then 1 else 0 end), 0) as queued,
+                   coalesce(sum(case when status = 'QUEUED' and priority > 0 then 1 else 0 end), 0) as queued_priority,
+                   coalesce(sum(case when status = 'RUNNING' then 1 else 0 end), 0) as running,
+                   min(case when status = 'QUEUED' then available_at end) as oldest_queued_at
+            from discovery_runs
+            where status in ('QUEUED', 'RUNNING') and available_at is not null
+            """;
+    private static final String SELECT_CANCEL_REQUESTED = """
+            select count(*)
+            from discovery_runs
+            where id = ? and lease_owner = ? and cancel_requested_at is not null
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DiscoveryJobRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // SKIP LOCKED lets every replica claim concurrently without ever handing out the same run twice.
+    // Always its own transaction: it is also called from after-commit callbacks.
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public List<ClaimedRun> claim(String owner, int limit, Duration lease) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        List<ClaimedRun> claimed = jdbcTemplate.query(SELECT_CLAIMABLE, (rs, rowNum) -> new ClaimedRun(
+                rs.getObject("id", UUID.class),
+                rs.getObject("project_id", UUID.class)
+        ), limit);
+        if (!claimed.isEmpty()) {
+            jdbcTemplate.batchUpdate(CLAIM, claimed, claimed.size(), (statement, run) -> {
+                statement.setString(1, owner);
+                statement.setLong(2, lease.toSeconds());
+                statement.setObject(3, run.id());
+            });
+        }
+        return claimed;
+    }
+
+    // Returns the runs whose lease this owner no longer holds.
+    public List<UUID> heartbeat(Collection<UUID> runIds, String owner, Duration lease) {
+        List<UUID> lost = new ArrayList<>();
+        for (UUID runId : runIds) {
+            if (jdbcTemplate.update(HEARTBEAT, lease.toSeconds(), runId, owner) == 0) {
+                lost.add(runId);
+            }
+        }
+        return lost;
+    }
+
+    // Inline runs hold no lease and pass a null owner.
+    public boolean markRunning(UUID runId, String leaseOwner, int progress) {
+        return updateOwned(MARK_RUNNING, leaseOwner, progress, runId);
+    }
+
+    public boolean updateProgress(UUID runId, String leaseOwner, int progress) {
+        return updateOwned(UPDATE_PROGRESS, leaseOwner, progress, runId);
+    }
+
+    public boolean complete(UUID runId, String leaseOwner, String summaryJson) {
+        return updateOwned(COMPLETE, leaseOwner, summaryJson, runId);
+    }
+
+    public boolean finish(UUID runId, String leaseOwner, String status, String errorMessage, String summaryJson) {
+        return updateOwned(FINISH, leaseOwner, status, errorMessage, summaryJson, runId);
+    }
+
+    // Backs off by the attempts made so far, like runs requeued after an expired lease.
+    public boolean retry(UUID runId, String leaseOwner, Duration backoff, String errorMessage, String summaryJson) {
+        return updateOwned(RETRY, leaseOwner, backoff.toSeconds(), errorMessage, summaryJson, runId);
+    }
+
+    // Conditional on the status so a worker claiming the run at the same moment wins cleanly.
+    public boolean cancelQueued(UUID runId) {
+        return jdbcTemplate.update(CANCEL_QUEUED, runId) > 0;
+    }
+
+    // The owning worker picks the request up on its next heartbeat.
+    public boolean requestCancel(UUID runId) {
+        return jdbcTemplate.update(REQUEST_CANCEL, runId) > 0;
+    }
+
+    // Inline runs hold no lease; one that no live process is executing can only be cancelled here.
+    public boolean cancelUnleased(UUID runId) {
+        return jdbcTemplate.update(CANCEL_UNLEASED, runId) > 0;
+    }
+
+    public List<UUID> findCancelRequested(Collection<UUID> runIds, String owner) {
+        List<UUID> cancelled = new ArrayList<>();
+        for (UUID runId : runIds) {
+            Integer count = jdbcTemplate.queryForObject(SELECT_CANCEL_REQUESTED, Integer.class, runId, owner);
+            if (count != null && count > 0) {
+                cancelled.add(runId);
+            }
+        }
+        return cancelled;
+    }
+
+    // Created runs that were never executed are QUEUED without an available_at and hold no place.
+    // Backed-off retries do: they come back as much as fresh runs do.
+    public int countQueued() {
+        Integer count = jdbcTemplate.queryForObject(COUNT_QUEUED, Integer.class);
+        return count == null ? 0 : count;
+    }
+
+    public QueueStats queueStats() {
+        return jdbcTemplate.queryForObject(SELECT_QUEUE_STATS, (rs, rowNum) -> new QueueStats(
+                rs.getInt("queued"),
+                rs.getInt("queued_priority"),
+                rs.getInt("running"),
+                rs.getObject("oldest_queued_at", OffsetDateTime.class)
+        ));
+    }
+
+    @Transactional
+    public int recoverExpired(int maxAttempts, Duration retryBackoff) {
+        int requeued = jdbcTemplate.update(REQUEUE_EXPIRED, retryBackoff.toSeconds(), maxAttempts);
+        jdbcTemplate.update(FAIL_EXPIRED, maxAttempts);
+        return requeued;
+    }
+
+    private boolean updateOwned(String sql, String leaseOwner, Object... args) {
+        if (leaseOwner == null) {
+            return jdbcTemplate.update(String.format(sql, "lease_owner is null"), args) > 0;
+        }
+        Object[] ownedArgs = Arrays.copyOf(args, args.length + 1);
+        ownedArgs[args.length] = leaseOwner;
+        return jdbcTemplate.update(String.format(sql, "lease_owner = ?"), ownedArgs) > 0;
+    }
+
+    public record ClaimedRun(UUID id, UUID projectId) {
+    }
+
+    public record QueueStats(int queued, int queuedPriority, int running, OffsetDateTime oldestQueuedAt) {
+    }
+}
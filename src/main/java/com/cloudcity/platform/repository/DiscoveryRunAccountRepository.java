@@ -0,0 +1,10 @@
+package com.cloudcity.platform.repository;
+
+import com.cloudcity.platform.domain.DiscoveryRunAccount;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface DiscoveryRunAccountRepository extends JpaRepository<DiscoveryRunAccount, UUID> {
+    List<DiscoveryRunAccount> findAllByDiscoveryRunIdOrderByAccountId(UUID discoveryRunId);
+}
@@ -1,10 +1,30 @@
 package com.cloudcity.platform.repository;
 
 import com.cloudcity.platform.domain.DiscoveryRun;
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.Optional;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 public interface DiscoveryRunRepository extends JpaRepository<DiscoveryRun, UUID> {
     Optional<DiscoveryRun> findByIdAndProjectId(UUID id, UUID projectId);
+
+    Optional<StatusView> findStatusByIdAndProjectId(UUID id, UUID projectId);
+
+    boolean existsByIdAndProjectId(UUID id, UUID projectId);
+
+    // Runs that were only created have no available_at and are not active yet.
+    Optional<DiscoveryRun> findFirstByProjectIdAndStatusInAndAvailableAtIsNotNull(UUID projectId,
+                                                                                  Collection<String> statuses);
+
+    interface StatusView {
+        UUID getId();
+
+        String getStatus();
+
+        int getProgress();
+
+        OffsetDateTime getFinishedAt();
+    }
 }
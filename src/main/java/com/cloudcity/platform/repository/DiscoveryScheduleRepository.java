@@ -0,0 +1,120 @@
+package com.cloudcity.platform.repository;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntUnaryOperator;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public class DiscoveryScheduleRepository {
+    private static final String SELECT_DUE = """
+            select project_id, discovery_run_id, interval_seconds
+            from discovery_schedules
+            where next_run_at <= now()
+            order by next_run_at
+            limit ?
+            for update skip locked
+            """;
+    private static final String ADVANCE = """
+            update discovery_schedules
+            set next_run_at = now() + cast(? as integer) * interval '1' second, last_scheduled_at = now()
+            where project_id = ?
+            """;
+    private static final String RELEASE = """
+            update discovery_schedules
+            set next_run_at = now()
+            where project_id = ?
+            """;
+    private static final String COUNT_ACTIVE_RUNS = """
+            select count(*)
+            from discovery_runs
+            where status in ('QUEUED', 'RUNNING') and available_at is not null
+            """;
+    private static final String RESET_INTERVAL = """
+            update discovery_schedules
+            set discovery_run_id = ?, interval_seconds = ?
+            where project_id = ?
+            """;
+    private static final String BACK_OFF_INTERVAL = """
+            update discovery_schedules
+            set discovery_run_id = ?, interval_seconds = least(interval_seconds * 2, ?)
+            where project_id = ?
+            """;
+    private static final String INSERT = """
+            insert into discovery_schedules (project_id, discovery_run_id, interval_seconds, next_run_at)
+            values (?, ?, ?, now() + cast(? as integer) * interval '1' second)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DiscoveryScheduleRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Due rows are locked with SKIP LOCKED and moved to their next slot before the transaction ends,
+    // so concurrent replicas never hand out the same project twice in one cycle.
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public List<DueSchedule> claimDue(int limit, IntUnaryOperator nextDelaySeconds) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        List<DueSchedule> due = jdbcTemplate.query(SELECT_DUE, (rs, rowNum) -> new DueSchedule(
+                rs.getObject("project_id", UUID.class),
+                rs.getObject("discovery_run_id", UUID.class),
+                rs.getInt("interval_seconds")
+        ), limit);
+        if (!due.isEmpty()) {
+            jdbcTemplate.batchUpdate(ADVANCE, due, due.size(), (statement, schedule) -> {
+                statement.setInt(1, nextDelaySeconds.applyAsInt(schedule.intervalSeconds()));
+                statement.setObject(2, schedule.projectId());
+            });
+        }
+        return due;
+    }
+
+    // Puts a claimed project back in line for the next poll when its run could not be enqueued.
+    public void release(UUID projectId) {
+        jdbcTemplate.update(RELEASE, projectId);
+    }
+
+    public int countActiveRuns() {
+        Integer count = jdbcTemplate.queryForObject(COUNT_ACTIVE_RUNS, Integer.class);
+        return count == null ? 0 : count;
+    }
+
+    // Inventory that changed goes back to the base interval; unchanged inventory doubles it up to the cap.
+    public void recordCompletion(UUID projectId,
+                                 UUID discoveryId,
+                                 boolean changed,
+                                 int baseIntervalSeconds,
+                                 int maxIntervalSeconds,
+                                 int firstDelaySeconds) {
+        if (update(projectId, discoveryId, changed, baseIntervalSeconds, maxIntervalSeconds)) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(INSERT, projectId, discoveryId, baseIntervalSeconds, firstDelaySeconds);
+        } catch (DuplicateKeyException e) {
+            // Registered concurrently by another replica.
+            update(projectId, discoveryId, changed, baseIntervalSeconds, maxIntervalSeconds);
+        }
+    }
+
+    private boolean update(UUID projectId,
+                           UUID discoveryId,
+                           boolean changed,
+                           int baseIntervalSeconds,
+                           int maxIntervalSeconds) {
+        if (changed) {
+            return jdbcTemplate.update(RESET_INTERVAL, discoveryId, baseIntervalSeconds, projectId) > 0;
+        }
+        return jdbcTemplate.update(BACK_OFF_INTERVAL, discoveryId, maxIntervalSeconds, projectId) > 0;
+    }
+
+    public record DueSchedule(UUID projectId, UUID discoveryId, int intervalSeconds) {
+    }
+}
@@ -0,0 +1,90 @@
+package com.cloudcity.platform.repository;
+
+import com.cloudcity.platform.domain.ResourceType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+// Health checks evaluated in the database. Orphans are anti-joins probing resource_edges_from_idx
+// and resource_edges_to_idx per node; pages walk (project_id, id) so a later page costs the same as
+// the first.
+@Repository
+public class GraphHealthRepository {
+    private static final String ORPHAN = """
+            n.project_id = ? and n.type <> 'REGION'
+              and not exists (select 1 from resource_edges e where e.from_node_id = n.id)
+              and not exists (select 1 from resource_edges e where e.to_node_id = n.id)
+            """;
+    // Written exactly as the predicate of resource_nodes_missing_region_idx so the planner can use it.
+    private static final String MISSING_REGION = """
+            n.project_id = ? and (n.region is null or trim(n.region) = '') and n.type in (%s)
+            """;
+    private static final String COUNT = "select count(*) from resource_nodes n where %s";
+    private static final String PAGE = """
+            select n.id, n.type, n.name
+            from resource_nodes n
+            where %s and n.id > ?
+            order by n.id
+            limit ?
+            """;
+    private static final RowMapper<IssueNode> ISSUE_NODE = (rs, rowNum) -> new IssueNode(
+            rs.getObject("id", UUID.class),
+            ResourceType.valueOf(rs.getString("type")),
+            rs.getString("name")
+    );
+    // Sorts before every random UUID, so a missing cursor starts at the first node.
+    private static final UUID FIRST = new UUID(0, 0);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public GraphHealthRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public int countOrphans(UUID projectId) {
+        return count(ORPHAN, List.of(projectId));
+    }
+
+    public List<IssueNode> findOrphans(UUID projectId, UUID after, int limit) {
+        return page(ORPHAN, List.of(projectId), after, limit);
+    }
+
+    public int countMissingRegion(UUID projectId, Collection<ResourceType> types) {
+        return count(missingRegion(types), missingRegionArgs(projectId, types));
+    }
+
+    public List<IssueNode> findMissingRegion(UUID projectId, Collection<ResourceType> types, UUID after, int limit) {
+        return page(missingRegion(types), missingRegionArgs(projectId, types), after, limit);
+    }
+
+    private int count(String predicate, List<Object> args) {
+        Integer count = jdbcTemplate.queryForObject(String.format(COUNT, predicate), Integer.class, args.toArray());
+        return count == null ? 0 : count;
+    }
+
+    private List<IssueNode> page(String predicate, List<Object> args, UUID after, int limit) {
+        List<Object> pageArgs = new ArrayList<>(args);
+        pageArgs.add(after == null ? FIRST : after);
+        pageArgs.add(limit);
+        return jdbcTemplate.query(String.format(PAGE, predicate), ISSUE_NODE, pageArgs.toArray());
+    }
+
+    private String missingRegion(Collection<ResourceType> types) {
+        return String.format(MISSING_REGION, String.join(", ", Collections.nCopies(types.size(), "?")));
+    }
+
+    private List<Object> missingRegionArgs(UUID projectId, Collection<ResourceType> types) {
+        List<Object> args = new ArrayList<>();
+        args.add(projectId);
+        types.forEach(type -> args.add(type.name()));
+        return args;
+    }
+
+    public record IssueNode(UUID id, ResourceType type, String name) {
+    }
+}
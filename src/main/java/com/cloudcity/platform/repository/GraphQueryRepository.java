@@ -0,0 +1,225 @@
+package com.cloudcity.platform.repository;
+
+import com.cloudcity.platform.domain.CloudProvider;
+import com.cloudcity.platform.domain.RelationType;
+import com.cloudcity.platform.domain.ResourceSource;
+import com.cloudcity.platform.domain.ResourceType;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+// Filtered reads of a project's graph. Every query walks the project in id order, so a page
+// continues from the last id it returned and costs the same however deep the client has paged.
+@Repository
+public class GraphQueryRepository {
+    private static final String SELECT_NODES = """
+            select n.id, n.project_id, n.provider, n.type, n.name, n.region, n.zone, n.state, n.external_id,
+                   n.source, n.cost_estimate, n.metadata_json, n.created_at, n.updated_at
+            from resource_nodes n
+            where n.project_id = ?%s
+            order by n.id
+            """;
+    private static final String SELECT_EDGES = """
+            select e.id, e.project_id, e.from_node_id, e.to_node_id, e.relation_type, e.created_at
+            from resource_edges e
+            where e.project_id = ?%s
+            order by e.id
+            """;
+    // An edge is shown when both of its ends are.
+    private static final String EDGE_ENDS_MATCH = """
+             and exists (select 1 from resource_nodes n where n.id = e.from_node_id%1$s)
+             and exists (select 1 from resource_nodes n where n.id = e.to_node_id%1$s)
+            """;
+    private static final RowMapper<NodeView> NODE_VIEW = (rs, rowNum) -> new NodeView(
+            rs.getObject("id", UUID.class),
+            rs.getObject("project_id", UUID.class),
+            CloudProvider.valueOf(rs.getString("provider")),
+            ResourceType.valueOf(rs.getString("type")),
+            rs.getString("name"),
+            rs.getString("region"),
+            rs.getString("zone"),
+            rs.getString("state"),
+            rs.getString("external_id"),
+            ResourceSource.valueOf(rs.getString("source")),
+            rs.getBigDecimal("cost_estimate"),
+            rs.getString("metadata_json"),
+            rs.getObject("created_at", OffsetDateTime.class),
+            rs.getObject("updated_at", OffsetDateTime.class)
+    );
+    private static final RowMapper<EdgeView> EDGE_VIEW = (rs, rowNum) -> new EdgeView(
+            rs.getObject("id", UUID.class),
+            rs.getObject("project_id", UUID.class),
+            rs.getObject("from_node_id", UUID.class),
+            rs.getObject("to_node_id", UUID.class),
+            RelationType.valueOf(rs.getString("relation_type")),
+            rs.getObject("created_at", OffsetDateTime.class)
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int fetchSize;
+
+    public GraphQueryRepository(JdbcTemplate jdbcTemplate,
+                                @Value("${cloudcity.graph.stream.fetch-size:500}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fetchSize = Math.max(1, fetchSize);
+    }
+
+    public List<NodeView> findNodes(UUID projectId, NodeFilter filter, UUID after, int limit) {
+        List<Object> args = new ArrayList<>();
+        String sql = nodesSql(projectId, filter, after, args) + "limit ?";
+        args.add(limit);
+        return jdbcTemplate.query(sql, NODE_VIEW, args.toArray());
+    }
+
+    public List<EdgeView> findEdges(UUID projectId,
+                                    NodeFilter filter,
+                                    RelationType relationType,
+                                    UUID after,
+                                    int limit) {
+        List<Object> args = new ArrayList<>();
+        String sql = edgesSql(projectId, filter, relationType, after, args) + "limit ?";
+        args.add(limit);
+        return jdbcTemplate.query(sql, EDGE_VIEW, args.toArray());
+    }
+
+    // Every matching node through a forward-only cursor. The caller must close the stream, and must
+    // hold a transaction for the driver to fetch in batches instead of reading the whole result.
+    public Stream<NodeView> streamNodes(UUID projectId, NodeFilter filter) {
+        List<Object> args = new ArrayList<>();
+        return stream(nodesSql(projectId, filter, null, args), NODE_VIEW, args);
+    }
+
+    public Stream<EdgeView> streamEdges(UUID projectId, NodeFilter filter, RelationType relationType) {
+        List<Object> args = new ArrayList<>();
+        return stream(edgesSql(projectId, filter, relationType, null, args), EDGE_VIEW, args);
+    }
+
+    private String nodesSql(UUID projectId, NodeFilter filter, UUID after, List<Object> args) {
+        args.add(projectId);
+        StringBuilder where = new StringBuilder(filter.predicate(args));
+        return String.format(SELECT_NODES, after(where, "n", after, args));
+    }
+
+    private String edgesSql(UUID projectId,
+                            NodeFilter filter,
+                            RelationType relationType,
+                            UUID after,
+                            List<Object> args) {
+        args.add(projectId);
+        StringBuilder where = new StringBuilder();
+        if (relationType != null) {
+            where.append(" and e.relation_type = ?");
+            args.add(relationType.name());
+        }
+        if (!filter.isEmpty()) {
+            // Both exists clauses bind the node filter, once for each end.
+            List<Object> nodeArgs = new ArrayList<>();
+            where.append(String.format(EDGE_ENDS_MATCH, filter.predicate(nodeArgs)).stripTrailing());
+            args.addAll(nodeArgs);
+            args.addAll(nodeArgs);
+        }
+        return String.format(SELECT_EDGES, after(where, "e", after, args));
+    }
+
+    private StringBuilder after(StringBuilder where, String alias, UUID after, List<Object> args) {
+        if (after != null) {
+            where.append(" and ").append(alias).append(".id > ?");
+            args.add(after);
+        }
+        return where;
+    }
+
+    private <T> Stream<T> stream(String sql, RowMapper<T> rowMapper, List<Object> args) {
+        return jdbcTemplate.queryForStream(connection -> {
+            PreparedStatement statement =
+                    connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            new ArgumentPreparedStatementSetter(args.toArray()).setValues(statement);
+            return statement;
+        }, rowMapper);
+    }
+
+    // Empty fields match every node. Each filter is backed by a (project_id, column, id) index.
+    public record NodeFilter(List<ResourceType> types,
+                             String region,
+                             ResourceSource source,
+                             String state,
+                             String namePrefix) {
+        public NodeFilter {
+            types = types == null ? List.of() : List.copyOf(types);
+            region = blankToNull(region);
+            state = blankToNull(state);
+            namePrefix = blankToNull(namePrefix);
+        }
+
+        public boolean isEmpty() {
+            return types.isEmpty() && region == null && source == null && state == null && namePrefix == null;
+        }
+
+        private String predicate(List<Object> args) {
+            StringBuilder predicate = new StringBuilder();
+            if (!types.isEmpty()) {
+                predicate.append(" and n.type in (")
+                        .append(String.join(", ", Collections.nCopies(types.size(), "?")))
+                        .append(")");
+                types.forEach(type -> args.add(type.name()));
+            }
+            if (region != null) {
+                predicate.append(" and n.region = ?");
+                args.add(region);
+            }
+            if (source != null) {
+                predicate.append(" and n.source = ?");
+                args.add(source.name());
+            }
+            if (state != null) {
+                predicate.append(" and n.state = ?");
+                args.add(state);
+            }
+            if (namePrefix != null) {
+                predicate.append(" and n.name like ? escape '\\'");
+                args.add(namePrefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%");
+            }
+            return predicate.toString();
+        }
+
+        private static String blankToNull(String value) {
+            return value == null || value.isBlank() ? null : value;
+        }
+    }
+
+    public record NodeView(UUID id,
+                           UUID projectId,
+                           CloudProvider provider,
+                           ResourceType type,
+                           String name,
+                           String region,
+                           String zone,
+                           String state,
+                           String externalId,
+                           ResourceSource source,
+                           BigDecimal costEstimate,
+                           String metadataJson,
+                           OffsetDateTime createdAt,
+                           OffsetDateTime updatedAt) {
+    }
+
+    public record EdgeView(UUID id,
+                           UUID projectId,
+                           UUID fromNodeId,
+                           UUID toNodeId,
+                           RelationType relationType,
+                           OffsetDateTime createdAt) {
+    }
+}
@@ -0,0 +1,148 @@
+package com.cloudcity.platform.repository;
+
+import com.cloudcity.platform.domain.ResourceType;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+// Every write starts on the project's graph_summaries row, so concurrent writers and the verifier
+// take the same row lock first and apply their changes one after the other.
+@Repository
+public class GraphSummaryRepository {
+    private static final String APPLY_EDGES = """
+            update graph_summaries set edge_count = edge_count + ?, updated_at = ? where project_id = ?
+            """;
+    private static final String APPLY_ROLLUP = """
+            update graph_summary_rollups
+            set node_count = node_count + ?, estimated_cost = estimated_cost + ?
+            where project_id = ? and type = ? and region = ?
+            """;
+    private static final String INSERT_ROLLUP = """
+            insert into graph_summary_rollups (id, project_id, type, region, node_count, estimated_cost)
+            values (?, ?, ?, ?, ?, ?)
+            """;
+    private static final String DELETE_EMPTY_ROLLUPS = """
+            delete from graph_summary_rollups where project_id = ? and node_count <= 0
+            """;
+    private static final String DELETE_ROLLUPS = "delete from graph_summary_rollups where project_id = ?";
+    private static final String INSERT_SUMMARY = """
+            insert into graph_summaries (project_id, edge_count, updated_at, verified_at) values (?, ?, ?, ?)
+            """;
+    private static final String REPLACE_SUMMARY = """
+            update graph_summaries set edge_count = ?, updated_at = ?, verified_at = ? where project_id = ?
+            """;
+    private static final String MARK_VERIFIED = "update graph_summaries set verified_at = ? where project_id = ?";
+    private static final String SELECT_EDGE_COUNT = "select edge_count from graph_summaries where project_id = ?";
+    private static final String LOCK_SUMMARY = """
+            select edge_count from graph_summaries where project_id = ? for update
+            """;
+    private static final String SELECT_ROLLUPS = """
+            select type, region, node_count, estimated_cost
+            from graph_summary_rollups
+            where project_id = ?
+            """;
+    private static final String SELECT_PROJECT_IDS_TO_VERIFY = """
+            select project_id from graph_summaries
+            order by verified_at nulls first, project_id
+            limit ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public GraphSummaryRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // A project without a summary row has nothing to keep up to date; returns false then.
+    public boolean apply(UUID projectId, long edgeDelta, List<Rollup> nodeDeltas) {
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        if (jdbcTemplate.update(APPLY_EDGES, edgeDelta, now, projectId) == 0) {
+            return false;
+        }
+        boolean emptied = false;
+        for (Rollup delta : nodeDeltas) {
+            int updated = jdbcTemplate.update(APPLY_ROLLUP, delta.nodeCount(), delta.estimatedCost(),
+                    projectId, delta.type().name(), delta.region());
+            if (updated == 0) {
+                insertRollup(projectId, delta);
+            }
+            emptied |= delta.nodeCount() < 0;
+        }
+        if (emptied) {
+            jdbcTemplate.update(DELETE_EMPTY_ROLLUPS, projectId);
+        }
+        return true;
+    }
+
+    public Optional<Snapshot> find(UUID projectId) {
+        List<Long> edgeCount = jdbcTemplate.queryForList(SELECT_EDGE_COUNT, Long.class, projectId);
+        if (edgeCount.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(new Snapshot(edgeCount.get(0), findRollups(projectId)));
+    }
+
+    // Holds the summary row until the caller's transaction ends. False when there is none.
+    public boolean lock(UUID projectId) {
+        return !jdbcTemplate.queryForList(LOCK_SUMMARY, Long.class, projectId).isEmpty();
+    }
+
+    public void insert(UUID projectId, Snapshot snapshot) {
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        jdbcTemplate.update(INSERT_SUMMARY, projectId, snapshot.edgeCount(), now, now);
+        snapshot.rollups().forEach(rollup -> insertRollup(projectId, rollup));
+    }
+
+    public void replace(UUID projectId, Snapshot snapshot) {
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        jdbcTemplate.update(REPLACE_SUMMARY, snapshot.edgeCount(), now, now, projectId);
+        jdbcTemplate.update(DELETE_ROLLUPS, projectId);
+        snapshot.rollups().forEach(rollup -> insertRollup(projectId, rollup));
+    }
+
+    public void markVerified(UUID projectId) {
+        jdbcTemplate.update(MARK_VERIFIED, OffsetDateTime.now(ZoneOffset.UTC), projectId);
+    }
+
+    // Least recently verified first; verifying a project moves it to the back.
+    public List<UUID> findProjectIdsToVerify(int limit) {
+        return jdbcTemplate.queryForList(SELECT_PROJECT_IDS_TO_VERIFY, UUID.class, limit);
+    }
+
+    private List<Rollup> findRollups(UUID projectId) {
+        return Snapshot.ordered(jdbcTemplate.query(SELECT_ROLLUPS, (rs, rowNum) -> new Rollup(
+                ResourceType.valueOf(rs.getString("type")),
+                rs.getString("region"),
+                rs.getLong("node_count"),
+                rs.getBigDecimal("estimated_cost")
+        ), projectId));
+    }
+
+    private void insertRollup(UUID projectId, Rollup rollup) {
+        jdbcTemplate.update(INSERT_ROLLUP, UUID.randomUUID(), projectId, rollup.type().name(), rollup.region(),
+                rollup.nodeCount(), rollup.estimatedCost());
+    }
+
+    public record Rollup(ResourceType type, String region, long nodeCount, BigDecimal estimatedCost) {
+        // Stored costs come back with two decimals; snapshots compare equal only at the same scale.
+        public Rollup {
+            estimatedCost = (estimatedCost == null ? BigDecimal.ZERO : estimatedCost).setScale(2, RoundingMode.HALF_UP);
+        }
+    }
+
+    // Rollups in (type name, region) order, so snapshots of the same graph are equal.
+    public record Snapshot(long edgeCount, List<Rollup> rollups) {
+        public static List<Rollup> ordered(List<Rollup> rollups) {
+            return rollups.stream()
+                    .sorted(Comparator.comparing((Rollup rollup) -> rollup.type().name()).thenComparing(Rollup::region))
+                    .toList();
+        }
+    }
+}
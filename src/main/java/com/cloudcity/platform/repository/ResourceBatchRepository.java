@@ -0,0 +1,223 @@
+package com.cloudcity.platform.repository;
+
+import com.cloudcity.platform.domain.CloudProvider;
+import com.cloudcity.platform.domain.RelationType;
+import com.cloudcity.platform.domain.ResourceSource;
+import com.cloudcity.platform.domain.ResourceType;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class ResourceBatchRepository {
+    private static final String INSERT_NODE = """
+            insert into resource_nodes
+                (id, project_id, provider, type, name, region, account_id, external_id, source, metadata_json,
+                 created_at, updated_at)
+            values (?, ?, ?, ?, ?, ?, ?, ?, ?, cast(? as jsonb), ?, ?)
+            """;
+    private static final String INSERT_EDGE = """
+            insert into resource_edges
+                (id, project_id, from_node_id, to_node_id, relation_type, created_at)
+            values (?, ?, ?, ?, ?, ?)
+            """;
+    private static final String UPDATE_NODE = """
+            update resource_nodes
+            set name = ?, account_id = ?, external_id = ?, metadata_json = cast(? as jsonb), updated_at = ?
+            where id = ?
+            """;
+    private static final String UPDATE_EDGE = "update resource_edges set from_node_id = ? where id = ?";
+    private static final String DELETE_NODES = "delete from resource_nodes where id in (%s)";
+    private static final String DELETE_EDGES = "delete from resource_edges where id in (%s)";
+    private static final String SELECT_EDGES_TOUCHING = """
+            select id from resource_edges where from_node_id in (%1$s) or to_node_id in (%1$s)
+            """;
+    private static final String SELECT_NODES = """
+            select id, type, name, account_id, external_id, cost_estimate, metadata_json
+            from resource_nodes
+            where project_id = ? and provider = ? and region = ? and source = ?
+              and (account_id = ? or account_id is null)
+            """;
+    private static final String SELECT_CONTAINS_EDGES = """
+            select e.id, e.from_node_id, e.to_node_id
+            from resource_edges e
+            join resource_nodes n on n.id = e.to_node_id
+            where n.project_id = ? and n.provider = ? and n.region = ? and n.source = ?
+              and (n.account_id = ? or n.account_id is null)
+              and e.relation_type = 'CONTAINS'
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public ResourceBatchRepository(JdbcTemplate jdbcTemplate,
+                                   @Value("${cloudcity.discovery.ingest.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void insertNodes(List<NodeRow> nodes) {
+        if (nodes.isEmpty()) {
+            return;
+        }
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        jdbcTemplate.batchUpdate(INSERT_NODE, nodes, batchSize, (statement, node) -> {
+            statement.setObject(1, node.id());
+            statement.setObject(2, node.projectId());
+            statement.setString(3, node.provider().name());
+            statement.setString(4, node.type().name());
+            statement.setString(5, node.name());
+            statement.setString(6, node.region());
+            statement.setString(7, node.accountId());
+            statement.setString(8, node.externalId());
+            statement.setString(9, node.source().name());
+            statement.setString(10, node.metadataJson());
+            statement.setObject(11, now);
+            statement.setObject(12, now);
+        });
+    }
+
+    public void insertEdges(List<EdgeRow> edges) {
+        if (edges.isEmpty()) {
+            return;
+        }
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        jdbcTemplate.batchUpdate(INSERT_EDGE, edges, batchSize, (statement, edge) -> {
+            statement.setObject(1, edge.id());
+            statement.setObject(2, edge.projectId());
+            statement.setObject(3, edge.fromNodeId());
+            statement.setObject(4, edge.toNodeId());
+            statement.setString(5, edge.relationType().name());
+            statement.setObject(6, now);
+        });
+    }
+
+    // Nodes of the account plus any stored before accounts were tracked, which the caller adopts.
+    public List<ExistingNode> findNodes(UUID projectId,
+                                        CloudProvider provider,
+                                        String accountId,
+                                        String region,
+                                        ResourceSource source) {
+        return jdbcTemplate.query(SELECT_NODES, (rs, rowNum) -> new ExistingNode(
+                rs.getObject("id", UUID.class),
+                ResourceType.valueOf(rs.getString("type")),
+                rs.getString("name"),
+                rs.getString("account_id"),
+                rs.getString("external_id"),
+                rs.getBigDecimal("cost_estimate"),
+                rs.getString("metadata_json")
+        ), projectId, provider.name(), region, source.name(), accountId);
+    }
+
+    public List<ExistingEdge> findContainsEdges(UUID projectId,
+                                                CloudProvider provider,
+                                                String accountId,
+                                                String region,
+                                                ResourceSource source) {
+        return jdbcTemplate.query(SELECT_CONTAINS_EDGES, (rs, rowNum) -> new ExistingEdge(
+                rs.getObject("id", UUID.class),
+                rs.getObject("from_node_id", UUID.class),
+                rs.getObject("to_node_id", UUID.class)
+        ), projectId, provider.name(), region, source.name(), accountId);
+    }
+
+    public void updateNodes(List<NodeRow> nodes) {
+        if (nodes.isEmpty()) {
+            return;
+        }
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        jdbcTemplate.batchUpdate(UPDATE_NODE, nodes, batchSize, (statement, node) -> {
+            statement.setString(1, node.name());
+            statement.setString(2, node.accountId());
+            statement.setString(3, node.externalId());
+            statement.setString(4, node.metadataJson());
+            statement.setObject(5, now);
+            statement.setObject(6, node.id());
+        });
+    }
+
+    public void updateEdges(List<EdgeRow> edges) {
+        if (edges.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPDATE_EDGE, edges, batchSize, (statement, edge) -> {
+            statement.setObject(1, edge.fromNodeId());
+            statement.setObject(2, edge.id());
+        });
+    }
+
+    // The edges' on delete cascade removes every edge touching the nodes as well, including ones
+    // users drew to them by hand.
+    public int deleteNodes(List<UUID> nodeIds) {
+        return deleteIn(DELETE_NODES, nodeIds);
+    }
+
+    public int deleteEdges(List<UUID> edgeIds) {
+        return deleteIn(DELETE_EDGES, edgeIds);
+    }
+
+    // Ids rather than a count, so an edge between nodes of two different chunks is counted once.
+    public int countEdgesTouching(List<UUID> nodeIds) {
+        Set<UUID> edgeIds = new HashSet<>();
+        for (int start = 0; start < nodeIds.size(); start += batchSize) {
+            List<UUID> chunk = nodeIds.subList(start, Math.min(start + batchSize, nodeIds.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            List<Object> args = new ArrayList<>(chunk);
+            args.addAll(chunk);
+            edgeIds.addAll(jdbcTemplate.queryForList(String.format(SELECT_EDGES_TOUCHING, placeholders),
+                    UUID.class, args.toArray()));
+        }
+        return edgeIds.size();
+    }
+
+    // One set-based statement per batch of ids instead of one statement per row.
+    private int deleteIn(String sql, List<UUID> ids) {
+        int deleted = 0;
+        for (int start = 0; start < ids.size(); start += batchSize) {
+            List<UUID> chunk = ids.subList(start, Math.min(start + batchSize, ids.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            deleted += jdbcTemplate.update(String.format(sql, placeholders), chunk.toArray());
+        }
+        return deleted;
+    }
+
+    public record NodeRow(UUID id,
+                          UUID projectId,
+                          CloudProvider provider,
+                          ResourceType type,
+                          String name,
+                          String region,
+                          String accountId,
+                          String externalId,
+                          ResourceSource source,
+                          String metadataJson) {
+    }
+
+    public record EdgeRow(UUID id, UUID projectId, UUID fromNodeId, UUID toNodeId, RelationType relationType) {
+    }
+
+    public record ExistingNode(UUID id,
+                               ResourceType type,
+                               String name,
+                               String accountId,
+                               String externalId,
+                               BigDecimal costEstimate,
+                               String metadataJson) {
+    }
+
+    public record ExistingEdge(UUID id, UUID fromNodeId, UUID toNodeId) {
+    }
+}
@@ -1,7 +1,6 @@
 package com.cloudcity.platform.repository;
 
 import com.cloudcity.platform.domain.ResourceEdge;
-import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -12,7 +11,7 @@ public interface ResourceEdgeRepository extends JpaRepository<ResourceEdge, UUID
 
     Optional<ResourceEdge> findByIdAndProjectId(UUID id, UUID projectId);
 
-    long deleteByFromNodeIdIn(Collection<UUID> nodeIds);
+    long countByProjectId(UUID projectId);
 
-    long deleteByToNodeIdIn(Collection<UUID> nodeIds);
+    long countByFromNodeIdOrToNodeId(UUID fromNodeId, UUID toNodeId);
 }
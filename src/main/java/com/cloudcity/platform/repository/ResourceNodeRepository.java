@@ -1,22 +1,39 @@
 package com.cloudcity.platform.repository;
 
 import com.cloudcity.platform.domain.ResourceNode;
-import com.cloudcity.platform.domain.CloudProvider;
-import com.cloudcity.platform.domain.ResourceSource;
+import com.cloudcity.platform.domain.ResourceType;
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface ResourceNodeRepository extends JpaRepository<ResourceNode, UUID> {
     List<ResourceNode> findAllByProjectId(UUID projectId);
 
     Optional<ResourceNode> findByIdAndProjectId(UUID id, UUID projectId);
 
-    List<ResourceNode> findAllByProjectIdAndProviderAndRegionAndSource(
-            UUID projectId,
-            CloudProvider provider,
-            String region,
-            ResourceSource source
-    );
+    List<ResourceNode> findAllByProjectIdAndExternalIdIn(UUID projectId, Collection<String> externalIds);
+
+    // One row per (type, region) pair, so the result stays small however many nodes the project has.
+    @Query("""
+            select n.type as type, n.region as region, count(n) as nodeCount, sum(n.costEstimate) as estimatedCost
+            from ResourceNode n
+            where n.project.id = :projectId
+            group by n.type, n.region
+            """)
+    List<RollupView> summarizeByTypeAndRegion(@Param("projectId") UUID projectId);
+
+    interface RollupView {
+        ResourceType getType();
+
+        String getRegion();
+
+        long getNodeCount();
+
+        BigDecimal getEstimatedCost();
+    }
 }
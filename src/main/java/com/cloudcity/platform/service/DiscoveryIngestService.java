@@ -0,0 +1,542 @@
+package com.cloudcity.platform.service;
+
+import com.cloudcity.platform.domain.CloudProvider;
+import com.cloudcity.platform.domain.RelationType;
+import com.cloudcity.platform.domain.ResourceSource;
+import com.cloudcity.platform.domain.ResourceType;
+import com.cloudcity.platform.infrastructure.aws.AwsDiscoveredResource;
+import com.cloudcity.platform.infrastructure.aws.AwsDiscoveryContext;
+import com.cloudcity.platform.infrastructure.aws.AwsResourceCollector;
+import com.cloudcity.platform.repository.DiscoveryCheckpointRepository;
+import com.cloudcity.platform.repository.ResourceBatchRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+@Service
+public class DiscoveryIngestService {
+    private static final TransactionDefinition SEGMENT_TRANSACTION =
+            new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+    private final ResourceBatchRepository resourceBatchRepository;
+    private final DiscoveryCheckpointRepository checkpointRepository;
+    private final GraphSummaryService summaryService;
+    private final PlatformTransactionManager transactionManager;
+    private final List<AwsResourceCollector> collectors;
+    private final Set<ResourceType> parentTypes = EnumSet.noneOf(ResourceType.class);
+    private final TaskExecutor discoveryListingExecutor;
+    private final ObjectMapper objectMapper;
+    private final int pageBuffer;
+
+    public DiscoveryIngestService(ResourceBatchRepository resourceBatchRepository,
+                                  DiscoveryCheckpointRepository checkpointRepository,
+                                  GraphSummaryService summaryService,
+                                  PlatformTransactionManager transactionManager,
+                                  List<AwsResourceCollector> collectors,
+                                  TaskExecutor discoveryListingExecutor,
+                                  ObjectMapper objectMapper,
+                                  @Value("${cloudcity.discovery.page-buffer:4}") int pageBuffer) {
+        this.resourceBatchRepository = resourceBatchRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.summaryService = summaryService;
+        this.transactionManager = transactionManager;
+        this.collectors = inDependencyOrder(collectors);
+        for (AwsResourceCollector collector : this.collectors) {
+            if (collector.parentType() != null) {
+                parentTypes.add(collector.parentType());
+            }
+        }
+        this.discoveryListingExecutor = discoveryListingExecutor;
+        this.objectMapper = objectMapper;
+        this.pageBuffer = Math.max(1, pageBuffer);
+    }
+
+    // Parents before children, the order edges are linked and checkpoints are written in. A duplicate
+    // type, a parent nobody collects or a cycle fails startup.
+    private static List<AwsResourceCollector> inDependencyOrder(List<AwsResourceCollector> collectors) {
+        Map<ResourceType, AwsResourceCollector> byType = new EnumMap<>(ResourceType.class);
+        for (AwsResourceCollector collector : collectors) {
+            if (byType.put(collector.type(), collector) != null) {
+                throw new IllegalStateException("More than one collector for " + collector.type());
+            }
+        }
+        List<AwsResourceCollector> ordered = new ArrayList<>();
+        Set<ResourceType> placed = EnumSet.noneOf(ResourceType.class);
+        while (ordered.size() < byType.size()) {
+            int before = ordered.size();
+            for (AwsResourceCollector collector : byType.values()) {
+                if (!placed.contains(collector.type())
+                        && (collector.parentType() == null || placed.contains(collector.parentType()))) {
+                    ordered.add(collector);
+                    placed.add(collector.type());
+                }
+            }
+            if (ordered.size() == before) {
+                Set<ResourceType> unplaced = EnumSet.copyOf(byType.keySet());
+                unplaced.removeAll(placed);
+                throw new IllegalStateException("Collectors without a collected parent: " + unplaced);
+            }
+        }
+        return List.copyOf(ordered);
+    }
+
+    // Each account and region commits on its own so a failing one neither rolls back nor blocks the others.
+    // Within a region every finished listing is committed together with its checkpoint, so a resumed
+    // run only lists the resource types that had not completed.
+    public ReconcileCounts ingestRegion(UUID projectId,
+                                        UUID discoveryId,
+                                        AwsDiscoveryContext context,
+                                        BiConsumer<ResourceType, Integer> listingCompleted) {
+        SegmentTransaction transaction = new SegmentTransaction();
+        try {
+            Set<String> checkpoints = checkpointRepository.findCompletedSegments(
+                    discoveryId, context.accountId(), context.region());
+            // A type only counts as done when its parent is too, since its edges are linked to the parent's.
+            Set<ResourceType> checkpointed = EnumSet.noneOf(ResourceType.class);
+            List<AwsResourceCollector> pending = new ArrayList<>();
+            for (AwsResourceCollector collector : collectors) {
+                if (checkpoints.contains(collector.type().name())
+                        && (collector.parentType() == null || checkpointed.contains(collector.parentType()))) {
+                    checkpointed.add(collector.type());
+                } else {
+                    pending.add(collector);
+                }
+            }
+            // Reruns reconcile against what is already stored, keyed on the AWS id, so unchanged rows
+            // keep their ids and are never rewritten.
+            RegionReconciler reconciler =
+                    new RegionReconciler(projectId, context.accountId(), context.region(), checkpointed);
+            Map<ResourceType, Integer> listed = new EnumMap<>(ResourceType.class);
+            streamListings(context, pending, reconciler::accept, (type, count) -> {
+                reconciler.listed(type);
+                listed.put(type, count);
+                // Checkpointed parents first, as a resumed run expects. Walking the pending collectors in
+                // dependency order lets a finished parent take its finished children along.
+                List<ResourceType> completed = new ArrayList<>();
+                for (AwsResourceCollector collector : pending) {
+                    ResourceType candidate = collector.type();
+                    if (!checkpointed.contains(candidate) && listed.containsKey(candidate)
+                            && (collector.parentType() == null || checkpointed.contains(collector.parentType()))) {
+                        checkpointed.add(candidate);
+                        completed.add(candidate);
+                    }
+                }
+                if (completed.isEmpty()) {
+                    return;
+                }
+                reconciler.flush();
+                reconciler.applySummary();
+                for (ResourceType candidate : completed) {
+                    checkpointRepository.markCompleted(discoveryId, context.accountId(), context.region(),
+                            candidate.name());
+                }
+                transaction.commitAndContinue();
+                completed.forEach(candidate -> listingCompleted.accept(candidate, listed.get(candidate)));
+            });
+            ReconcileCounts counts = reconciler.finish();
+            checkpointRepository.markCompleted(discoveryId, context.accountId(), context.region(),
+                    DiscoveryCheckpointRepository.REGION_SEGMENT);
+            transaction.commit();
+            return counts;
+        } catch (RuntimeException e) {
+            transaction.rollback();
+            throw e;
+        }
+    }
+
+    // Every collector starts at once; only edge linking waits for parents. They hand pages to this
+    // (transaction-owning) thread through a small bounded queue, so memory stays proportional to the
+    // page size.
+    private void streamListings(AwsDiscoveryContext context,
+                                List<AwsResourceCollector> pending,
+                                BiConsumer<AwsResourceCollector, List<AwsDiscoveredResource>> writer,
+                                BiConsumer<ResourceType, Integer> listingCompleted) {
+        BlockingQueue<Page> pages = new ArrayBlockingQueue<>(pageBuffer);
+        AtomicBoolean aborted = new AtomicBoolean();
+        pending.forEach(collector -> start(context, collector, pages, aborted));
+        int running = pending.size();
+        Map<ResourceType, Integer> listed = new EnumMap<>(ResourceType.class);
+        try {
+            while (running > 0) {
+                // Polling lets a cancel or an expired deadline end the region even while a call hangs.
+                Page page = pages.poll(100, TimeUnit.MILLISECONDS);
+                context.deadline().check();
+                if (page == null) {
+                    continue;
+                }
+                if (page.error() != null) {
+                    throw page.error();
+                }
+                ResourceType type = page.collector().type();
+                if (page.last()) {
+                    running--;
+                    listingCompleted.accept(type, listed.getOrDefault(type, 0));
+                } else {
+                    writer.accept(page.collector(), page.resources());
+                    listed.merge(type, page.resources().size(), Integer::sum);
+                }
+            }
+        } catch (InterruptedException e) {
+            aborted.set(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Discovery interrupted", e);
+        } catch (RuntimeException e) {
+            aborted.set(true);
+            throw e;
+        }
+    }
+
+    private void start(AwsDiscoveryContext context,
+                       AwsResourceCollector collector,
+                       BlockingQueue<Page> pages,
+                       AtomicBoolean aborted) {
+        discoveryListingExecutor.execute(() -> {
+            RuntimeException failure = null;
+            try {
+                collector.collect(context, page -> enqueue(pages, new Page(collector, page, false, null), aborted));
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            if (!aborted.get()) {
+                enqueue(pages, new Page(collector, null, true, failure), aborted);
+            }
+        });
+    }
+
+    private void enqueue(BlockingQueue<Page> pages, Page page, AtomicBoolean aborted) {
+        try {
+            while (!pages.offer(page, 100, TimeUnit.MILLISECONDS)) {
+                if (aborted.get()) {
+                    throw new CancellationException("Region ingest aborted");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Region ingest interrupted");
+        }
+    }
+
+    private String buildMetadata(String awsId, String vpcId, String subnetId) {
+        ObjectNode metadata = objectMapper.createObjectNode();
+        metadata.put("awsId", awsId);
+        if (vpcId != null && !vpcId.isBlank()) {
+            metadata.put("vpcId", vpcId);
+        }
+        if (subnetId != null && !subnetId.isBlank()) {
+            metadata.put("subnetId", subnetId);
+        }
+        return metadata.toString();
+    }
+
+    private JsonNode readMetadata(String metadataJson) {
+        if (metadataJson == null || metadataJson.isBlank()) {
+            return null;
+        }
+        try {
+            JsonNode metadata = objectMapper.readTree(metadataJson);
+            if (metadata != null && metadata.isTextual()) {
+                metadata = objectMapper.readTree(metadata.asText());
+            }
+            return metadata;
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private final class RegionReconciler {
+        private final UUID projectId;
+        private final String accountId;
+        private final String region;
+        private final Map<NodeKey, ResourceBatchRepository.ExistingNode> existingNodes = new HashMap<>();
+        private final Map<UUID, ResourceBatchRepository.ExistingEdge> existingEdges = new HashMap<>();
+        private final List<ResourceBatchRepository.ExistingNode> staleNodes = new ArrayList<>();
+        private final List<UUID> staleEdgeIds = new ArrayList<>();
+        private final Map<ResourceType, Map<String, UUID>> parentNodeIds = new EnumMap<>(ResourceType.class);
+        private final Set<ResourceType> listedTypes = EnumSet.noneOf(ResourceType.class);
+        private final Map<ResourceType, List<DeferredEdge>> deferredEdges = new EnumMap<>(ResourceType.class);
+        private final List<ResourceBatchRepository.NodeRow> nodeInserts = new ArrayList<>();
+        private final List<ResourceBatchRepository.NodeRow> nodeUpdates = new ArrayList<>();
+        private final List<ResourceBatchRepository.EdgeRow> edgeInserts = new ArrayList<>();
+        private final List<ResourceBatchRepository.EdgeRow> edgeUpdates = new ArrayList<>();
+        private final GraphSummaryService.Delta summaryDelta = new GraphSummaryService.Delta();
+        private int nodesInserted;
+        private int nodesUpdated;
+        private int edgesInserted;
+        private int edgesUpdated;
+
+        private RegionReconciler(UUID projectId, String accountId, String region, Set<ResourceType> checkpointed) {
+            this.projectId = projectId;
+            this.accountId = accountId;
+            this.region = region;
+            listedTypes.addAll(checkpointed);
+            for (ResourceBatchRepository.ExistingNode node : resourceBatchRepository.findNodes(
+                    projectId, CloudProvider.AWS, accountId, region, ResourceSource.DISCOVERED)) {
+                String awsId = externalId(node);
+                if (awsId == null || existingNodes.putIfAbsent(new NodeKey(node.type(), awsId), node) != null) {
+                    staleNodes.add(node);
+                }
+            }
+            Set<UUID> discoveredIds = new HashSet<>();
+            for (ResourceBatchRepository.ExistingNode node : existingNodes.values()) {
+                discoveredIds.add(node.id());
+            }
+            // Only CONTAINS edges between discovered nodes are ours to reconcile; hand-drawn ones stay.
+            for (ResourceBatchRepository.ExistingEdge edge : resourceBatchRepository.findContainsEdges(
+                    projectId, CloudProvider.AWS, accountId, region, ResourceSource.DISCOVERED)) {
+                if (!discoveredIds.contains(edge.fromNodeId()) || !discoveredIds.contains(edge.toNodeId())) {
+                    continue;
+                }
+                if (existingEdges.putIfAbsent(edge.toNodeId(), edge) != null) {
+                    staleEdgeIds.add(edge.id());
+                }
+            }
+            // Types listed by an earlier attempt are taken as stored: never stale, and still parents and
+            // children. Walking them parents first keeps their edges matched.
+            Map<ResourceType, List<Map.Entry<NodeKey, ResourceBatchRepository.ExistingNode>>> stored =
+                    new EnumMap<>(ResourceType.class);
+            Iterator<Map.Entry<NodeKey, ResourceBatchRepository.ExistingNode>> nodes =
+                    existingNodes.entrySet().iterator();
+            while (nodes.hasNext()) {
+                Map.Entry<NodeKey, ResourceBatchRepository.ExistingNode> entry = nodes.next();
+                if (checkpointed.contains(entry.getKey().type())) {
+                    nodes.remove();
+                    stored.computeIfAbsent(entry.getKey().type(), type -> new ArrayList<>()).add(entry);
+                }
+            }
+            for (AwsResourceCollector collector : collectors) {
+                for (Map.Entry<NodeKey, ResourceBatchRepository.ExistingNode> entry
+                        : stored.getOrDefault(collector.type(), List.of())) {
+                    // Keyed on external_id, the row may have blank or unreadable metadata.
+                    JsonNode metadata = readMetadata(entry.getValue().metadataJson());
+                    AwsDiscoveredResource resource = new AwsDiscoveredResource(entry.getKey().awsId(),
+                            entry.getValue().name(), region,
+                            metadata == null ? null : metadata.path("vpcId").asText(null),
+                            metadata == null ? null : metadata.path("subnetId").asText(null));
+                    register(collector, resource, entry.getValue().id());
+                }
+            }
+        }
+
+        private void accept(AwsResourceCollector collector, List<AwsDiscoveredResource> page) {
+            ResourceType type = collector.type();
+            for (AwsDiscoveredResource resource : page) {
+                String metadataJson = buildMetadata(resource.getId(), resource.getVpcId(), resource.getSubnetId());
+                ResourceBatchRepository.ExistingNode existing = existingNodes.remove(new NodeKey(type, resource.getId()));
+                UUID nodeId = existing == null ? UUID.randomUUID() : existing.id();
+                ResourceBatchRepository.NodeRow row = new ResourceBatchRepository.NodeRow(
+                        nodeId,
+                        projectId,
+                        CloudProvider.AWS,
+                        type,
+                        resource.getName(),
+                        region,
+                        accountId,
+                        resource.getId(),
+                        ResourceSource.DISCOVERED,
+                        metadataJson
+                );
+                if (existing == null) {
+                    nodeInserts.add(row);
+                    nodesInserted++;
+                } else if (!Objects.equals(existing.name(), resource.getName())
+                        || !Objects.equals(existing.accountId(), accountId)
+                        || !Objects.equals(existing.externalId(), resource.getId())
+                        || !Objects.equals(readMetadata(existing.metadataJson()), readMetadata(metadataJson))) {
+                    nodeUpdates.add(row);
+                    nodesUpdated++;
+                }
+
+                register(collector, resource, nodeId);
+                if (pending() >= resourceBatchRepository.getBatchSize()) {
+                    flush();
+                }
+            }
+        }
+
+        // The edge is wired on the way in when the parent is already known. A child listed before its
+        // parent type finished waits for it, and either way the edge is committed by the child's
+        // checkpoint at the latest, which is only written after the parent's.
+        private void register(AwsResourceCollector collector, AwsDiscoveredResource resource, UUID nodeId) {
+            if (parentTypes.contains(collector.type())) {
+                parentNodeIds.computeIfAbsent(collector.type(), type -> new HashMap<>()).put(resource.getId(), nodeId);
+            }
+            if (collector.parentType() == null) {
+                return;
+            }
+            String parentAwsId = collector.parentId(resource);
+            if (parentAwsId == null) {
+                return;
+            }
+            UUID parentId = parentNodeIds.getOrDefault(collector.parentType(), Map.of()).get(parentAwsId);
+            if (parentId != null) {
+                link(parentId, nodeId);
+            } else if (!listedTypes.contains(collector.parentType())) {
+                deferredEdges.computeIfAbsent(collector.parentType(), type -> new ArrayList<>())
+                        .add(new DeferredEdge(parentAwsId, nodeId));
+            }
+        }
+
+        // Every node of the type is registered now; children still waiting for one of them are linked,
+        // and the rest have a parent that no longer exists.
+        private void listed(ResourceType type) {
+            listedTypes.add(type);
+            Map<String, UUID> parents = parentNodeIds.getOrDefault(type, Map.of());
+            for (DeferredEdge edge : deferredEdges.getOrDefault(type, List.of())) {
+                UUID parentId = parents.get(edge.parentAwsId());
+                if (parentId != null) {
+                    link(parentId, edge.nodeId());
+                }
+            }
+            deferredEdges.remove(type);
+        }
+
+        private void link(UUID parentId, UUID nodeId) {
+            ResourceBatchRepository.ExistingEdge existingEdge = existingEdges.remove(nodeId);
+            if (existingEdge == null) {
+                edgeInserts.add(new ResourceBatchRepository.EdgeRow(
+                        UUID.randomUUID(), projectId, parentId, nodeId, RelationType.CONTAINS));
+                edgesInserted++;
+            } else if (!existingEdge.fromNodeId().equals(parentId)) {
+                edgeUpdates.add(new ResourceBatchRepository.EdgeRow(
+                        existingEdge.id(), projectId, parentId, nodeId, RelationType.CONTAINS));
+                edgesUpdated++;
+            }
+        }
+
+        // Rows written before external_id existed, or by hand, only carry the id in their metadata.
+        private String externalId(ResourceBatchRepository.ExistingNode node) {
+            if (node.externalId() != null) {
+                return node.externalId();
+            }
+            JsonNode metadata = readMetadata(node.metadataJson());
+            JsonNode awsId = metadata == null ? null : metadata.get("awsId");
+            return awsId == null ? null : awsId.asText();
+        }
+
+        private ReconcileCounts finish() {
+            flush();
+            // Whatever was not matched by this listing no longer exists in AWS.
+            for (ResourceBatchRepository.ExistingEdge edge : existingEdges.values()) {
+                staleEdgeIds.add(edge.id());
+            }
+            staleNodes.addAll(existingNodes.values());
+            List<UUID> staleNodeIds = new ArrayList<>();
+            for (ResourceBatchRepository.ExistingNode node : staleNodes) {
+                staleNodeIds.add(node.id());
+                summaryDelta.node(node.type(), region, -1,
+                        node.costEstimate() == null ? null : node.costEstimate().negate());
+            }
+            summaryDelta.edges(-resourceBatchRepository.deleteEdges(staleEdgeIds));
+            // Counted before the delete takes them along, hand-drawn edges included.
+            summaryDelta.edges(-resourceBatchRepository.countEdgesTouching(staleNodeIds));
+            resourceBatchRepository.deleteNodes(staleNodeIds);
+            applySummary();
+            return new ReconcileCounts(nodesInserted, nodesUpdated, staleNodeIds.size(),
+                    edgesInserted, edgesUpdated, staleEdgeIds.size());
+        }
+
+        // Applied right before each commit: the summary row stays locked only until then, so regions
+        // of the same project do not queue behind each other for a whole listing.
+        private void applySummary() {
+            summaryService.apply(projectId, summaryDelta);
+            summaryDelta.clear();
+        }
+
+        private int pending() {
+            return nodeInserts.size() + nodeUpdates.size() + edgeInserts.size() + edgeUpdates.size();
+        }
+
+        // Nodes always go first: pending edges may point at nodes buffered in the same batch.
+        private void flush() {
+            for (ResourceBatchRepository.NodeRow node : nodeInserts) {
+                summaryDelta.node(node.type(), node.region(), 1, null);
+            }
+            summaryDelta.edges(edgeInserts.size());
+            resourceBatchRepository.insertNodes(nodeInserts);
+            resourceBatchRepository.updateNodes(nodeUpdates);
+            resourceBatchRepository.insertEdges(edgeInserts);
+            resourceBatchRepository.updateEdges(edgeUpdates);
+            nodeInserts.clear();
+            nodeUpdates.clear();
+            edgeInserts.clear();
+            edgeUpdates.clear();
+        }
+    }
+
+    // Commits and reopens around each checkpoint while the region's reconciler keeps its state.
+    private final class SegmentTransaction {
+        private TransactionStatus status = transactionManager.getTransaction(SEGMENT_TRANSACTION);
+
+        private void commitAndContinue() {
+            transactionManager.commit(status);
+            status = transactionManager.getTransaction(SEGMENT_TRANSACTION);
+        }
+
+        private void commit() {
+            transactionManager.commit(status);
+        }
+
+        private void rollback() {
+            if (!status.isCompleted()) {
+                transactionManager.rollback(status);
+            }
+        }
+    }
+
+    public record ReconcileCounts(int nodesInserted,
+                                  int nodesUpdated,
+                                  int nodesDeleted,
+                                  int edgesInserted,
+                                  int edgesUpdated,
+                                  int edgesDeleted) {
+        public static final ReconcileCounts NONE = new ReconcileCounts(0, 0, 0, 0, 0, 0);
+
+        public ReconcileCounts plus(ReconcileCounts other) {
+            return new ReconcileCounts(
+                    nodesInserted + other.nodesInserted,
+                    nodesUpdated + other.nodesUpdated,
+                    nodesDeleted + other.nodesDeleted,
+                    edgesInserted + other.edgesInserted,
+                    edgesUpdated + other.edgesUpdated,
+                    edgesDeleted + other.edgesDeleted
+            );
+        }
+    }
+
+    private record NodeKey(ResourceType type, String awsId) {
+    }
+
+    private record DeferredEdge(String parentAwsId, UUID nodeId) {
+    }
+
+    private record Page(AwsResourceCollector collector,
+                        List<AwsDiscoveredResource> resources,
+                        boolean last,
+                        RuntimeException error) {
+    }
+}
@@ -0,0 +1,114 @@
+package com.cloudcity.platform.service;
+
+import com.cloudcity.platform.api.dto.DiscoveryProgressEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+// Fans discovery progress out to every open SSE stream on this instance. Each event is serialized
+// once no matter how many clients are watching the run.
+@Component
+public class DiscoveryProgressBroadcaster {
+    private final ObjectMapper objectMapper;
+    private final long timeoutMillis;
+    private final Map<UUID, Set<SseEmitter>> watchers = new ConcurrentHashMap<>();
+    private final Map<UUID, Long> lastLocalEvent = new ConcurrentHashMap<>();
+
+    public DiscoveryProgressBroadcaster(ObjectMapper objectMapper,
+                                        @Value("${cloudcity.discovery.events.timeout-ms:1800000}") long timeoutMillis) {
+        this.objectMapper = objectMapper;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public SseEmitter subscribe(DiscoveryProgressEvent snapshot) {
+        UUID discoveryId = snapshot.getDiscoveryId();
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        emitter.onCompletion(() -> unsubscribe(discoveryId, emitter));
+        emitter.onTimeout(() -> unsubscribe(discoveryId, emitter));
+        emitter.onError(error -> unsubscribe(discoveryId, emitter));
+
+        if (!send(emitter, snapshot.getEvent(), serialize(snapshot))) {
+            return emitter;
+        }
+        if (isTerminal(snapshot)) {
+            emitter.complete();
+            return emitter;
+        }
+        watchers.computeIfAbsent(discoveryId, ignored -> new CopyOnWriteArraySet<>()).add(emitter);
+        return emitter;
+    }
+
+    public void publish(DiscoveryProgressEvent event) {
+        UUID discoveryId = event.getDiscoveryId();
+        lastLocalEvent.put(discoveryId, System.currentTimeMillis());
+        Set<SseEmitter> emitters = watchers.get(discoveryId);
+        if (emitters != null && !emitters.isEmpty()) {
+            String payload = serialize(event);
+            for (SseEmitter emitter : emitters) {
+                send(emitter, event.getEvent(), payload);
+            }
+        }
+        if (isTerminal(event)) {
+            lastLocalEvent.remove(discoveryId);
+            Set<SseEmitter> finished = watchers.remove(discoveryId);
+            if (finished != null) {
+                finished.forEach(SseEmitter::complete);
+            }
+        }
+    }
+
+    // Runs that are watched here but executing on another replica produce no local events.
+    public List<UUID> watchedWithoutLocalEvents(long quietMillis) {
+        long cutoff = System.currentTimeMillis() - quietMillis;
+        List<UUID> quiet = new ArrayList<>();
+        for (UUID discoveryId : watchers.keySet()) {
+            Long last = lastLocalEvent.get(discoveryId);
+            if (last == null || last < cutoff) {
+                quiet.add(discoveryId);
+            }
+        }
+        return quiet;
+    }
+
+    private boolean send(SseEmitter emitter, String name, String payload) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(payload, MediaType.APPLICATION_JSON));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private void unsubscribe(UUID discoveryId, SseEmitter emitter) {
+        watchers.computeIfPresent(discoveryId, (ignored, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+
+    private String serialize(DiscoveryProgressEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize discovery event", e);
+        }
+    }
+
+    private boolean isTerminal(DiscoveryProgressEvent event) {
+        return DiscoveryProgressEvent.STATUS.equals(event.getEvent())
+                && ("COMPLETED".equals(event.getStatus()) || "FAILED".equals(event.getStatus())
+                        || "CANCELLED".equals(event.getStatus()));
+    }
+}
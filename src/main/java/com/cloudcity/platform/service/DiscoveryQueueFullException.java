@@ -0,0 +1,26 @@
+package com.cloudcity.platform.service;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+// Rejects a run before anything is written, so a saturated queue never strands a QUEUED row.
+public class DiscoveryQueueFullException extends ResponseStatusException {
+    private final long retryAfterSeconds;
+
+    public DiscoveryQueueFullException(long retryAfterSeconds) {
+        super(HttpStatus.TOO_MANY_REQUESTS, "Discovery queue is full");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        return headers;
+    }
+}
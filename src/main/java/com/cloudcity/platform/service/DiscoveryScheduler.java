@@ -0,0 +1,72 @@
+package com.cloudcity.platform.service;
+
+import com.cloudcity.platform.repository.DiscoveryScheduleRepository;
+import java.util.concurrent.ThreadLocalRandom;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+// Keeps discovered inventory fresh without anyone calling execute. A project is registered by its
+// first completed discovery and from then on re-runs that discovery on a jittered, adaptive cadence.
+@Component
+@ConditionalOnProperty(name = "cloudcity.discovery.schedule.enabled", havingValue = "true", matchIfMissing = true)
+public class DiscoveryScheduler {
+    private final DiscoveryScheduleRepository discoveryScheduleRepository;
+    private final DiscoveryService discoveryService;
+    private final int intervalSeconds;
+    private final int maxIntervalSeconds;
+    private final double jitter;
+    private final int maxConcurrent;
+
+    public DiscoveryScheduler(DiscoveryScheduleRepository discoveryScheduleRepository,
+                              DiscoveryService discoveryService,
+                              @Value("${cloudcity.discovery.schedule.interval-seconds:21600}") int intervalSeconds,
+                              @Value("${cloudcity.discovery.schedule.max-interval-seconds:86400}") int maxIntervalSeconds,
+                              @Value("${cloudcity.discovery.schedule.jitter:0.2}") double jitter,
+                              @Value("${cloudcity.discovery.schedule.max-concurrent:20}") int maxConcurrent) {
+        this.discoveryScheduleRepository = discoveryScheduleRepository;
+        this.discoveryService = discoveryService;
+        this.intervalSeconds = Math.max(1, intervalSeconds);
+        this.maxIntervalSeconds = Math.max(this.intervalSeconds, maxIntervalSeconds);
+        this.jitter = Math.min(1, Math.max(0, jitter));
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    @EventListener
+    public void onCompleted(DiscoveryService.DiscoveryCompletedEvent event) {
+        discoveryScheduleRepository.recordCompletion(event.projectId(), event.discoveryId(), event.changed(),
+                intervalSeconds, maxIntervalSeconds, jittered(intervalSeconds));
+    }
+
+    // The cap counts every queued or running run across replicas, manual ones included. Two replicas
+    // ticking at the same moment can overshoot it by one batch; the queue's per-replica concurrency
+    // still bounds what actually executes.
+    @Scheduled(fixedDelayString = "${cloudcity.discovery.schedule.poll-interval-ms:60000}")
+    public void refreshDueProjects() {
+        int free = maxConcurrent - discoveryScheduleRepository.countActiveRuns();
+        for (DiscoveryScheduleRepository.DueSchedule due : discoveryScheduleRepository.claimDue(free, this::jittered)) {
+            try {
+                discoveryService.executeDiscovery(due.projectId(), due.discoveryId(),
+                        DiscoveryService.Priority.SCHEDULED);
+            } catch (DiscoveryQueueFullException e) {
+                // Interactive runs have the remaining room; the project refreshes on its next due time.
+            } catch (ResponseStatusException e) {
+                // The run is gone; the project's next completed discovery registers it again.
+            } catch (RuntimeException e) {
+                // The claim already moved the project a full interval ahead; retry it on the next poll
+                // and carry on with the rest of the batch.
+                discoveryScheduleRepository.release(due.projectId());
+            }
+        }
+    }
+
+    // Spreads refreshes over +/- jitter of the interval so projects registered together drift apart.
+    private int jittered(int seconds) {
+        double spread = seconds * jitter;
+        double delay = seconds - spread + ThreadLocalRandom.current().nextDouble() * 2 * spread;
+        return (int) Math.max(1, Math.round(delay));
+    }
+}
@@ -1,37 +1,58 @@
 package com.cloudcity.platform.service;
 
+import com.cloudcity.platform.api.dto.DiscoveryAccountRequest;
+import com.cloudcity.platform.api.dto.DiscoveryClientStatsResponse;
 import com.cloudcity.platform.api.dto.DiscoveryCreateRequest;
+import com.cloudcity.platform.api.dto.DiscoveryProgressEvent;
+import com.cloudcity.platform.api.dto.DiscoveryQueueResponse;
+import com.cloudcity.platform.api.dto.DiscoveryStatusResponse;
 import com.cloudcity.platform.domain.DiscoveryRun;
+import com.cloudcity.platform.domain.DiscoveryRunAccount;
 import com.cloudcity.platform.domain.Project;
+import com.cloudcity.platform.infrastructure.aws.AwsAccount;
+import com.cloudcity.platform.infrastructure.aws.AwsAssumeRoleCredentials;
+import com.cloudcity.platform.infrastructure.aws.AwsCallDeadline;
+import com.cloudcity.platform.infrastructure.aws.AwsCallStats;
+import com.cloudcity.platform.infrastructure.aws.AwsClientRegistry;
+import com.cloudcity.platform.infrastructure.aws.AwsDiscoveryContext;
+import com.cloudcity.platform.infrastructure.aws.AwsRateLimiter;
+import com.cloudcity.platform.repository.DiscoveryCheckpointRepository;
+import com.cloudcity.platform.repository.DiscoveryJobRepository;
+import com.cloudcity.platform.repository.DiscoveryRunAccountRepository;
 import com.cloudcity.platform.repository.DiscoveryRunRepository;
 import com.cloudcity.platform.repository.ProjectRepository;
-import com.cloudcity.platform.repository.ResourceNodeRepository;
-import com.cloudcity.platform.repository.ResourceEdgeRepository;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
-import com.cloudcity.platform.infrastructure.aws.AwsDiscoveryClient;
-import com.cloudcity.platform.infrastructure.aws.AwsDiscoveredResource;
-import com.cloudcity.platform.domain.ResourceNode;
-import com.cloudcity.platform.domain.ResourceType;
-import com.cloudcity.platform.domain.ResourceSource;
-import com.cloudcity.platform.domain.CloudProvider;
-import com.cloudcity.platform.domain.ResourceEdge;
-import com.cloudcity.platform.domain.RelationType;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
 import org.springframework.core.task.TaskExecutor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.transaction.support.TransactionSynchronization;
-import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @Service
 public class DiscoveryService {
@@ -39,32 +60,78 @@ public class DiscoveryService {
     private static final String STATUS_RUNNING = "RUNNING";
     private static final String STATUS_COMPLETED = "COMPLETED";
     private static final String STATUS_FAILED = "FAILED";
+    private static final String STATUS_CANCELLED = "CANCELLED";
 
     private final ProjectRepository projectRepository;
     private final DiscoveryRunRepository discoveryRunRepository;
-    private final ResourceNodeRepository resourceNodeRepository;
-    private final ResourceEdgeRepository resourceEdgeRepository;
+    private final DiscoveryRunAccountRepository discoveryRunAccountRepository;
+    private final DiscoveryCheckpointRepository checkpointRepository;
+    private final DiscoveryJobRepository discoveryJobRepository;
+    private final DiscoveryIngestService discoveryIngestService;
     private final ObjectMapper objectMapper;
-    private final TaskExecutor discoveryTaskExecutor;
+    private final TaskExecutor discoveryFanOutExecutor;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DiscoveryProgressBroadcaster progressBroadcaster;
+    private final AwsRateLimiter rateLimiter;
+    private final ObjectProvider<AwsClientRegistry> clientRegistry;
+    private final ObjectProvider<AwsAssumeRoleCredentials> assumeRoleCredentials;
     private final boolean asyncEnabled;
-    private final AwsDiscoveryClient awsDiscoveryClient;
+    private final int maxAttempts;
+    private final long retryBackoffSeconds;
+    private final long refreshIntervalMillis;
+    private final Duration runTimeout;
+    private final int maxQueued;
+    private final int interactiveReserve;
+    private final long retryAfterSeconds;
+    private final AtomicLong rejectedInteractive = new AtomicLong();
+    private final AtomicLong rejectedScheduled = new AtomicLong();
+    private final TransactionTemplate transactionTemplate;
+    private final Map<UUID, AwsCallDeadline> activeRuns = new ConcurrentHashMap<>();
 
     public DiscoveryService(ProjectRepository projectRepository,
                             DiscoveryRunRepository discoveryRunRepository,
-                            ResourceNodeRepository resourceNodeRepository,
-                            ResourceEdgeRepository resourceEdgeRepository,
+                            DiscoveryRunAccountRepository discoveryRunAccountRepository,
+                            DiscoveryCheckpointRepository checkpointRepository,
+                            DiscoveryJobRepository discoveryJobRepository,
+                            DiscoveryIngestService discoveryIngestService,
                             ObjectMapper objectMapper,
-                            TaskExecutor discoveryTaskExecutor,
+                            TaskExecutor discoveryFanOutExecutor,
+                            ApplicationEventPublisher eventPublisher,
+                            DiscoveryProgressBroadcaster progressBroadcaster,
+                            AwsRateLimiter rateLimiter,
+                            ObjectProvider<AwsClientRegistry> clientRegistry,
+                            ObjectProvider<AwsAssumeRoleCredentials> assumeRoleCredentials,
+                            PlatformTransactionManager transactionManager,
                             @Value("${cloudcity.discovery.async:true}") boolean asyncEnabled,
-                            AwsDiscoveryClient awsDiscoveryClient) {
+                            @Value("${cloudcity.discovery.queue.max-attempts:3}") int maxAttempts,
+                            @Value("${cloudcity.discovery.queue.retry-backoff-seconds:30}") long retryBackoffSeconds,
+                            @Value("${cloudcity.discovery.events.refresh-interval-ms:2000}") long refreshIntervalMillis,
+                            @Value("${cloudcity.discovery.run-timeout-seconds:1800}") long runTimeoutSeconds,
+                            @Value("${cloudcity.discovery.queue.max-queued:100}") int maxQueued,
+                            @Value("${cloudcity.discovery.queue.interactive-reserve:20}") int interactiveReserve,
+                            @Value("${cloudcity.discovery.queue.retry-after-seconds:30}") long retryAfterSeconds) {
         this.projectRepository = projectRepository;
         this.discoveryRunRepository = discoveryRunRepository;
-        this.resourceNodeRepository = resourceNodeRepository;
-        this.resourceEdgeRepository = resourceEdgeRepository;
+        this.discoveryRunAccountRepository = discoveryRunAccountRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.discoveryJobRepository = discoveryJobRepository;
+        this.discoveryIngestService = discoveryIngestService;
         this.objectMapper = objectMapper;
-        this.discoveryTaskExecutor = discoveryTaskExecutor;
+        this.discoveryFanOutExecutor = discoveryFanOutExecutor;
+        this.eventPublisher = eventPublisher;
+        this.progressBroadcaster = progressBroadcaster;
+        this.rateLimiter = rateLimiter;
+        this.clientRegistry = clientRegistry;
+        this.assumeRoleCredentials = assumeRoleCredentials;
         this.asyncEnabled = asyncEnabled;
-        this.awsDiscoveryClient = awsDiscoveryClient;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoffSeconds = retryBackoffSeconds;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+        this.runTimeout = Duration.ofSeconds(runTimeoutSeconds);
+        this.maxQueued = Math.max(1, maxQueued);
+        this.interactiveReserve = Math.min(this.maxQueued - 1, Math.max(0, interactiveReserve));
+        this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     @Transactional
@@ -72,15 +139,66 @@ public class DiscoveryService {
         Project project = projectRepository.findById(projectId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Project not found"));
 
+        List<DiscoveryRunAccount> accounts = requestedAccounts(request);
+
         DiscoveryRun run = new DiscoveryRun();
         run.setProject(project);
         run.setProvider(request.getProvider());
-        run.setAccountId(request.getAccountId());
+        run.setAccountId(request.getAccountId() != null || accounts.isEmpty()
+                ? request.getAccountId() : accounts.get(0).getAccountId());
         run.setStatus(STATUS_QUEUED);
         run.setStartedAt(OffsetDateTime.now(ZoneOffset.UTC));
+        run.setRegions(request.getRegions());
         run.setSummaryJson(serializeSummary(request));
 
-        return discoveryRunRepository.save(run);
+        DiscoveryRun saved = discoveryRunRepository.save(run);
+        accounts.forEach(account -> account.setDiscoveryRun(saved));
+        discoveryRunAccountRepository.saveAll(accounts);
+        return saved;
+    }
+
+    // The top-level account and every entry of accounts, each identified by its id or, failing
+    // that, by the account in its role ARN.
+    private List<DiscoveryRunAccount> requestedAccounts(DiscoveryCreateRequest request) {
+        List<DiscoveryAccountRequest> requested = new ArrayList<>();
+        if (request.getAccountId() != null || request.getRoleArn() != null) {
+            DiscoveryAccountRequest primary = new DiscoveryAccountRequest();
+            primary.setAccountId(request.getAccountId());
+            primary.setRoleArn(request.getRoleArn());
+            primary.setExternalId(request.getExternalId());
+            requested.add(primary);
+        }
+        if (request.getAccounts() != null) {
+            requested.addAll(request.getAccounts());
+        }
+
+        Map<String, DiscoveryRunAccount> accounts = new LinkedHashMap<>();
+        for (DiscoveryAccountRequest entry : requested) {
+            String accountId = entry.getAccountId() != null ? entry.getAccountId() : roleAccountId(entry.getRoleArn());
+            if (accountId == null || accountId.isBlank()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Discovery accounts need an accountId or a roleArn");
+            }
+            DiscoveryRunAccount account = new DiscoveryRunAccount();
+            account.setAccountId(accountId);
+            account.setRoleArn(entry.getRoleArn());
+            account.setExternalId(entry.getExternalId());
+            DiscoveryRunAccount previous = accounts.putIfAbsent(accountId, account);
+            if (previous != null && !Objects.equals(previous.getRoleArn(), account.getRoleArn())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Discovery account " + accountId + " is listed with different roles");
+            }
+        }
+        return new ArrayList<>(accounts.values());
+    }
+
+    // arn:aws:iam::<account>:role/<name>
+    private String roleAccountId(String roleArn) {
+        if (roleArn == null) {
+            return null;
+        }
+        String[] parts = roleArn.split(":");
+        return parts.length > 4 && !parts[4].isBlank() ? parts[4] : null;
     }
 
     @Transactional(readOnly = true)
@@ -89,35 +207,152 @@ public class DiscoveryService {
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Discovery run not found"));
     }
 
-    @Transactional
+    // Status polls read four columns and never touch summary_json.
+    @Transactional(readOnly = true)
+    public DiscoveryStatusResponse getStatus(UUID projectId, UUID discoveryId) {
+        DiscoveryRunRepository.StatusView status = discoveryRunRepository
+                .findStatusByIdAndProjectId(discoveryId, projectId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Discovery run not found"));
+        return new DiscoveryStatusResponse(
+                status.getId(), status.getStatus(), status.getProgress(), status.getFinishedAt());
+    }
+
+    @Transactional(readOnly = true)
+    public SseEmitter streamProgress(UUID projectId, UUID discoveryId) {
+        return progressBroadcaster.subscribe(snapshot(getDiscovery(projectId, discoveryId)));
+    }
+
+    // Watchers of runs executing on another replica get one shared database read per interval.
+    @Scheduled(fixedDelayString = "${cloudcity.discovery.events.refresh-interval-ms:2000}")
+    public void refreshRemoteProgress() {
+        for (UUID discoveryId : progressBroadcaster.watchedWithoutLocalEvents(refreshIntervalMillis)) {
+            discoveryRunRepository.findById(discoveryId)
+                    .ifPresent(run -> progressBroadcaster.publish(snapshot(run)));
+        }
+    }
+
+    // The SDK clients and role sessions only exist when discovery talks to AWS.
+    public DiscoveryClientStatsResponse getClientStats() {
+        AwsClientRegistry registry = clientRegistry.getIfAvailable();
+        AwsAssumeRoleCredentials credentials = assumeRoleCredentials.getIfAvailable();
+        if (registry == null || credentials == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "AWS clients are not in use");
+        }
+        AwsClientRegistry.Stats stats = registry.stats();
+        return new DiscoveryClientStatsResponse(
+                stats.hits(),
+                stats.misses(),
+                stats.evictions(),
+                stats.liveClients(),
+                credentials.cachedRoles()
+        );
+    }
+
+    @Transactional(readOnly = true)
+    public DiscoveryQueueResponse getQueueStats() {
+        DiscoveryJobRepository.QueueStats stats = discoveryJobRepository.queueStats();
+        return new DiscoveryQueueResponse(
+                stats.queued(),
+                stats.queuedPriority(),
+                stats.queued() - stats.queuedPriority(),
+                stats.running(),
+                maxQueued,
+                (double) stats.queued() / maxQueued,
+                rejectedInteractive.get(),
+                rejectedScheduled.get(),
+                stats.oldestQueuedAt()
+        );
+    }
+
     public DiscoveryRun executeDiscovery(UUID projectId, UUID discoveryId) {
+        return executeDiscovery(projectId, discoveryId, Priority.INTERACTIVE);
+    }
+
+    public DiscoveryRun executeDiscovery(UUID projectId, UUID discoveryId, Priority priority) {
+        Enqueued enqueued = transactionTemplate.execute(status -> enqueue(projectId, discoveryId, priority));
+        if (asyncEnabled || enqueued.merged()) {
+            return enqueued.run();
+        }
+
+        runDiscovery(projectId, discoveryId);
+        return discoveryRunRepository.findByIdAndProjectId(discoveryId, projectId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Discovery run not found"));
+    }
+
+    // Single flight per project: executes are serialized on the project row, and one arriving while
+    // another run of the project is queued or running joins that run instead of racing it over the
+    // same resource rows.
+    private Enqueued enqueue(UUID projectId, UUID discoveryId, Priority priority) {
+        projectRepository.findByIdForUpdate(projectId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Project not found"));
         DiscoveryRun run = discoveryRunRepository.findByIdAndProjectId(discoveryId, projectId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Discovery run not found"));
+        Optional<DiscoveryRun> active = discoveryRunRepository.findFirstByProjectIdAndStatusInAndAvailableAtIsNotNull(
+                projectId, List.of(STATUS_QUEUED, STATUS_RUNNING));
+        if (active.isPresent()) {
+            return new Enqueued(active.get(), true);
+        }
+        admit(priority);
 
         run.setStatus(STATUS_QUEUED);
         run.setFinishedAt(null);
-        run.setSummaryJson(updateProgress(run.getSummaryJson(), 10, false));
+        run.setAvailableAt(OffsetDateTime.now(ZoneOffset.UTC));
+        run.setAttempts(0);
+        run.setPriority(priority.value());
+        run.setLeaseOwner(null);
+        run.setLeaseExpiresAt(null);
+        run.setProgress(10);
+        run.setErrorMessage(null);
         DiscoveryRun queued = discoveryRunRepository.save(run);
+        publishStatus(queued, 10, null);
 
         if (asyncEnabled) {
-            if (TransactionSynchronizationManager.isActualTransactionActive()) {
-                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
-                    @Override
-                    public void afterCommit() {
-                        discoveryTaskExecutor.execute(() -> runDiscovery(projectId, discoveryId));
-                    }
-                });
-            } else {
-                discoveryTaskExecutor.execute(() -> runDiscovery(projectId, discoveryId));
-            }
-            return queued;
+            // The row itself is the queue entry; the event only saves the local worker a poll interval.
+            eventPublisher.publishEvent(new DiscoveryQueuedEvent(discoveryId));
         }
+        return new Enqueued(queued, false);
+    }
 
-        runDiscovery(projectId, discoveryId);
+    // Checked before the run is touched, so a rejected execute leaves nothing behind. Scheduled runs stop
+    // short of the interactive reserve, keeping room for users while refreshes back off. Executes for
+    // different projects are not serialized, so concurrent ones can overshoot the cap by a few runs.
+    private void admit(Priority priority) {
+        int limit = priority == Priority.INTERACTIVE ? maxQueued : maxQueued - interactiveReserve;
+        if (discoveryJobRepository.countQueued() < limit) {
+            return;
+        }
+        (priority == Priority.INTERACTIVE ? rejectedInteractive : rejectedScheduled).incrementAndGet();
+        throw new DiscoveryQueueFullException(retryAfterSeconds);
+    }
+
+    // Queued runs are cancelled outright. Running ones stop at their next AWS call or page: here if
+    // this replica executes them, otherwise on the owning worker's next heartbeat.
+    public DiscoveryRun cancelDiscovery(UUID projectId, UUID discoveryId) {
+        if (!discoveryRunRepository.existsByIdAndProjectId(discoveryId, projectId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Discovery run not found");
+        }
+        boolean local = cancelLocal(discoveryId);
+        if (discoveryJobRepository.cancelQueued(discoveryId)) {
+            publishCancelled(discoveryId);
+        } else if (!local && !discoveryJobRepository.requestCancel(discoveryId)) {
+            if (!discoveryJobRepository.cancelUnleased(discoveryId)) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Discovery run is not queued or running");
+            }
+            publishCancelled(discoveryId);
+        }
         return discoveryRunRepository.findByIdAndProjectId(discoveryId, projectId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Discovery run not found"));
     }
 
+    public boolean cancelLocal(UUID discoveryId) {
+        AwsCallDeadline deadline = activeRuns.get(discoveryId);
+        if (deadline == null) {
+            return false;
+        }
+        deadline.cancel("Discovery cancelled");
+        return true;
+    }
+
     private String serializeSummary(DiscoveryCreateRequest request) {
         Map<String, Object> summary = new HashMap<>();
         summary.put("regions", request.getRegions());
@@ -133,227 +368,242 @@ public class DiscoveryService {
         }
     }
 
-    private String updateProgress(String summaryJson, int progress, boolean executed) {
-        Map<String, Object> summary = new HashMap<>();
-        if (summaryJson != null && !summaryJson.isBlank()) {
-            try {
-                Object parsed = objectMapper.readValue(summaryJson, Object.class);
-                if (parsed instanceof Map) {
-                    summary.putAll((Map<String, Object>) parsed);
-                } else if (parsed instanceof String) {
-                    Object nested = objectMapper.readValue((String) parsed, Object.class);
-                    if (nested instanceof Map) {
-                        summary.putAll((Map<String, Object>) nested);
-                    }
-                }
-            } catch (JsonProcessingException e) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid discovery summary");
-            }
-        }
-        summary.put("progress", progress);
-        summary.put("executed", executed);
+    public void runDiscovery(UUID projectId, UUID discoveryId) {
+        // Registered before the run is read, so a cancel racing the start is never missed.
+        AwsCallDeadline deadline = new AwsCallDeadline(runTimeout);
+        activeRuns.put(discoveryId, deadline);
         try {
-            return objectMapper.writeValueAsString(summary);
-        } catch (JsonProcessingException e) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid discovery summary");
+            DiscoveryRun run = discoveryRunRepository.findByIdAndProjectId(discoveryId, projectId)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Discovery run not found"));
+            if (STATUS_CANCELLED.equals(run.getStatus())) {
+                return;
+            }
+            execute(projectId, run, deadline);
+        } finally {
+            activeRuns.remove(discoveryId, deadline);
         }
     }
 
-    private void runDiscovery(UUID projectId, UUID discoveryId) {
-        DiscoveryRun run = discoveryRunRepository.findByIdAndProjectId(discoveryId, projectId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Discovery run not found"));
+    // summary_json is parsed once here and written once per outcome; progress in between only
+    // touches the progress column. Every write is conditional on the run still being ours: one
+    // whose lease expired may already be executing elsewhere, and its writes are dropped.
+    private void execute(UUID projectId, DiscoveryRun run, AwsCallDeadline deadline) {
+        Map<String, Object> summary = parseSummary(run.getSummaryJson());
         try {
+            if (!discoveryJobRepository.markRunning(run.getId(), run.getLeaseOwner(), 60)) {
+                return;
+            }
             run.setStatus(STATUS_RUNNING);
-            run.setSummaryJson(updateProgress(run.getSummaryJson(), 60, false));
-            discoveryRunRepository.save(run);
+            run.setProgress(60);
+            publishStatus(run, 60, null);
 
-            List<String> regions = extractRegions(run.getSummaryJson());
+            List<String> regions = run.getRegions();
             if (regions.isEmpty()) {
                 regions = List.of("us-east-1");
             }
-            for (String region : regions) {
-                ingestRegion(projectId, region);
+            FanOutResult result = fanOutRegions(projectId, accounts(run, summary), regions, run, deadline, summary);
+
+            if (result.failedRegions().isEmpty()) {
+                summary.put("progress", 100);
+                summary.put("executed", true);
+                String summaryJson = writeSummary(summary);
+                if (!discoveryJobRepository.complete(run.getId(), run.getLeaseOwner(), summaryJson)) {
+                    return;
+                }
+                // A completed run has nothing left to resume; the next execution starts from scratch.
+                checkpointRepository.deleteAll(run.getId());
+                finished(run, STATUS_COMPLETED, null, summaryJson);
+                publishStatus(run, 100, null);
+                eventPublisher.publishEvent(new DiscoveryCompletedEvent(projectId, run.getId(),
+                        !result.changes().equals(DiscoveryIngestService.ReconcileCounts.NONE)));
+            } else {
+                String failed = String.join(", ", result.failedRegions().keySet());
+                failOrRetry(run, summary, "Discovery failed for regions " + failed, deadline);
             }
-
-            run.setStatus(STATUS_COMPLETED);
-            run.setFinishedAt(OffsetDateTime.now(ZoneOffset.UTC));
-            run.setSummaryJson(updateProgress(run.getSummaryJson(), 100, true));
-            discoveryRunRepository.save(run);
         } catch (RuntimeException e) {
-            run.setStatus(STATUS_FAILED);
-            run.setFinishedAt(OffsetDateTime.now(ZoneOffset.UTC));
-            run.setSummaryJson(updateFailure(run.getSummaryJson(), e.getMessage()));
-            discoveryRunRepository.save(run);
+            failOrRetry(run, summary, e.getMessage(), deadline);
         }
     }
 
-    private void ingestRegion(UUID projectId, String region) {
-        // Make reruns idempotent for a provider+region by replacing previously discovered resources.
-        List<ResourceNode> existingNodes = resourceNodeRepository.findAllByProjectIdAndProviderAndRegionAndSource(
-            projectId,
-            CloudProvider.AWS,
-            region,
-            ResourceSource.DISCOVERED
-        );
-        if (!existingNodes.isEmpty()) {
-            List<UUID> nodeIds = new ArrayList<>();
-            for (ResourceNode existingNode : existingNodes) {
-                nodeIds.add(existingNode.getId());
-            }
-            resourceEdgeRepository.deleteByFromNodeIdIn(nodeIds);
-            resourceEdgeRepository.deleteByToNodeIdIn(nodeIds);
-            resourceNodeRepository.deleteAll(existingNodes);
-        }
-
-        Map<String, ResourceNode> vpcsById = new HashMap<>();
-        Map<String, ResourceNode> subnetsById = new HashMap<>();
-
-        for (AwsDiscoveredResource vpc : awsDiscoveryClient.listVpc(region)) {
-            ResourceNode node = new ResourceNode();
-            node.setProject(projectRepository.getReferenceById(projectId));
-            node.setProvider(CloudProvider.AWS);
-            node.setType(ResourceType.VPC);
-            node.setName(vpc.getName());
-            node.setRegion(region);
-            node.setSource(ResourceSource.DISCOVERED);
-            node.setMetadataJson("{\"awsId\":\"" + vpc.getId() + "\"}");
-            ResourceNode saved = resourceNodeRepository.save(node);
-            vpcsById.put(vpc.getId(), saved);
-        }
-        for (AwsDiscoveredResource subnet : awsDiscoveryClient.listSubnets(region)) {
-            ResourceNode node = new ResourceNode();
-            node.setProject(projectRepository.getReferenceById(projectId));
-            node.setProvider(CloudProvider.AWS);
-            node.setType(ResourceType.SUBNET);
-            node.setName(subnet.getName());
-            node.setRegion(region);
-            node.setSource(ResourceSource.DISCOVERED);
-            node.setMetadataJson(buildMetadata(subnet.getId(), subnet.getVpcId(), null));
-            ResourceNode saved = resourceNodeRepository.save(node);
-            subnetsById.put(subnet.getId(), saved);
-
-            ResourceNode vpcNode = subnet.getVpcId() == null ? null : vpcsById.get(subnet.getVpcId());
-            if (vpcNode != null) {
-                ResourceEdge edge = new ResourceEdge();
-                edge.setProject(projectRepository.getReferenceById(projectId));
-                edge.setFromNode(vpcNode);
-                edge.setToNode(saved);
-                edge.setRelationType(RelationType.CONTAINS);
-                resourceEdgeRepository.save(edge);
+    // Only queue-claimed runs are retried; inline runs have no lease and fail straight away. Cancelled
+    // runs keep their checkpoints, so executing them again resumes where they stopped.
+    private void failOrRetry(DiscoveryRun run,
+                             Map<String, Object> summary,
+                             String errorMessage,
+                             AwsCallDeadline deadline) {
+        boolean cancelled = deadline.isCancelled();
+        boolean retry = !cancelled && run.getLeaseOwner() != null && run.getAttempts() < maxAttempts;
+        String error = cancelled ? "Discovery cancelled"
+                : errorMessage == null ? "Unknown discovery error" : errorMessage;
+        summary.put("executed", false);
+        if (retry) {
+            summary.put("lastError", error);
+            summary.put("progress", 10);
+            String summaryJson = writeSummary(summary);
+            if (!discoveryJobRepository.retry(run.getId(), run.getLeaseOwner(),
+                    Duration.ofSeconds(retryBackoffSeconds), error, summaryJson)) {
+                return;
             }
-        }
-        for (AwsDiscoveredResource instance : awsDiscoveryClient.listInstances(region)) {
-            ResourceNode node = new ResourceNode();
-            node.setProject(projectRepository.getReferenceById(projectId));
-            node.setProvider(CloudProvider.AWS);
-            node.setType(ResourceType.EC2);
-            node.setName(instance.getName());
-            node.setRegion(region);
-            node.setSource(ResourceSource.DISCOVERED);
-            node.setMetadataJson(buildMetadata(instance.getId(), instance.getVpcId(), instance.getSubnetId()));
-            ResourceNode saved = resourceNodeRepository.save(node);
-
-            ResourceNode subnetNode = instance.getSubnetId() == null ? null : subnetsById.get(instance.getSubnetId());
-            if (subnetNode != null) {
-                ResourceEdge edge = new ResourceEdge();
-                edge.setProject(projectRepository.getReferenceById(projectId));
-                edge.setFromNode(subnetNode);
-                edge.setToNode(saved);
-                edge.setRelationType(RelationType.CONTAINS);
-                resourceEdgeRepository.save(edge);
+            run.setStatus(STATUS_QUEUED);
+            run.setAvailableAt(OffsetDateTime.now(ZoneOffset.UTC).plusSeconds(retryBackoffSeconds * run.getAttempts()));
+            run.setLeaseOwner(null);
+            run.setLeaseExpiresAt(null);
+            run.setProgress(10);
+            run.setErrorMessage(error);
+            run.setSummaryJson(summaryJson);
+        } else {
+            String status = cancelled ? STATUS_CANCELLED : STATUS_FAILED;
+            summary.put("failed", true);
+            summary.put("error", error);
+            summary.put("progress", 100);
+            String summaryJson = writeSummary(summary);
+            if (!discoveryJobRepository.finish(run.getId(), run.getLeaseOwner(), status, error, summaryJson)) {
+                return;
             }
+            finished(run, status, error, summaryJson);
         }
+        publishStatus(run, run.getProgress(), error);
+    }
 
-        for (AwsDiscoveredResource sg : awsDiscoveryClient.listSecurityGroups(region)) {
-            ResourceNode node = new ResourceNode();
-            node.setProject(projectRepository.getReferenceById(projectId));
-            node.setProvider(CloudProvider.AWS);
-            node.setType(ResourceType.SG);
-            node.setName(sg.getName());
-            node.setRegion(region);
-            node.setSource(ResourceSource.DISCOVERED);
-            node.setMetadataJson(buildMetadata(sg.getId(), sg.getVpcId(), null));
-            ResourceNode saved = resourceNodeRepository.save(node);
-
-            ResourceNode vpcNode = sg.getVpcId() == null ? null : vpcsById.get(sg.getVpcId());
-            if (vpcNode != null) {
-                ResourceEdge edge = new ResourceEdge();
-                edge.setProject(projectRepository.getReferenceById(projectId));
-                edge.setFromNode(vpcNode);
-                edge.setToNode(saved);
-                edge.setRelationType(RelationType.CONTAINS);
-                resourceEdgeRepository.save(edge);
-            }
+    // Mirrors a terminal write onto the entity, which callers of inline runs read back.
+    private void finished(DiscoveryRun run, String status, String errorMessage, String summaryJson) {
+        run.setStatus(status);
+        run.setFinishedAt(OffsetDateTime.now(ZoneOffset.UTC));
+        run.setLeaseOwner(null);
+        run.setLeaseExpiresAt(null);
+        run.setProgress(100);
+        run.setErrorMessage(errorMessage);
+        run.setSummaryJson(summaryJson);
+    }
+
+    private void publishStatus(DiscoveryRun run, int progress, String message) {
+        progressBroadcaster.publish(new DiscoveryProgressEvent(
+                run.getId(), DiscoveryProgressEvent.STATUS, run.getStatus(), progress, null, null, null, message));
+    }
+
+    private void publishCancelled(UUID discoveryId) {
+        progressBroadcaster.publish(new DiscoveryProgressEvent(
+                discoveryId, DiscoveryProgressEvent.STATUS, STATUS_CANCELLED, 100, null, null, null, null));
+    }
+
+    private DiscoveryProgressEvent snapshot(DiscoveryRun run) {
+        return new DiscoveryProgressEvent(
+                run.getId(), DiscoveryProgressEvent.STATUS, run.getStatus(), run.getProgress(), null, null, null, null);
+    }
+
+    // Runs created before accounts were stored fall back to the account and role kept in the summary.
+    private List<AwsAccount> accounts(DiscoveryRun run, Map<String, Object> summary) {
+        List<AwsAccount> accounts = discoveryRunAccountRepository
+                .findAllByDiscoveryRunIdOrderByAccountId(run.getId()).stream()
+                .map(account -> new AwsAccount(account.getAccountId(), account.getRoleArn(), account.getExternalId()))
+                .toList();
+        if (!accounts.isEmpty()) {
+            return accounts;
         }
+        return List.of(new AwsAccount(run.getAccountId(),
+                (String) summary.get("roleArn"), (String) summary.get("externalId")));
+    }
 
-        for (AwsDiscoveredResource lb : awsDiscoveryClient.listLoadBalancers(region)) {
-            ResourceNode node = new ResourceNode();
-            node.setProject(projectRepository.getReferenceById(projectId));
-            node.setProvider(CloudProvider.AWS);
-            node.setType(ResourceType.ELB);
-            node.setName(lb.getName());
-            node.setRegion(region);
-            node.setSource(ResourceSource.DISCOVERED);
-            node.setMetadataJson(buildMetadata(lb.getId(), lb.getVpcId(), lb.getSubnetId()));
-            ResourceNode saved = resourceNodeRepository.save(node);
-
-            ResourceNode subnetNode = lb.getSubnetId() == null ? null : subnetsById.get(lb.getSubnetId());
-            if (subnetNode != null) {
-                ResourceEdge edge = new ResourceEdge();
-                edge.setProject(projectRepository.getReferenceById(projectId));
-                edge.setFromNode(subnetNode);
-                edge.setToNode(saved);
-                edge.setRelationType(RelationType.CONTAINS);
-                resourceEdgeRepository.save(edge);
+    // Every account is discovered in every region; each pair is ingested, checkpointed and reported
+    // on its own. Pairs are labelled by region alone when the run covers a single account.
+    private FanOutResult fanOutRegions(UUID projectId,
+                                       List<AwsAccount> accounts,
+                                       List<String> regions,
+                                       DiscoveryRun run,
+                                       AwsCallDeadline deadline,
+                                       Map<String, Object> summary) {
+        boolean multiAccount = accounts.size() > 1;
+        BlockingQueue<RegionOutcome> outcomes = new LinkedBlockingQueue<>();
+        AwsCallStats callStats = new AwsCallStats();
+        List<String> resumedRegions = new ArrayList<>();
+        int targets = 0;
+        int pending = 0;
+        for (AwsAccount account : accounts) {
+            // Regions checkpointed by an earlier attempt of this run (a retry, a lost lease or a
+            // re-execute after failure) are already reconciled and are not listed again.
+            Set<String> checkpointed = checkpointRepository.findCompletedRegions(run.getId(), account.accountId());
+            for (String region : regions) {
+                String label = multiAccount ? account.accountId() + "/" + region : region;
+                targets++;
+                if (checkpointed.contains(region)) {
+                    resumedRegions.add(label);
+                    continue;
+                }
+                pending++;
+                AwsDiscoveryContext context = new AwsDiscoveryContext(account, region, callStats, deadline);
+                ingestRegionAsync(projectId, run.getId(), context)
+                        .whenComplete((counts, error) -> outcomes.add(new RegionOutcome(label, counts, unwrap(error))));
             }
         }
 
-        for (AwsDiscoveredResource rds : awsDiscoveryClient.listRdsInstances(region)) {
-            ResourceNode node = new ResourceNode();
-            node.setProject(projectRepository.getReferenceById(projectId));
-            node.setProvider(CloudProvider.AWS);
-            node.setType(ResourceType.RDS);
-            node.setName(rds.getName());
-            node.setRegion(region);
-            node.setSource(ResourceSource.DISCOVERED);
-            node.setMetadataJson(buildMetadata(rds.getId(), rds.getVpcId(), rds.getSubnetId()));
-            ResourceNode saved = resourceNodeRepository.save(node);
-
-            ResourceNode subnetNode = rds.getSubnetId() == null ? null : subnetsById.get(rds.getSubnetId());
-            if (subnetNode != null) {
-                ResourceEdge edge = new ResourceEdge();
-                edge.setProject(projectRepository.getReferenceById(projectId));
-                edge.setFromNode(subnetNode);
-                edge.setToNode(saved);
-                edge.setRelationType(RelationType.CONTAINS);
-                resourceEdgeRepository.save(edge);
+        // Only this thread writes the run row; region workers never contend on it.
+        List<String> completedRegions = new ArrayList<>(resumedRegions);
+        Map<String, String> failedRegions = new LinkedHashMap<>();
+        DiscoveryIngestService.ReconcileCounts changes = DiscoveryIngestService.ReconcileCounts.NONE;
+        for (int i = 0; i < pending; i++) {
+            RegionOutcome outcome;
+            try {
+                outcome = outcomes.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Discovery interrupted", e);
+            }
+            String error = null;
+            if (outcome.error() == null) {
+                completedRegions.add(outcome.region());
+                changes = changes.plus(outcome.counts());
+            } else {
+                error = outcome.error().getMessage() == null
+                        ? outcome.error().getClass().getSimpleName()
+                        : outcome.error().getMessage();
+                failedRegions.put(outcome.region(), error);
             }
+            int progress = 60 + (40 * (completedRegions.size() + failedRegions.size())) / (targets + 1);
+            run.setProgress(progress);
+            discoveryJobRepository.updateProgress(run.getId(), run.getLeaseOwner(), progress);
+            progressBroadcaster.publish(new DiscoveryProgressEvent(run.getId(), DiscoveryProgressEvent.REGION,
+                    error == null ? STATUS_COMPLETED : STATUS_FAILED, progress, outcome.region(), null, null, error));
         }
+        summary.put("completedRegions", completedRegions);
+        summary.put("failedRegions", failedRegions);
+        summary.put("resumedRegions", resumedRegions);
+        summary.put("changes", Map.of(
+                "nodes", Map.of(
+                        "inserted", changes.nodesInserted(),
+                        "updated", changes.nodesUpdated(),
+                        "deleted", changes.nodesDeleted()),
+                "edges", Map.of(
+                        "inserted", changes.edgesInserted(),
+                        "updated", changes.edgesUpdated(),
+                        "deleted", changes.edgesDeleted())
+        ));
+        // The retry budget is shared by every run, so a low balance here means retries are being refused.
+        summary.put("throttling", Map.of(
+                "throttled", callStats.getThrottled(),
+                "waitMs", callStats.getWaitMillis(),
+                "retryBudgetRemaining", rateLimiter.retryBudgetRemaining()
+        ));
+        return new FanOutResult(failedRegions, changes);
     }
 
-    private List<String> extractRegions(String summaryJson) {
-        if (summaryJson == null || summaryJson.isBlank()) {
-            return List.of();
-        }
-        try {
-            Object parsed = objectMapper.readValue(summaryJson, Object.class);
-            Map<String, Object> summary = parsed instanceof Map ? (Map<String, Object>) parsed : Map.of();
-            Object regions = summary.get("regions");
-            if (regions instanceof List) {
-                return (List<String>) regions;
-            }
-            return List.of();
-        } catch (JsonProcessingException e) {
-            return List.of();
+    private CompletableFuture<DiscoveryIngestService.ReconcileCounts> ingestRegionAsync(UUID projectId,
+                                                                                       UUID discoveryId,
+                                                                                       AwsDiscoveryContext context) {
+        return CompletableFuture.supplyAsync(() -> discoveryIngestService.ingestRegion(projectId, discoveryId, context,
+                (type, count) -> progressBroadcaster.publish(new DiscoveryProgressEvent(discoveryId,
+                        DiscoveryProgressEvent.RESOURCE, STATUS_RUNNING, null, context.region(), type.name(), count,
+                        null))),
+                discoveryFanOutExecutor);
+    }
+
+    private Throwable unwrap(Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            return error.getCause();
         }
+        return error;
     }
 
-    private String updateFailure(String summaryJson, String errorMessage) {
-        Map<String, Object> summary = parseSummary(summaryJson);
-        summary.put("progress", 100);
-        summary.put("executed", false);
-        summary.put("failed", true);
-        summary.put("error", errorMessage == null ? "Unknown discovery error" : errorMessage);
+    private String writeSummary(Map<String, Object> summary) {
         try {
             return objectMapper.writeValueAsString(summary);
         } catch (JsonProcessingException e) {
@@ -382,16 +632,34 @@ public class DiscoveryService {
         }
     }
 
-    private String buildMetadata(String awsId, String vpcId, String subnetId) {
-        StringBuilder builder = new StringBuilder();
-        builder.append("{\"awsId\":\"").append(awsId).append("\"");
-        if (vpcId != null && !vpcId.isBlank()) {
-            builder.append(",\"vpcId\":\"").append(vpcId).append("\"");
+    // Workers claim higher values first; within a priority, runs go in available_at order.
+    public enum Priority {
+        SCHEDULED(0),
+        INTERACTIVE(1);
+
+        private final int value;
+
+        Priority(int value) {
+            this.value = value;
         }
-        if (subnetId != null && !subnetId.isBlank()) {
-            builder.append(",\"subnetId\":\"").append(subnetId).append("\"");
+
+        public int value() {
+            return value;
         }
-        builder.append("}");
-        return builder.toString();
+    }
+
+    public record DiscoveryQueuedEvent(UUID discoveryId) {
+    }
+
+    public record DiscoveryCompletedEvent(UUID projectId, UUID discoveryId, boolean changed) {
+    }
+
+    private record FanOutResult(Map<String, String> failedRegions, DiscoveryIngestService.ReconcileCounts changes) {
+    }
+
+    private record Enqueued(DiscoveryRun run, boolean merged) {
+    }
+
+    private record RegionOutcome(String region, DiscoveryIngestService.ReconcileCounts counts, Throwable error) {
     }
 }
@@ -0,0 +1,120 @@
+package com.cloudcity.platform.service;
+
+import com.cloudcity.platform.repository.DiscoveryJobRepository;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+// Pulls queued runs from discovery_runs. Every replica runs one of these; a run whose owner stops
+// heartbeating is put back on the queue by whichever replica notices the expired lease first.
+// Heartbeats run on the worker's own thread: a busy shared scheduler must never cost it its leases.
+@Component
+@ConditionalOnProperty(name = "cloudcity.discovery.async", havingValue = "true", matchIfMissing = true)
+public class DiscoveryWorker implements DisposableBean {
+    private final DiscoveryJobRepository discoveryJobRepository;
+    private final DiscoveryService discoveryService;
+    private final TaskExecutor discoveryTaskExecutor;
+    private final Semaphore slots;
+    private final Set<UUID> leasedRuns = ConcurrentHashMap.newKeySet();
+    private final String owner;
+    private final Duration lease;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final ThreadPoolTaskScheduler heartbeatScheduler = new ThreadPoolTaskScheduler();
+
+    public DiscoveryWorker(DiscoveryJobRepository discoveryJobRepository,
+                           DiscoveryService discoveryService,
+                           TaskExecutor discoveryTaskExecutor,
+                           @Value("${cloudcity.discovery.queue.concurrency:4}") int concurrency,
+                           @Value("${cloudcity.discovery.queue.lease-seconds:120}") long leaseSeconds,
+                           @Value("${cloudcity.discovery.queue.max-attempts:3}") int maxAttempts,
+                           @Value("${cloudcity.discovery.queue.retry-backoff-seconds:30}") long retryBackoffSeconds,
+                           @Value("${cloudcity.discovery.queue.heartbeat-interval-ms:30000}") long heartbeatMs) {
+        this.discoveryJobRepository = discoveryJobRepository;
+        this.discoveryService = discoveryService;
+        this.discoveryTaskExecutor = discoveryTaskExecutor;
+        this.slots = new Semaphore(Math.max(1, concurrency));
+        this.owner = System.getenv().getOrDefault("HOSTNAME", "discovery-worker") + "-" + UUID.randomUUID();
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoff = Duration.ofSeconds(retryBackoffSeconds);
+        heartbeatScheduler.setPoolSize(1);
+        heartbeatScheduler.setThreadNamePrefix("discovery-heartbeat-");
+        heartbeatScheduler.initialize();
+        heartbeatScheduler.scheduleWithFixedDelay(this::heartbeat, Duration.ofMillis(heartbeatMs));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onQueued(DiscoveryService.DiscoveryQueuedEvent event) {
+        poll();
+    }
+
+    // Claims only as many runs as there are free slots, so nothing sits leased in a local queue.
+    @Scheduled(fixedDelayString = "${cloudcity.discovery.queue.poll-interval-ms:1000}")
+    public synchronized void poll() {
+        int free = slots.availablePermits();
+        if (free == 0) {
+            return;
+        }
+        List<DiscoveryJobRepository.ClaimedRun> claimed = discoveryJobRepository.claim(owner, free, lease);
+        for (DiscoveryJobRepository.ClaimedRun run : claimed) {
+            slots.acquireUninterruptibly();
+            leasedRuns.add(run.id());
+            try {
+                discoveryTaskExecutor.execute(() -> {
+                    try {
+                        discoveryService.runDiscovery(run.projectId(), run.id());
+                    } finally {
+                        release(run.id());
+                    }
+                });
+            } catch (TaskRejectedException e) {
+                // The lease runs out and another poll picks the run up again.
+                release(run.id());
+            }
+        }
+    }
+
+    public void heartbeat() {
+        if (leasedRuns.isEmpty()) {
+            return;
+        }
+        // A lost lease may already be requeued and claimed elsewhere; the local execution stops at
+        // its next AWS call and its remaining writes are dropped.
+        for (UUID runId : discoveryJobRepository.heartbeat(List.copyOf(leasedRuns), owner, lease)) {
+            leasedRuns.remove(runId);
+            discoveryService.cancelLocal(runId);
+        }
+        // Cancels sent to another replica reach the run here.
+        for (UUID runId : discoveryJobRepository.findCancelRequested(List.copyOf(leasedRuns), owner)) {
+            discoveryService.cancelLocal(runId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cloudcity.discovery.queue.recovery-interval-ms:30000}")
+    public void recoverExpiredLeases() {
+        discoveryJobRepository.recoverExpired(maxAttempts, retryBackoff);
+    }
+
+    @Override
+    public void destroy() {
+        heartbeatScheduler.shutdown();
+    }
+
+    private void release(UUID runId) {
+        leasedRuns.remove(runId);
+        slots.release();
+    }
+}
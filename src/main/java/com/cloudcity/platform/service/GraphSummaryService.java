@@ -0,0 +1,168 @@
+package com.cloudcity.platform.service;
+
+import com.cloudcity.platform.domain.ResourceType;
+import com.cloudcity.platform.repository.GraphSummaryRepository;
+import com.cloudcity.platform.repository.ResourceEdgeRepository;
+import com.cloudcity.platform.repository.ResourceNodeRepository;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Keeps /graph/summary a read of a few rows. A project's summary is created with the project, every
+// graph change applies its delta in its own transaction, and the verifier repairs whatever drifted
+// (a write made outside the services). The verifier works through a bounded batch of projects per
+// poll on its own thread, so it never holds a scheduler thread the worker's heartbeat or polls are
+// waiting for.
+@Service
+public class GraphSummaryService {
+    private static final String UNKNOWN_REGION = "unknown";
+
+    private final GraphSummaryRepository summaryRepository;
+    private final ResourceNodeRepository nodeRepository;
+    private final ResourceEdgeRepository edgeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor graphSummaryVerifyExecutor;
+    private final int verifyBatchSize;
+    private final AtomicBoolean verifying = new AtomicBoolean();
+
+    public GraphSummaryService(GraphSummaryRepository summaryRepository,
+                               ResourceNodeRepository nodeRepository,
+                               ResourceEdgeRepository edgeRepository,
+                               PlatformTransactionManager transactionManager,
+                               TaskExecutor graphSummaryVerifyExecutor,
+                               @Value("${cloudcity.graph.summary.verify-batch-size:20}") int verifyBatchSize) {
+        this.summaryRepository = summaryRepository;
+        this.nodeRepository = nodeRepository;
+        this.edgeRepository = edgeRepository;
+        this.graphSummaryVerifyExecutor = graphSummaryVerifyExecutor;
+        this.verifyBatchSize = Math.max(1, verifyBatchSize);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // Must run in the transaction that made the change, so both commit or roll back together.
+    public void apply(UUID projectId, Delta delta) {
+        if (!delta.isEmpty()) {
+            summaryRepository.apply(projectId, delta.edges, new ArrayList<>(delta.nodes.values()));
+        }
+    }
+
+    // Must run in the transaction that creates the project.
+    public void create(UUID projectId) {
+        summaryRepository.insert(projectId, new GraphSummaryRepository.Snapshot(0, List.of()));
+    }
+
+    // Only reads, so it is safe in a read-only transaction. A project saved without going through
+    // ProjectService has no summary row and is summed up on the spot instead.
+    public GraphSummaryRepository.Snapshot read(UUID projectId) {
+        return summaryRepository.find(projectId).orElseGet(() -> recompute(projectId));
+    }
+
+    // Skips the poll while the previous batch is still running.
+    @Scheduled(fixedDelayString = "${cloudcity.graph.summary.verify-interval-ms:60000}")
+    public void scheduleVerification() {
+        if (!verifying.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            graphSummaryVerifyExecutor.execute(() -> {
+                try {
+                    verifyBatch();
+                } finally {
+                    verifying.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            verifying.set(false);
+            throw e;
+        }
+    }
+
+    public int verifyBatch() {
+        int corrected = 0;
+        for (UUID projectId : summaryRepository.findProjectIdsToVerify(verifyBatchSize)) {
+            try {
+                if (verify(projectId)) {
+                    corrected++;
+                }
+            } catch (RuntimeException e) {
+                // Left unverified, so it comes up first again on the next poll.
+            }
+        }
+        return corrected;
+    }
+
+    // The lock makes writers of the project wait, so the recompute sees every committed change and
+    // no delta lands between it and the rewrite.
+    public boolean verify(UUID projectId) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            if (!summaryRepository.lock(projectId)) {
+                return false;
+            }
+            GraphSummaryRepository.Snapshot actual = recompute(projectId);
+            if (actual.equals(summaryRepository.find(projectId).orElseThrow())) {
+                summaryRepository.markVerified(projectId);
+                return false;
+            }
+            summaryRepository.replace(projectId, actual);
+            return true;
+        }));
+    }
+
+    private GraphSummaryRepository.Snapshot recompute(UUID projectId) {
+        Delta totals = new Delta();
+        for (ResourceNodeRepository.RollupView rollup : nodeRepository.summarizeByTypeAndRegion(projectId)) {
+            totals.node(rollup.getType(), rollup.getRegion(), rollup.getNodeCount(), rollup.getEstimatedCost());
+        }
+        return new GraphSummaryRepository.Snapshot(edgeRepository.countByProjectId(projectId),
+                GraphSummaryRepository.Snapshot.ordered(List.copyOf(totals.nodes.values())));
+    }
+
+    public static String regionKey(String region) {
+        return region == null || region.isBlank() ? UNKNOWN_REGION : region;
+    }
+
+    // Changes to a project's graph, folded per (type, region) so a batch costs one statement per pair.
+    public static final class Delta {
+        private final Map<RollupKey, GraphSummaryRepository.Rollup> nodes = new HashMap<>();
+        private long edges;
+
+        public Delta node(ResourceType type, String region, long count, BigDecimal cost) {
+            RollupKey key = new RollupKey(type, regionKey(region));
+            BigDecimal amount = cost == null ? BigDecimal.ZERO : cost;
+            nodes.merge(key, new GraphSummaryRepository.Rollup(type, key.region(), count, amount),
+                    (current, added) -> new GraphSummaryRepository.Rollup(type, key.region(),
+                            current.nodeCount() + added.nodeCount(),
+                            current.estimatedCost().add(added.estimatedCost())));
+            return this;
+        }
+
+        public Delta edges(long count) {
+            edges += count;
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return edges == 0 && nodes.isEmpty();
+        }
+
+        public void clear() {
+            nodes.clear();
+            edges = 0;
+        }
+    }
+
+    private record RollupKey(ResourceType type, String region) {
+    }
+}
@@ -18,13 +18,16 @@ public class ProjectService {
     private final OrgRepository orgRepository;
     private final ProjectRepository projectRepository;
     private final AccessControlService accessControlService;
+    private final GraphSummaryService graphSummaryService;
 
     public ProjectService(OrgRepository orgRepository,
                           ProjectRepository projectRepository,
-                          AccessControlService accessControlService) {
+                          AccessControlService accessControlService,
+                          GraphSummaryService graphSummaryService) {
         this.orgRepository = orgRepository;
         this.projectRepository = projectRepository;
         this.accessControlService = accessControlService;
+        this.graphSummaryService = graphSummaryService;
     }
 
     @Transactional
@@ -38,7 +41,10 @@ public class ProjectService {
         project.setDescription(request.getDescription());
         project.setMonthlyBudget(request.getMonthlyBudget());
         project.setBudgetWarningThreshold(request.getBudgetWarningThreshold());
-        return projectRepository.save(project);
+        // Flushed first: the summary row references the project.
+        Project saved = projectRepository.saveAndFlush(project);
+        graphSummaryService.create(saved.getId());
+        return saved;
     }
 
     @Transactional(readOnly = true)
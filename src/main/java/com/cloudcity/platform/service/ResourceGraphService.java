@@ -1,30 +1,46 @@
 package com.cloudcity.platform.service;
 
 import com.cloudcity.platform.api.dto.GraphCostHotspotResponse;
+import com.cloudcity.platform.api.dto.GraphFilterRequest;
 import com.cloudcity.platform.api.dto.GraphHealthIssueResponse;
 import com.cloudcity.platform.api.dto.GraphHealthResponse;
 import com.cloudcity.platform.api.dto.GraphSummaryResponse;
+import com.cloudcity.platform.api.dto.ResourceEdgePageResponse;
 import com.cloudcity.platform.api.dto.ResourceEdgeRequest;
+import com.cloudcity.platform.api.dto.ResourceEdgeResponse;
+import com.cloudcity.platform.api.dto.ResourceNodePageResponse;
 import com.cloudcity.platform.api.dto.ResourceNodeRequest;
+import com.cloudcity.platform.api.dto.ResourceNodeResponse;
 import com.cloudcity.platform.api.dto.ResourceNodeUpdateRequest;
 import com.cloudcity.platform.domain.Project;
 import com.cloudcity.platform.domain.RelationType;
 import com.cloudcity.platform.domain.ResourceEdge;
 import com.cloudcity.platform.domain.ResourceNode;
 import com.cloudcity.platform.domain.ResourceType;
+import com.cloudcity.platform.repository.GraphHealthRepository;
+import com.cloudcity.platform.repository.GraphQueryRepository;
+import com.cloudcity.platform.repository.GraphSummaryRepository;
 import com.cloudcity.platform.repository.ProjectRepository;
 import com.cloudcity.platform.repository.ResourceEdgeRepository;
 import com.cloudcity.platform.repository.ResourceNodeRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.Comparator;
-import java.util.HashSet;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.IntSupplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -34,6 +50,8 @@ import org.springframework.web.server.ResponseStatusException;
 public class ResourceGraphService {
     private static final Map<ResourceType, Set<ResourceType>> CONTAINS_RULES;
     private static final Map<ResourceType, Set<ResourceType>> CONNECTS_RULES;
+    private static final Set<ResourceType> REGION_REQUIRED = EnumSet.of(
+            ResourceType.VPC, ResourceType.SUBNET, ResourceType.EC2, ResourceType.RDS, ResourceType.ELB);
 
     static {
         Map<ResourceType, Set<ResourceType>> contains = new EnumMap<>(ResourceType.class);
@@ -50,13 +68,34 @@ public class ResourceGraphService {
     private final ProjectRepository projectRepository;
     private final ResourceNodeRepository nodeRepository;
     private final ResourceEdgeRepository edgeRepository;
+    private final GraphSummaryService summaryService;
+    private final GraphHealthRepository healthRepository;
+    private final GraphQueryRepository queryRepository;
+    private final ObjectMapper objectMapper;
+    private final int maxExternalIdLookup;
+    private final int maxHealthIssues;
+    private final int maxPageLimit;
 
     public ResourceGraphService(ProjectRepository projectRepository,
                                 ResourceNodeRepository nodeRepository,
-                                ResourceEdgeRepository edgeRepository) {
+                                ResourceEdgeRepository edgeRepository,
+                                GraphSummaryService summaryService,
+                                GraphHealthRepository healthRepository,
+                                GraphQueryRepository queryRepository,
+                                ObjectMapper objectMapper,
+                                @Value("${cloudcity.graph.max-external-id-lookup:500}") int maxExternalIdLookup,
+                                @Value("${cloudcity.graph.health.max-issues:1000}") int maxHealthIssues,
+                                @Value("${cloudcity.graph.page.max-limit:5000}") int maxPageLimit) {
         this.projectRepository = projectRepository;
         this.nodeRepository = nodeRepository;
         this.edgeRepository = edgeRepository;
+        this.summaryService = summaryService;
+        this.healthRepository = healthRepository;
+        this.queryRepository = queryRepository;
+        this.objectMapper = objectMapper;
+        this.maxExternalIdLookup = maxExternalIdLookup;
+        this.maxHealthIssues = maxHealthIssues;
+        this.maxPageLimit = maxPageLimit;
     }
 
     @Transactional
@@ -70,16 +109,22 @@ public class ResourceGraphService {
         node.setRegion(request.getRegion());
         node.setZone(request.getZone());
         node.setState(request.getState());
+        node.setExternalId(request.getExternalId());
         node.setSource(request.getSource());
         node.setCostEstimate(request.getCostEstimate());
         node.setMetadataJson(request.getMetadataJson());
-        return nodeRepository.save(node);
+        ResourceNode saved = nodeRepository.save(node);
+        summaryService.apply(projectId, new GraphSummaryService.Delta()
+                .node(saved.getType(), saved.getRegion(), 1, saved.getCostEstimate()));
+        return saved;
     }
 
     @Transactional
     public ResourceNode updateNode(UUID projectId, UUID nodeId, ResourceNodeUpdateRequest request) {
         ResourceNode node = nodeRepository.findByIdAndProjectId(nodeId, projectId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Node not found"));
+        GraphSummaryService.Delta delta = new GraphSummaryService.Delta()
+                .node(node.getType(), node.getRegion(), -1, negate(node.getCostEstimate()));
 
         if (request.getProvider() != null) {
             node.setProvider(request.getProvider());
@@ -109,14 +154,21 @@ public class ResourceGraphService {
             node.setMetadataJson(request.getMetadataJson());
         }
 
-        return nodeRepository.save(node);
+        ResourceNode saved = nodeRepository.save(node);
+        summaryService.apply(projectId, delta.node(saved.getType(), saved.getRegion(), 1, saved.getCostEstimate()));
+        return saved;
     }
 
     @Transactional
     public void deleteNode(UUID projectId, UUID nodeId) {
         ResourceNode node = nodeRepository.findByIdAndProjectId(nodeId, projectId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Node not found"));
+        // The node's edges go with it through the foreign keys' on delete cascade.
+        long edges = edgeRepository.countByFromNodeIdOrToNodeId(nodeId, nodeId);
         nodeRepository.delete(node);
+        summaryService.apply(projectId, new GraphSummaryService.Delta()
+                .node(node.getType(), node.getRegion(), -1, negate(node.getCostEstimate()))
+                .edges(-edges));
     }
 
     @Transactional
@@ -134,7 +186,9 @@ public class ResourceGraphService {
         edge.setFromNode(fromNode);
         edge.setToNode(toNode);
         edge.setRelationType(request.getRelationType());
-        return edgeRepository.save(edge);
+        ResourceEdge saved = edgeRepository.save(edge);
+        summaryService.apply(projectId, new GraphSummaryService.Delta().edges(1));
+        return saved;
     }
 
     @Transactional
@@ -142,39 +196,94 @@ public class ResourceGraphService {
         ResourceEdge edge = edgeRepository.findByIdAndProjectId(edgeId, projectId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Edge not found"));
         edgeRepository.delete(edge);
+        summaryService.apply(projectId, new GraphSummaryService.Delta().edges(-1));
     }
 
+    // Writes {"nodes": [...], "edges": [...]} row by row as it reads, so memory stays flat however
+    // large the graph is. The transaction keeps the cursors open until both arrays are written.
     @Transactional(readOnly = true)
-    public List<ResourceNode> getNodes(UUID projectId) {
+    public void writeGraph(UUID projectId, GraphFilterRequest filter, OutputStream out) throws IOException {
         findProject(projectId);
-        return nodeRepository.findAllByProjectId(projectId);
+        GraphQueryRepository.NodeFilter nodeFilter = toNodeFilter(filter);
+        try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("nodes");
+            try (Stream<GraphQueryRepository.NodeView> nodes = queryRepository.streamNodes(projectId, nodeFilter)) {
+                for (Iterator<GraphQueryRepository.NodeView> it = nodes.iterator(); it.hasNext(); ) {
+                    generator.writeObject(toNodeResponse(it.next()));
+                }
+            }
+            generator.writeEndArray();
+            generator.writeArrayFieldStart("edges");
+            try (Stream<GraphQueryRepository.EdgeView> edges =
+                         queryRepository.streamEdges(projectId, nodeFilter, filter.getRelationType())) {
+                for (Iterator<GraphQueryRepository.EdgeView> it = edges.iterator(); it.hasNext(); ) {
+                    generator.writeObject(toEdgeResponse(it.next()));
+                }
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
     }
 
     @Transactional(readOnly = true)
-    public List<ResourceEdge> getEdges(UUID projectId) {
+    public ResourceNodePageResponse getNodePage(UUID projectId, GraphFilterRequest filter, UUID after, int limit) {
         findProject(projectId);
-        return edgeRepository.findAllByProjectId(projectId);
+        checkPageLimit(limit);
+        List<GraphQueryRepository.NodeView> page =
+                queryRepository.findNodes(projectId, toNodeFilter(filter), after, limit);
+        return new ResourceNodePageResponse(toNodeResponses(page),
+                page.size() < limit ? null : page.get(page.size() - 1).id());
+    }
+
+    // Node filters apply to both ends, so the edges match the nodes loaded with the same filters.
+    @Transactional(readOnly = true)
+    public ResourceEdgePageResponse getEdgePage(UUID projectId, GraphFilterRequest filter, UUID after, int limit) {
+        findProject(projectId);
+        checkPageLimit(limit);
+        List<GraphQueryRepository.EdgeView> page = queryRepository.findEdges(projectId, toNodeFilter(filter),
+                filter.getRelationType(), after, limit);
+        return new ResourceEdgePageResponse(toEdgeResponses(page),
+                page.size() < limit ? null : page.get(page.size() - 1).id());
+    }
+
+    // Served by the (project_id, external_id) index, so console ids resolve without a project scan.
+    @Transactional(readOnly = true)
+    public List<ResourceNode> findNodesByExternalId(UUID projectId, List<String> externalIds) {
+        findProject(projectId);
+        Set<String> distinct = externalIds.stream()
+                .filter(id -> id != null && !id.isBlank())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (distinct.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At least one externalId is required");
+        }
+        if (distinct.size() > maxExternalIdLookup) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + maxExternalIdLookup + " externalIds per lookup");
+        }
+        return nodeRepository.findAllByProjectIdAndExternalIdIn(projectId, distinct);
     }
 
     @Transactional(readOnly = true)
     public GraphSummaryResponse getGraphSummary(UUID projectId) {
         findProject(projectId);
-        List<ResourceNode> nodes = nodeRepository.findAllByProjectId(projectId);
-        List<ResourceEdge> edges = edgeRepository.findAllByProjectId(projectId);
+        GraphSummaryRepository.Snapshot snapshot = summaryService.read(projectId);
 
+        long totalNodes = 0;
         Map<String, Long> nodeCountByType = new HashMap<>();
         Map<String, Long> nodeCountByRegion = new HashMap<>();
         Map<String, java.math.BigDecimal> estimatedCostByType = new HashMap<>();
         Map<String, java.math.BigDecimal> estimatedCostByRegion = new HashMap<>();
         java.math.BigDecimal totalEstimatedCost = java.math.BigDecimal.ZERO;
 
-        for (ResourceNode node : nodes) {
-            String typeKey = node.getType().name();
-            String regionKey = (node.getRegion() == null || node.getRegion().isBlank()) ? "unknown" : node.getRegion();
-            java.math.BigDecimal cost = node.getCostEstimate() == null ? java.math.BigDecimal.ZERO : node.getCostEstimate();
+        for (GraphSummaryRepository.Rollup rollup : snapshot.rollups()) {
+            String typeKey = rollup.type().name();
+            String regionKey = rollup.region();
+            java.math.BigDecimal cost = rollup.estimatedCost();
 
-            nodeCountByType.put(typeKey, nodeCountByType.getOrDefault(typeKey, 0L) + 1);
-            nodeCountByRegion.put(regionKey, nodeCountByRegion.getOrDefault(regionKey, 0L) + 1);
+            totalNodes += rollup.nodeCount();
+            nodeCountByType.put(typeKey, nodeCountByType.getOrDefault(typeKey, 0L) + rollup.nodeCount());
+            nodeCountByRegion.put(regionKey, nodeCountByRegion.getOrDefault(regionKey, 0L) + rollup.nodeCount());
             estimatedCostByType.put(typeKey, estimatedCostByType.getOrDefault(typeKey, java.math.BigDecimal.ZERO).add(cost));
             estimatedCostByRegion.put(regionKey, estimatedCostByRegion.getOrDefault(regionKey, java.math.BigDecimal.ZERO).add(cost));
             totalEstimatedCost = totalEstimatedCost.add(cost);
@@ -184,8 +293,8 @@ public class ResourceGraphService {
         List<GraphCostHotspotResponse> topCostRegions = toTopHotspots(estimatedCostByRegion);
 
         return new GraphSummaryResponse(
-                nodes.size(),
-                edges.size(),
+                Math.toIntExact(totalNodes),
+                Math.toIntExact(snapshot.edgeCount()),
                 nodeCountByType,
                 nodeCountByRegion,
                 totalEstimatedCost,
@@ -196,62 +305,116 @@ public class ResourceGraphService {
         );
     }
 
+    // Totals come from the maintained summary; issues are counted and paged in the database.
     @Transactional(readOnly = true)
-    public GraphHealthResponse getGraphHealth(UUID projectId) {
+    public GraphHealthResponse getGraphHealth(UUID projectId, int limit, UUID orphanAfter, UUID misconfiguredAfter) {
         findProject(projectId);
-        List<ResourceNode> nodes = nodeRepository.findAllByProjectId(projectId);
-        List<ResourceEdge> edges = edgeRepository.findAllByProjectId(projectId);
-
-        Set<UUID> connectedNodeIds = new HashSet<>();
-        for (ResourceEdge edge : edges) {
-            connectedNodeIds.add(edge.getFromNode().getId());
-            connectedNodeIds.add(edge.getToNode().getId());
+        if (limit < 1 || limit > maxHealthIssues) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "limit must be between 1 and " + maxHealthIssues);
         }
+        GraphSummaryRepository.Snapshot summary = summaryService.read(projectId);
+        long totalNodes = summary.rollups().stream().mapToLong(GraphSummaryRepository.Rollup::nodeCount).sum();
 
-        List<GraphHealthIssueResponse> orphanNodes = new java.util.ArrayList<>();
-        List<GraphHealthIssueResponse> misconfiguredNodes = new java.util.ArrayList<>();
-        for (ResourceNode node : nodes) {
-            if (!connectedNodeIds.contains(node.getId()) && node.getType() != ResourceType.REGION) {
-                orphanNodes.add(new GraphHealthIssueResponse(
-                        node.getId(),
-                        node.getType().name(),
-                        node.getName(),
-                        "Node has no incoming/outgoing relationship"
-                ));
-            }
-            String configIssue = detectConfigIssue(node);
-            if (configIssue != null) {
-                misconfiguredNodes.add(new GraphHealthIssueResponse(
-                        node.getId(),
-                        node.getType().name(),
-                        node.getName(),
-                        configIssue
-                ));
-            }
-        }
+        List<GraphHealthRepository.IssueNode> orphans = healthRepository.findOrphans(projectId, orphanAfter, limit);
+        List<GraphHealthRepository.IssueNode> misconfigured =
+                healthRepository.findMissingRegion(projectId, REGION_REQUIRED, misconfiguredAfter, limit);
 
         return new GraphHealthResponse(
-                nodes.size(),
-                edges.size(),
-                orphanNodes.size(),
-                misconfiguredNodes.size(),
-                orphanNodes,
-                misconfiguredNodes
+                Math.toIntExact(totalNodes),
+                Math.toIntExact(summary.edgeCount()),
+                issueCount(orphans, orphanAfter, limit, () -> healthRepository.countOrphans(projectId)),
+                issueCount(misconfigured, misconfiguredAfter, limit,
+                        () -> healthRepository.countMissingRegion(projectId, REGION_REQUIRED)),
+                orphans.stream()
+                        .map(node -> toIssue(node, "Node has no incoming/outgoing relationship"))
+                        .collect(Collectors.toList()),
+                misconfigured.stream()
+                        .map(node -> toIssue(node, missingRegionIssue(node.type())))
+                        .collect(Collectors.toList()),
+                nextCursor(orphans, limit),
+                nextCursor(misconfigured, limit)
+        );
+    }
+
+    private GraphQueryRepository.NodeFilter toNodeFilter(GraphFilterRequest filter) {
+        return new GraphQueryRepository.NodeFilter(filter.getType(), filter.getRegion(), filter.getSource(),
+                filter.getState(), filter.getNamePrefix());
+    }
+
+    private void checkPageLimit(int limit) {
+        if (limit < 1 || limit > maxPageLimit) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + maxPageLimit);
+        }
+    }
+
+    private List<ResourceNodeResponse> toNodeResponses(List<GraphQueryRepository.NodeView> nodes) {
+        return nodes.stream().map(this::toNodeResponse).collect(Collectors.toList());
+    }
+
+    private List<ResourceEdgeResponse> toEdgeResponses(List<GraphQueryRepository.EdgeView> edges) {
+        return edges.stream().map(this::toEdgeResponse).collect(Collectors.toList());
+    }
+
+    private ResourceNodeResponse toNodeResponse(GraphQueryRepository.NodeView node) {
+        return new ResourceNodeResponse(
+                node.id(),
+                node.projectId(),
+                node.provider(),
+                node.type(),
+                node.name(),
+                node.region(),
+                node.zone(),
+                node.state(),
+                node.externalId(),
+                node.source(),
+                node.costEstimate(),
+                node.metadataJson(),
+                node.createdAt(),
+                node.updatedAt()
+        );
+    }
+
+    private ResourceEdgeResponse toEdgeResponse(GraphQueryRepository.EdgeView edge) {
+        return new ResourceEdgeResponse(
+                edge.id(),
+                edge.projectId(),
+                edge.fromNodeId(),
+                edge.toNodeId(),
+                edge.relationType(),
+                edge.createdAt()
         );
     }
 
-    private String detectConfigIssue(ResourceNode node) {
-        if (node.getType() == ResourceType.VPC && (node.getRegion() == null || node.getRegion().isBlank())) {
+    // Counted on the first page only, and only when it is full: later pages stay bounded by the
+    // keyset walk instead of scanning the whole project again.
+    private Integer issueCount(List<GraphHealthRepository.IssueNode> page,
+                               UUID after,
+                               int limit,
+                               IntSupplier count) {
+        if (after != null) {
+            return null;
+        }
+        return page.size() < limit ? page.size() : count.getAsInt();
+    }
+
+    private GraphHealthIssueResponse toIssue(GraphHealthRepository.IssueNode node, String issue) {
+        return new GraphHealthIssueResponse(node.id(), node.type().name(), node.name(), issue);
+    }
+
+    // A full page may be followed by more; the client passes the last id back to continue.
+    private UUID nextCursor(List<GraphHealthRepository.IssueNode> page, int limit) {
+        return page.size() < limit ? null : page.get(page.size() - 1).id();
+    }
+
+    private String missingRegionIssue(ResourceType type) {
+        if (type == ResourceType.VPC) {
             return "VPC is missing region";
         }
-        if (node.getType() == ResourceType.SUBNET && (node.getRegion() == null || node.getRegion().isBlank())) {
+        if (type == ResourceType.SUBNET) {
             return "Subnet is missing region";
         }
-        if ((node.getType() == ResourceType.EC2 || node.getType() == ResourceType.RDS || node.getType() == ResourceType.ELB)
-                && (node.getRegion() == null || node.getRegion().isBlank())) {
-            return node.getType().name() + " is missing region";
-        }
-        return null;
+        return type.name() + " is missing region";
     }
 
     private List<GraphCostHotspotResponse> toTopHotspots(Map<String, java.math.BigDecimal> costByKey) {
@@ -266,6 +429,10 @@ public class ResourceGraphService {
                 .collect(Collectors.toList());
     }
 
+    private java.math.BigDecimal negate(java.math.BigDecimal cost) {
+        return cost == null ? null : cost.negate();
+    }
+
     private Project findProject(UUID projectId) {
         return projectRepository.findById(projectId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Project not found"));
@@ -0,0 +1,5 @@
+alter table discovery_runs
+    add column priority integer not null default 0;
+
+drop index discovery_runs_queued_idx;
+create index discovery_runs_queued_idx on discovery_runs(priority desc, available_at) where status = 'QUEUED';
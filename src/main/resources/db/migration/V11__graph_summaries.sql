@@ -0,0 +1,18 @@
+-- Materialized /graph/summary. Rows are written in the same transaction as the graph change they
+-- account for; a project without a graph_summaries row is built from scratch on its first read.
+create table graph_summaries (
+    project_id uuid primary key references projects(id) on delete cascade,
+    edge_count bigint not null default 0,
+    updated_at timestamptz not null,
+    verified_at timestamptz
+);
+
+create table graph_summary_rollups (
+    id uuid primary key default gen_random_uuid(),
+    project_id uuid not null references graph_summaries(project_id) on delete cascade,
+    type text not null,
+    region text not null,
+    node_count bigint not null,
+    estimated_cost numeric(16, 2) not null,
+    unique (project_id, type, region)
+);
@@ -0,0 +1,7 @@
+-- Orphan checks probe resource_edges_from_idx and resource_edges_to_idx per node and page through
+-- a project in id order.
+create index resource_nodes_project_id_id_idx on resource_nodes(project_id, id);
+
+-- Only nodes that are missing a region are indexed, so the check stays small on healthy projects.
+create index resource_nodes_missing_region_idx on resource_nodes(project_id, id)
+    where region is null or trim(region) = '';
@@ -0,0 +1,10 @@
+-- Graph reads filter a project and page through it in id order; each filter gets an index that
+-- serves both. text_pattern_ops lets name prefix searches use the index under any collation.
+create index resource_nodes_project_type_id_idx on resource_nodes(project_id, type, id);
+create index resource_nodes_project_region_id_idx on resource_nodes(project_id, region, id);
+create index resource_nodes_project_source_id_idx on resource_nodes(project_id, source, id);
+create index resource_nodes_project_state_id_idx on resource_nodes(project_id, state, id);
+create index resource_nodes_project_name_idx on resource_nodes(project_id, name text_pattern_ops);
+
+create index resource_edges_project_id_id_idx on resource_edges(project_id, id);
+create index resource_edges_project_relation_id_idx on resource_edges(project_id, relation_type, id);
@@ -0,0 +1,27 @@
+-- V3 only requeued RUNNING rows. Runs still waiting in the old in-memory queue were left QUEUED
+-- without an available_at, which the worker never claims and which reads as "created, not executed".
+-- Executing a run set its progress to 10 while creating one leaves it at 0, so that tells them apart.
+-- The newest such run of each project goes back on the queue, unless the project already has an
+-- active run; a project only ever runs one discovery at a time.
+with stranded as (
+    select distinct on (project_id) id, project_id
+    from discovery_runs
+    where status = 'QUEUED' and available_at is null and progress > 0
+    order by project_id, started_at desc nulls last, id
+)
+update discovery_runs r
+set available_at = now()
+from stranded s
+where r.id = s.id
+  and not exists (
+      select 1
+      from discovery_runs a
+      where a.project_id = s.project_id
+        and a.status in ('QUEUED', 'RUNNING')
+        and a.available_at is not null
+  );
+
+-- Older duplicates go back to created and can be executed again.
+update discovery_runs
+set progress = 0
+where status = 'QUEUED' and available_at is null and progress > 0;
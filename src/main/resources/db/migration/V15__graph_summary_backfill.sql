@@ -0,0 +1,17 @@
+-- Every project gets its summary up front, so reading /graph/summary never writes. Projects created
+-- from now on get an empty one in the transaction that creates them.
+with created as (
+    insert into graph_summaries (project_id, edge_count, updated_at, verified_at)
+    select p.id, (select count(*) from resource_edges e where e.project_id = p.id), now(), now()
+    from projects p
+    where not exists (select 1 from graph_summaries s where s.project_id = p.id)
+    returning project_id
+)
+insert into graph_summary_rollups (project_id, type, region, node_count, estimated_cost)
+select n.project_id, n.type, r.region, count(*), coalesce(sum(n.cost_estimate), 0)
+from resource_nodes n
+join created c on c.project_id = n.project_id
+cross join lateral (
+    select case when n.region is null or trim(n.region) = '' then 'unknown' else n.region end as region
+) r
+group by n.project_id, n.type, r.region;
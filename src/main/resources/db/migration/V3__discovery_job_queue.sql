@@ -0,0 +1,22 @@
+alter table discovery_runs
+    add column available_at timestamptz;
+
+alter table discovery_runs
+    add column attempts integer not null default 0;
+
+alter table discovery_runs
+    add column lease_owner text;
+
+alter table discovery_runs
+    add column lease_expires_at timestamptz;
+
+alter table discovery_runs
+    add column heartbeat_at timestamptz;
+
+create index discovery_runs_queued_idx on discovery_runs(available_at) where status = 'QUEUED';
+create index discovery_runs_leased_idx on discovery_runs(lease_expires_at) where status = 'RUNNING';
+
+-- Runs orphaned by the old in-memory executor go back on the queue.
+update discovery_runs
+set status = 'QUEUED', available_at = now()
+where status = 'RUNNING';
@@ -0,0 +1,8 @@
+create table discovery_checkpoints (
+    id uuid primary key default gen_random_uuid(),
+    discovery_run_id uuid not null references discovery_runs(id) on delete cascade,
+    region text not null,
+    segment text not null,
+    completed_at timestamptz not null,
+    unique (discovery_run_id, region, segment)
+);
@@ -0,0 +1,2 @@
+alter table discovery_runs
+    add column cancel_requested_at timestamptz;
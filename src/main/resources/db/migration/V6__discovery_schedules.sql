@@ -0,0 +1,9 @@
+create table discovery_schedules (
+    project_id uuid primary key references projects(id) on delete cascade,
+    discovery_run_id uuid not null references discovery_runs(id) on delete cascade,
+    interval_seconds integer not null,
+    next_run_at timestamptz not null,
+    last_scheduled_at timestamptz
+);
+
+create index discovery_schedules_next_run_idx on discovery_schedules(next_run_at);
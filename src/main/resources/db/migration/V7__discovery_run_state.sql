@@ -0,0 +1,17 @@
+alter table discovery_runs
+    add column progress integer not null default 0;
+
+alter table discovery_runs
+    add column regions text;
+
+alter table discovery_runs
+    add column error_message text;
+
+update discovery_runs
+set progress = coalesce((summary_json ->> 'progress')::integer, 0),
+    regions = case
+        when jsonb_typeof(summary_json -> 'regions') = 'array' then
+            (select string_agg(region, ',') from jsonb_array_elements_text(summary_json -> 'regions') as r(region))
+        end,
+    error_message = coalesce(summary_json ->> 'error', summary_json ->> 'lastError')
+where jsonb_typeof(summary_json) = 'object';
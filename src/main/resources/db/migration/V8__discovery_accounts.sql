@@ -0,0 +1,25 @@
+create table discovery_run_accounts (
+    id uuid primary key default gen_random_uuid(),
+    discovery_run_id uuid not null references discovery_runs(id) on delete cascade,
+    account_id text not null,
+    role_arn text,
+    external_id text,
+    unique (discovery_run_id, account_id)
+);
+
+alter table discovery_checkpoints
+    add column account_id text not null default '';
+
+alter table discovery_checkpoints
+    drop constraint discovery_checkpoints_discovery_run_id_region_segment_key;
+
+alter table discovery_checkpoints
+    add constraint discovery_checkpoints_run_account_region_segment_key
+        unique (discovery_run_id, account_id, region, segment);
+
+-- Nodes discovered before accounts were tracked have no account; the first run to reconcile their
+-- region adopts them.
+alter table resource_nodes
+    add column account_id text;
+
+create index resource_nodes_discovery_scope_idx on resource_nodes(project_id, region, account_id);
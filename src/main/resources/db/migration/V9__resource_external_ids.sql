@@ -0,0 +1,9 @@
+alter table resource_nodes
+    add column external_id text;
+
+update resource_nodes
+set external_id = metadata_json ->> 'awsId'
+where jsonb_typeof(metadata_json) = 'object';
+
+create index resource_nodes_external_id_idx on resource_nodes(project_id, external_id)
+    where external_id is not null;
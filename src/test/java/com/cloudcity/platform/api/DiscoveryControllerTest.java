@@ -1,26 +1,62 @@
 package com.cloudcity.platform.api;
 
+import com.cloudcity.platform.api.dto.DiscoveryAccountRequest;
 import com.cloudcity.platform.api.dto.DiscoveryCreateRequest;
+import com.cloudcity.platform.api.dto.DiscoveryProgressEvent;
 import com.cloudcity.platform.domain.CloudProvider;
+import com.cloudcity.platform.domain.DiscoveryRun;
 import com.cloudcity.platform.domain.Org;
 import com.cloudcity.platform.domain.Project;
+import com.cloudcity.platform.domain.RelationType;
+import com.cloudcity.platform.domain.ResourceEdge;
+import com.cloudcity.platform.domain.ResourceNode;
+import com.cloudcity.platform.domain.ResourceSource;
+import com.cloudcity.platform.domain.ResourceType;
+import com.cloudcity.platform.repository.DiscoveryCheckpointRepository;
+import com.cloudcity.platform.repository.DiscoveryJobRepository;
+import com.cloudcity.platform.repository.DiscoveryRunRepository;
+import com.cloudcity.platform.repository.DiscoveryScheduleRepository;
 import com.cloudcity.platform.repository.OrgRepository;
 import com.cloudcity.platform.repository.ProjectRepository;
 import com.cloudcity.platform.repository.ResourceEdgeRepository;
 import com.cloudcity.platform.repository.ResourceNodeRepository;
+import com.cloudcity.platform.service.DiscoveryProgressBroadcaster;
+import com.cloudcity.platform.service.DiscoveryQueueFullException;
+import com.cloudcity.platform.service.DiscoveryScheduler;
+import com.cloudcity.platform.service.DiscoveryService;
+import com.cloudcity.platform.service.GraphSummaryService;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -44,6 +80,30 @@ class DiscoveryControllerTest {
     @Autowired
     private ResourceEdgeRepository resourceEdgeRepository;
 
+    @Autowired
+    private DiscoveryRunRepository discoveryRunRepository;
+
+    @Autowired
+    private DiscoveryJobRepository discoveryJobRepository;
+
+    @Autowired
+    private DiscoveryCheckpointRepository discoveryCheckpointRepository;
+
+    @SpyBean
+    private DiscoveryService discoveryService;
+
+    @Autowired
+    private DiscoveryScheduler discoveryScheduler;
+
+    @Autowired
+    private GraphSummaryService graphSummaryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @SpyBean
+    private DiscoveryProgressBroadcaster progressBroadcaster;
+
     @Test
     void createAndFetchDiscovery() throws Exception {
         Org org = new Org();
@@ -148,4 +208,788 @@ class DiscoveryControllerTest {
         Assertions.assertEquals(7, secondNodeCount);
         Assertions.assertEquals(6, secondEdgeCount);
     }
+
+    @Test
+    void executeDiscoveryFansOutAcrossRegions() throws Exception {
+        Org org = new Org();
+        org.setName("Cloud City");
+        Org savedOrg = orgRepository.save(org);
+
+        Project project = new Project();
+        project.setOrg(savedOrg);
+        project.setName("Discovery");
+        Project savedProject = projectRepository.save(project);
+
+        DiscoveryCreateRequest request = new DiscoveryCreateRequest();
+        request.setProvider(CloudProvider.AWS);
+        request.setAccountId("123456789012");
+        request.setRegions(List.of("us-east-1", "us-west-2", "eu-west-1"));
+
+        String createResponse = mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries", savedProject.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        String discoveryId = objectMapper.readTree(createResponse).get("id").asText();
+
+        mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries/{discoveryId}/execute",
+                        savedProject.getId(), discoveryId))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(jsonPath("$.status").value("COMPLETED"));
+
+        mockMvc.perform(get("/api/v1/projects/{projectId}/discoveries/{discoveryId}/status",
+                        savedProject.getId(), discoveryId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.progress").value(100));
+
+        Assertions.assertEquals(21, resourceNodeRepository.findAllByProjectId(savedProject.getId()).size());
+        Assertions.assertEquals(18, resourceEdgeRepository.findAllByProjectId(savedProject.getId()).size());
+
+        MvcResult events = mockMvc.perform(get("/api/v1/projects/{projectId}/discoveries/{discoveryId}/events",
+                        savedProject.getId(), discoveryId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String stream = mockMvc.perform(asyncDispatch(events))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        Assertions.assertTrue(stream.contains("event:status"), stream);
+        Assertions.assertTrue(stream.contains("\"status\":\"COMPLETED\""), stream);
+        Assertions.assertTrue(stream.contains("\"progress\":100"), stream);
+    }
+
+    @Test
+    void rediscoveryReconcilesAgainstExistingNodes() throws Exception {
+        Org org = new Org();
+        org.setName("Cloud City");
+        Org savedOrg = orgRepository.save(org);
+
+        Project project = new Project();
+        project.setOrg(savedOrg);
+        project.setName("Discovery");
+        Project savedProject = projectRepository.save(project);
+        // What ProjectService does on create, so the ingest keeps the summary up to date.
+        graphSummaryService.create(savedProject.getId());
+
+        DiscoveryCreateRequest request = new DiscoveryCreateRequest();
+        request.setProvider(CloudProvider.AWS);
+        request.setAccountId("123456789012");
+        request.setRegions(List.of("us-east-1"));
+
+        String createResponse = mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries", savedProject.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        String discoveryId = objectMapper.readTree(createResponse).get("id").asText();
+
+        String firstResponse = mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries/{discoveryId}/execute",
+                        savedProject.getId(), discoveryId))
+                .andExpect(status().is2xxSuccessful())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        JsonNode firstChanges = readSummary(firstResponse).get("changes");
+        Assertions.assertEquals(7, firstChanges.get("nodes").get("inserted").asInt());
+        Assertions.assertEquals(6, firstChanges.get("edges").get("inserted").asInt());
+
+        mockMvc.perform(get("/api/v1/projects/{projectId}/nodes", savedProject.getId())
+                        .param("externalId", "vpc-123", "i-123", "i-missing"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[?(@.externalId == 'i-123')].type").value("EC2"));
+
+        Set<UUID> firstNodeIds = new HashSet<>();
+        for (ResourceNode node : resourceNodeRepository.findAllByProjectId(savedProject.getId())) {
+            firstNodeIds.add(node.getId());
+        }
+
+        ResourceNode stale = new ResourceNode();
+        stale.setProject(savedProject);
+        stale.setProvider(CloudProvider.AWS);
+        stale.setType(ResourceType.VPC);
+        stale.setName("decommissioned");
+        stale.setRegion("us-east-1");
+        stale.setSource(ResourceSource.DISCOVERED);
+        stale.setMetadataJson("{\"awsId\":\"vpc-999\"}");
+        ResourceNode savedStale = resourceNodeRepository.save(stale);
+
+        // A hand-drawn edge to the stale node goes with it.
+        ResourceEdge drawn = new ResourceEdge();
+        drawn.setProject(savedProject);
+        drawn.setFromNode(savedStale);
+        drawn.setToNode(resourceNodeRepository.findById(firstNodeIds.iterator().next()).orElseThrow());
+        drawn.setRelationType(RelationType.CONNECTS);
+        UUID drawnId = resourceEdgeRepository.save(drawn).getId();
+
+        // Both were saved around the services, so only the verifier brings them into the summary.
+        Assertions.assertTrue(graphSummaryService.verify(savedProject.getId()));
+        mockMvc.perform(get("/api/v1/projects/{projectId}/graph/summary", savedProject.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalNodes").value(8))
+                .andExpect(jsonPath("$.totalEdges").value(7));
+
+        String secondResponse = mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries/{discoveryId}/execute",
+                        savedProject.getId(), discoveryId))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        JsonNode secondChanges = readSummary(secondResponse).get("changes");
+        Assertions.assertEquals(0, secondChanges.get("nodes").get("inserted").asInt());
+        Assertions.assertEquals(0, secondChanges.get("nodes").get("updated").asInt());
+        Assertions.assertEquals(1, secondChanges.get("nodes").get("deleted").asInt());
+        Assertions.assertEquals(0, secondChanges.get("edges").get("inserted").asInt());
+        Assertions.assertEquals(0, readSummary(secondResponse).get("throttling").get("throttled").asInt());
+        Assertions.assertEquals(500, readSummary(secondResponse).get("throttling").get("retryBudgetRemaining").asInt());
+
+        Set<UUID> secondNodeIds = new HashSet<>();
+        for (ResourceNode node : resourceNodeRepository.findAllByProjectId(savedProject.getId())) {
+            secondNodeIds.add(node.getId());
+        }
+        Assertions.assertEquals(firstNodeIds, secondNodeIds);
+        Assertions.assertEquals(6, resourceEdgeRepository.findAllByProjectId(savedProject.getId()).size());
+        Assertions.assertTrue(resourceEdgeRepository.findById(drawnId).isEmpty());
+
+        // The ingest took the stale node and the edge drawn to it out of the summary as well.
+        mockMvc.perform(get("/api/v1/projects/{projectId}/graph/summary", savedProject.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalNodes").value(7))
+                .andExpect(jsonPath("$.totalEdges").value(6));
+        Assertions.assertFalse(graphSummaryService.verify(savedProject.getId()));
+    }
+
+    @Test
+    void expiredLeaseIsRequeuedAndClaimedByAnotherWorker() throws Exception {
+        Org org = new Org();
+        org.setName("Cloud City");
+        Org savedOrg = orgRepository.save(org);
+
+        Project project = new Project();
+        project.setOrg(savedOrg);
+        project.setName("Discovery");
+        Project savedProject = projectRepository.save(project);
+
+        DiscoveryCreateRequest request = new DiscoveryCreateRequest();
+        request.setProvider(CloudProvider.AWS);
+        request.setAccountId("123456789012");
+        request.setRegions(List.of("us-east-1"));
+
+        String createResponse = mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries", savedProject.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        UUID discoveryId = UUID.fromString(objectMapper.readTree(createResponse).get("id").asText());
+
+        DiscoveryRun run = discoveryRunRepository.findById(discoveryId).orElseThrow();
+        run.setStatus("RUNNING");
+        run.setAttempts(1);
+        run.setLeaseOwner("crashed-node");
+        run.setLeaseExpiresAt(OffsetDateTime.now(ZoneOffset.UTC).minusMinutes(5));
+        discoveryRunRepository.save(run);
+
+        discoveryJobRepository.recoverExpired(3, Duration.ZERO);
+
+        mockMvc.perform(get("/api/v1/projects/{projectId}/discoveries/{discoveryId}/status",
+                        savedProject.getId(), discoveryId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("QUEUED"));
+
+        List<DiscoveryJobRepository.ClaimedRun> claimed =
+                discoveryJobRepository.claim("healthy-node", 10, Duration.ofMinutes(2));
+        Assertions.assertTrue(claimed.stream().anyMatch(claim -> claim.id().equals(discoveryId)));
+        Assertions.assertTrue(discoveryJobRepository.claim("other-node", 10, Duration.ofMinutes(2)).stream()
+                .noneMatch(claim -> claim.id().equals(discoveryId)));
+
+        discoveryService.runDiscovery(savedProject.getId(), discoveryId);
+
+        mockMvc.perform(get("/api/v1/projects/{projectId}/discoveries/{discoveryId}/status",
+                        savedProject.getId(), discoveryId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("COMPLETED"));
+        Assertions.assertEquals(2, discoveryRunRepository.findById(discoveryId).orElseThrow().getAttempts());
+
+        // Out of attempts, the next expiry fails the run for good.
+        DiscoveryRun exhausted = discoveryRunRepository.findById(discoveryId).orElseThrow();
+        exhausted.setStatus("RUNNING");
+        exhausted.setAttempts(3);
+        exhausted.setProgress(70);
+        exhausted.setLeaseOwner("crashed-node");
+        exhausted.setLeaseExpiresAt(OffsetDateTime.now(ZoneOffset.UTC).minusMinutes(5));
+        discoveryRunRepository.save(exhausted);
+
+        discoveryJobRepository.recoverExpired(3, Duration.ZERO);
+
+        DiscoveryRun failed = discoveryRunRepository.findById(discoveryId).orElseThrow();
+        Assertions.assertEquals("FAILED", failed.getStatus());
+        Assertions.assertEquals(100, failed.getProgress());
+        Assertions.assertEquals("Lease expired after 3 attempts", failed.getErrorMessage());
+    }
+
+    @Test
+    void staleWorkerCannotOverwriteARunClaimedElsewhere() throws Exception {
+        Org org = new Org();
+        org.setName("Cloud City");
+        Org savedOrg = orgRepository.save(org);
+
+        Project project = new Project();
+        project.setOrg(savedOrg);
+        project.setName("Discovery");
+        Project savedProject = projectRepository.save(project);
+
+        DiscoveryCreateRequest request = new DiscoveryCreateRequest();
+        request.setProvider(CloudProvider.AWS);
+        request.setAccountId("123456789012");
+        request.setRegions(List.of("us-east-1"));
+
+        String createResponse = mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries", savedProject.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        UUID discoveryId = UUID.fromString(objectMapper.readTree(createResponse).get("id").asText());
+
+        DiscoveryRun run = discoveryRunRepository.findById(discoveryId).orElseThrow();
+        run.setStatus("RUNNING");
+        run.setAttempts(1);
+        run.setAvailableAt(OffsetDateTime.now(ZoneOffset.UTC));
+        run.setLeaseOwner("stale-node");
+        run.setLeaseExpiresAt(OffsetDateTime.now(ZoneOffset.UTC).plusMinutes(2));
+        discoveryRunRepository.save(run);
+
+        // The lease runs out while the region is being reconciled, and another worker claims the run.
+        AtomicBoolean leaseLost = new AtomicBoolean();
+        doAnswer(invocation -> {
+            DiscoveryProgressEvent event = invocation.getArgument(0);
+            if (discoveryId.equals(event.getDiscoveryId()) && DiscoveryProgressEvent.REGION.equals(event.getEvent())
+                    && leaseLost.compareAndSet(false, true)) {
+                jdbcTemplate.update("update discovery_runs set lease_expires_at = ? where id = ?",
+                        OffsetDateTime.now(ZoneOffset.UTC).minusMinutes(1), discoveryId);
+                discoveryJobRepository.recoverExpired(3, Duration.ZERO);
+                jdbcTemplate.update("""
+                        update discovery_runs
+                        set status = 'RUNNING', attempts = attempts + 1, lease_owner = 'healthy-node',
+                            lease_expires_at = ?, progress = 60
+                        where id = ?
+                        """, OffsetDateTime.now(ZoneOffset.UTC).plusMinutes(2), discoveryId);
+            }
+            return invocation.callRealMethod();
+        }).when(progressBroadcaster).publish(any());
+
+        discoveryService.runDiscovery(savedProject.getId(), discoveryId);
+
+        Assertions.assertTrue(leaseLost.get());
+        DiscoveryRun claimed = discoveryRunRepository.findById(discoveryId).orElseThrow();
+        Assertions.assertEquals("RUNNING", claimed.getStatus());
+        Assertions.assertEquals("healthy-node", claimed.getLeaseOwner());
+        Assertions.assertEquals(60, claimed.getProgress());
+        Assertions.assertNull(claimed.getFinishedAt());
+        Assertions.assertFalse(readSummaryJson(claimed.getSummaryJson()).path("executed").asBoolean());
+        Assertions.assertEquals(Set.of("us-east-1"),
+                discoveryCheckpointRepository.findCompletedRegions(discoveryId, "123456789012"));
+
+        discoveryService.runDiscovery(savedProject.getId(), discoveryId);
+
+        DiscoveryRun completed = discoveryRunRepository.findById(discoveryId).orElseThrow();
+        Assertions.assertEquals("COMPLETED", completed.getStatus());
+        Assertions.assertNull(completed.getLeaseOwner());
+        Assertions.assertEquals(100, completed.getProgress());
+    }
+
+    @Test
+    void resumedDiscoverySkipsCheckpointedSegments() throws Exception {
+        Org org = new Org();
+        org.setName("Cloud City");
+        Org savedOrg = orgRepository.save(org);
+
+        Project project = new Project();
+        project.setOrg(savedOrg);
+        project.setName("Discovery");
+        Project savedProject = projectRepository.save(project);
+
+        DiscoveryCreateRequest request = new DiscoveryCreateRequest();
+        request.setProvider(CloudProvider.AWS);
+        request.setAccountId("123456789012");
+        request.setRegions(List.of("us-east-1", "us-west-2"));
+
+        String createResponse = mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries", savedProject.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        UUID discoveryId = UUID.fromString(objectMapper.readTree(createResponse).get("id").asText());
+
+        // An earlier attempt finished us-west-2 and the VPC listing of us-east-1 before it died.
+        ResourceNode vpc = new ResourceNode();
+        vpc.setProject(savedProject);
+        vpc.setProvider(CloudProvider.AWS);
+        vpc.setType(ResourceType.VPC);
+        vpc.setName("vpc-checkpointed");
+        vpc.setRegion("us-east-1");
+        vpc.setSource(ResourceSource.DISCOVERED);
+        vpc.setMetadataJson("{\"awsId\":\"vpc-123\"}");
+        UUID vpcId = resourceNodeRepository.save(vpc).getId();
+        // Checkpointed rows are keyed on external_id and may carry no metadata at all.
+        ResourceNode bareVpc = new ResourceNode();
+        bareVpc.setProject(savedProject);
+        bareVpc.setProvider(CloudProvider.AWS);
+        bareVpc.setType(ResourceType.VPC);
+        bareVpc.setName("vpc-bare");
+        bareVpc.setRegion("us-east-1");
+        bareVpc.setExternalId("vpc-bare");
+        bareVpc.setSource(ResourceSource.DISCOVERED);
+        resourceNodeRepository.save(bareVpc);
+        discoveryCheckpointRepository.markCompleted(
+                discoveryId, "123456789012", "us-west-2", DiscoveryCheckpointRepository.REGION_SEGMENT);
+        discoveryCheckpointRepository.markCompleted(
+                discoveryId, "123456789012", "us-east-1", ResourceType.VPC.name());
+
+        String resumedResponse = mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries/{discoveryId}/execute",
+                        savedProject.getId(), discoveryId))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        JsonNode summary = readSummary(resumedResponse);
+        Assertions.assertEquals("us-west-2", summary.get("resumedRegions").get(0).asText());
+        Assertions.assertEquals(1, summary.get("resumedRegions").size());
+        Assertions.assertEquals(6, summary.get("changes").get("nodes").get("inserted").asInt());
+        Assertions.assertEquals(0, summary.get("changes").get("nodes").get("deleted").asInt());
+        Assertions.assertEquals(6, summary.get("changes").get("edges").get("inserted").asInt());
+
+        List<ResourceNode> nodes = resourceNodeRepository.findAllByProjectId(savedProject.getId());
+        Assertions.assertEquals(8, nodes.size());
+        Assertions.assertTrue(nodes.stream().allMatch(node -> "us-east-1".equals(node.getRegion())));
+        Assertions.assertEquals("vpc-checkpointed", resourceNodeRepository.findById(vpcId).orElseThrow().getName());
+        Assertions.assertTrue(discoveryCheckpointRepository.findCompletedRegions(discoveryId, "123456789012").isEmpty());
+
+        // Once completed the checkpoints are gone and the next execution lists everything again.
+        mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries/{discoveryId}/execute",
+                        savedProject.getId(), discoveryId))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(jsonPath("$.status").value("COMPLETED"));
+
+        Assertions.assertEquals(14, resourceNodeRepository.findAllByProjectId(savedProject.getId()).size());
+        Assertions.assertEquals(12, resourceEdgeRepository.findAllByProjectId(savedProject.getId()).size());
+        Assertions.assertEquals("vpc-main", resourceNodeRepository.findById(vpcId).orElseThrow().getName());
+    }
+
+    @Test
+    void cancelStopsQueuedRunsAndRejectsFinishedOnes() throws Exception {
+        Org org = new Org();
+        org.setName("Cloud City");
+        Org savedOrg = orgRepository.save(org);
+
+        Project project = new Project();
+        project.setOrg(savedOrg);
+        project.setName("Discovery");
+        Project savedProject = projectRepository.save(project);
+
+        DiscoveryCreateRequest request = new DiscoveryCreateRequest();
+        request.setProvider(CloudProvider.AWS);
+        request.setAccountId("123456789012");
+        request.setRegions(List.of("us-east-1"));
+
+        String createResponse = mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries", savedProject.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        String discoveryId = objectMapper.readTree(createResponse).get("id").asText();
+
+        mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries/{discoveryId}/cancel",
+                        savedProject.getId(), discoveryId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("CANCELLED"));
+        Assertions.assertEquals("Discovery cancelled",
+                discoveryRunRepository.findById(UUID.fromString(discoveryId)).orElseThrow().getErrorMessage());
+        mockMvc.perform(get("/api/v1/projects/{projectId}/discoveries/{discoveryId}/status",
+                        savedProject.getId(), discoveryId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.progress").value(100));
+
+        mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries/{discoveryId}/cancel",
+                        savedProject.getId(), discoveryId))
+                .andExpect(status().isConflict());
+
+        mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries/{discoveryId}/execute",
+                        savedProject.getId(), discoveryId))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(jsonPath("$.status").value("COMPLETED"));
+
+        mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries/{discoveryId}/cancel",
+                        savedProject.getId(), discoveryId))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void executeJoinsTheActiveRunOfTheProject() throws Exception {
+        Org org = new Org();
+        org.setName("Cloud City");
+        Org savedOrg = orgRepository.save(org);
+
+        Project project = new Project();
+        project.setOrg(savedOrg);
+        project.setName("Discovery");
+        Project savedProject = projectRepository.save(project);
+
+        DiscoveryCreateRequest request = new DiscoveryCreateRequest();
+        request.setProvider(CloudProvider.AWS);
+        request.setAccountId("123456789012");
+        request.setRegions(List.of("us-east-1"));
+
+        UUID activeId = null;
+        UUID duplicateId = null;
+        for (int i = 0; i < 2; i++) {
+            String createResponse = mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries",
+                            savedProject.getId())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isCreated())
+                    .andReturn()
+                    .getResponse()
+                    .getContentAsString();
+            UUID id = UUID.fromString(objectMapper.readTree(createResponse).get("id").asText());
+            if (activeId == null) {
+                activeId = id;
+            } else {
+                duplicateId = id;
+            }
+        }
+
+        // The first run is being executed by a worker on another replica.
+        DiscoveryRun active = discoveryRunRepository.findById(activeId).orElseThrow();
+        active.setStatus("RUNNING");
+        active.setAvailableAt(OffsetDateTime.now(ZoneOffset.UTC));
+        active.setAttempts(1);
+        active.setLeaseOwner("other-node");
+        active.setLeaseExpiresAt(OffsetDateTime.now(ZoneOffset.UTC).plusMinutes(2));
+        discoveryRunRepository.save(active);
+
+        mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries/{discoveryId}/execute",
+                        savedProject.getId(), duplicateId))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(jsonPath("$.id").value(activeId.toString()))
+                .andExpect(jsonPath("$.status").value("RUNNING"));
+        Assertions.assertTrue(resourceNodeRepository.findAllByProjectId(savedProject.getId()).isEmpty());
+
+        mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries/{discoveryId}/cancel",
+                        savedProject.getId(), activeId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("RUNNING"));
+        Assertions.assertEquals(List.of(activeId),
+                discoveryJobRepository.findCancelRequested(List.of(activeId), "other-node"));
+    }
+
+    @Test
+    void scheduledRefreshRerunsDueProjectsOncePerCycle() throws Exception {
+        Org org = new Org();
+        org.setName("Cloud City");
+        Org savedOrg = orgRepository.save(org);
+
+        Project project = new Project();
+        project.setOrg(savedOrg);
+        project.setName("Discovery");
+        Project savedProject = projectRepository.save(project);
+
+        DiscoveryCreateRequest request = new DiscoveryCreateRequest();
+        request.setProvider(CloudProvider.AWS);
+        request.setAccountId("123456789012");
+        request.setRegions(List.of("us-east-1"));
+
+        String createResponse = mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries", savedProject.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        String discoveryId = objectMapper.readTree(createResponse).get("id").asText();
+
+        mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries/{discoveryId}/execute",
+                        savedProject.getId(), discoveryId))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(jsonPath("$.status").value("COMPLETED"));
+
+        Assertions.assertEquals(21600, scheduleInterval(savedProject.getId()));
+
+        // Nothing changed since the first run, so the refresh backs the cadence off.
+        makeScheduleDue(savedProject.getId());
+        discoveryScheduler.refreshDueProjects();
+        Assertions.assertEquals(43200, scheduleInterval(savedProject.getId()));
+
+        // The project already had its refresh this cycle.
+        ResourceNode stale = new ResourceNode();
+        stale.setProject(savedProject);
+        stale.setProvider(CloudProvider.AWS);
+        stale.setType(ResourceType.VPC);
+        stale.setName("decommissioned");
+        stale.setRegion("us-east-1");
+        stale.setSource(ResourceSource.DISCOVERED);
+        stale.setMetadataJson("{\"awsId\":\"vpc-999\"}");
+        UUID staleId = resourceNodeRepository.save(stale).getId();
+        discoveryScheduler.refreshDueProjects();
+        Assertions.assertTrue(resourceNodeRepository.findById(staleId).isPresent());
+
+        // A refresh that finds changes puts the project back on the base interval.
+        makeScheduleDue(savedProject.getId());
+        discoveryScheduler.refreshDueProjects();
+        Assertions.assertTrue(resourceNodeRepository.findById(staleId).isEmpty());
+        Assertions.assertEquals(21600, scheduleInterval(savedProject.getId()));
+    }
+
+    @Test
+    void scheduledRefreshContinuesPastAProjectThatFailsToEnqueue() throws Exception {
+        Org org = new Org();
+        org.setName("Cloud City");
+        Org savedOrg = orgRepository.save(org);
+
+        List<UUID> projectIds = new ArrayList<>();
+        for (String name : List.of("Failing", "Healthy")) {
+            Project project = new Project();
+            project.setOrg(savedOrg);
+            project.setName(name);
+            UUID projectId = projectRepository.save(project).getId();
+            projectIds.add(projectId);
+
+            DiscoveryCreateRequest request = new DiscoveryCreateRequest();
+            request.setProvider(CloudProvider.AWS);
+            request.setAccountId("123456789012");
+            request.setRegions(List.of("us-east-1"));
+
+            String createResponse = mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries", projectId)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isCreated())
+                    .andReturn()
+                    .getResponse()
+                    .getContentAsString();
+
+            mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries/{discoveryId}/execute",
+                            projectId, objectMapper.readTree(createResponse).get("id").asText()))
+                    .andExpect(status().is2xxSuccessful());
+        }
+        UUID failing = projectIds.get(0);
+        UUID healthy = projectIds.get(1);
+
+        // The failing project is claimed first, so an escaping exception would skip the healthy one.
+        jdbcTemplate.update("update discovery_schedules set next_run_at = ? where project_id = ?",
+                OffsetDateTime.now(ZoneOffset.UTC).minusMinutes(2), failing);
+        makeScheduleDue(healthy);
+        doThrow(new IllegalStateException("connection reset"))
+                .when(discoveryService).executeDiscovery(eq(failing), any(), any());
+
+        discoveryScheduler.refreshDueProjects();
+
+        Assertions.assertEquals(43200, scheduleInterval(healthy));
+        Assertions.assertEquals(21600, scheduleInterval(failing));
+        OffsetDateTime nextRunAt = jdbcTemplate.queryForObject(
+                "select next_run_at from discovery_schedules where project_id = ?", OffsetDateTime.class, failing);
+        Assertions.assertFalse(nextRunAt.isAfter(OffsetDateTime.now(ZoneOffset.UTC)));
+    }
+
+    @Test
+    void discoveryFansOutAcrossAccounts() throws Exception {
+        Org org = new Org();
+        org.setName("Cloud City");
+        Org savedOrg = orgRepository.save(org);
+
+        Project project = new Project();
+        project.setOrg(savedOrg);
+        project.setName("Discovery");
+        Project savedProject = projectRepository.save(project);
+
+        DiscoveryAccountRequest member = new DiscoveryAccountRequest();
+        member.setRoleArn("arn:aws:iam::210987654321:role/CloudCityReadOnly");
+        member.setExternalId("external-id-456");
+
+        DiscoveryCreateRequest request = new DiscoveryCreateRequest();
+        request.setProvider(CloudProvider.AWS);
+        request.setAccountId("123456789012");
+        request.setRegions(List.of("us-east-1"));
+        request.setAccounts(List.of(member));
+
+        String createResponse = mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries", savedProject.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        String discoveryId = objectMapper.readTree(createResponse).get("id").asText();
+
+        String firstResponse = mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries/{discoveryId}/execute",
+                        savedProject.getId(), discoveryId))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        JsonNode summary = readSummary(firstResponse);
+        Set<String> completed = new HashSet<>();
+        summary.get("completedRegions").forEach(region -> completed.add(region.asText()));
+        Assertions.assertEquals(Set.of("123456789012/us-east-1", "210987654321/us-east-1"), completed);
+
+        // The same AWS ids in two accounts are two sets of resources.
+        List<ResourceNode> nodes = resourceNodeRepository.findAllByProjectId(savedProject.getId());
+        Assertions.assertEquals(14, nodes.size());
+        Assertions.assertEquals(7, nodes.stream().filter(node -> "210987654321".equals(node.getAccountId())).count());
+        Assertions.assertEquals(12, resourceEdgeRepository.findAllByProjectId(savedProject.getId()).size());
+
+        // Reconciling one account never treats the other account's resources as stale.
+        String secondResponse = mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries/{discoveryId}/execute",
+                        savedProject.getId(), discoveryId))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        JsonNode changes = readSummary(secondResponse).get("changes");
+        Assertions.assertEquals(0, changes.get("nodes").get("inserted").asInt());
+        Assertions.assertEquals(0, changes.get("nodes").get("deleted").asInt());
+        Assertions.assertEquals(0, changes.get("edges").get("inserted").asInt());
+        Assertions.assertEquals(14, resourceNodeRepository.findAllByProjectId(savedProject.getId()).size());
+
+        DiscoveryCreateRequest unnamed = new DiscoveryCreateRequest();
+        unnamed.setProvider(CloudProvider.AWS);
+        unnamed.setAccounts(List.of(new DiscoveryAccountRequest()));
+        mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries", savedProject.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(unnamed)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void saturatedQueueRejectsScheduledRunsBeforeInteractiveOnes() throws Exception {
+        Org org = new Org();
+        org.setName("Cloud City");
+        Org savedOrg = orgRepository.save(org);
+
+        Project busy = new Project();
+        busy.setOrg(savedOrg);
+        busy.setName("Busy");
+        Project savedBusy = projectRepository.save(busy);
+
+        Project project = new Project();
+        project.setOrg(savedOrg);
+        project.setName("Discovery");
+        Project savedProject = projectRepository.save(project);
+
+        DiscoveryCreateRequest request = new DiscoveryCreateRequest();
+        request.setProvider(CloudProvider.AWS);
+        request.setAccountId("123456789012");
+        request.setRegions(List.of("us-east-1"));
+
+        String createResponse = mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries", savedProject.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        UUID discoveryId = UUID.fromString(objectMapper.readTree(createResponse).get("id").asText());
+
+        JsonNode queue = objectMapper.readTree(mockMvc.perform(get("/api/v1/discovery/queue"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString());
+        int maxQueued = queue.get("maxQueued").asInt();
+        int queued = queue.get("queued").asInt();
+
+        try {
+            // Fill the queue up to the interactive reserve with runs no worker will pick up yet.
+            enqueueBacklog(savedBusy, maxQueued - 5 - queued);
+            Assertions.assertThrows(DiscoveryQueueFullException.class, () -> discoveryService.executeDiscovery(
+                    savedProject.getId(), discoveryId, DiscoveryService.Priority.SCHEDULED));
+            Assertions.assertNull(discoveryRunRepository.findById(discoveryId).orElseThrow().getAvailableAt());
+
+            mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries/{discoveryId}/execute",
+                            savedProject.getId(), discoveryId))
+                    .andExpect(status().is2xxSuccessful())
+                    .andExpect(jsonPath("$.status").value("COMPLETED"));
+            Assertions.assertEquals(1, discoveryRunRepository.findById(discoveryId).orElseThrow().getPriority());
+
+            enqueueBacklog(savedBusy, 5);
+            mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries/{discoveryId}/execute",
+                            savedProject.getId(), discoveryId))
+                    .andExpect(status().isTooManyRequests())
+                    .andExpect(header().string("Retry-After", "30"));
+
+            mockMvc.perform(get("/api/v1/discovery/queue"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.queued").value(maxQueued))
+                    .andExpect(jsonPath("$.saturation").value(1.0))
+                    .andExpect(jsonPath("$.rejectedInteractive").value(1))
+                    .andExpect(jsonPath("$.rejectedScheduled").value(1));
+        } finally {
+            jdbcTemplate.update("delete from discovery_runs where project_id = ?", savedBusy.getId());
+        }
+    }
+
+    @Test
+    void clientStatsAreNotFoundWhileAwsIsStubbed() throws Exception {
+        mockMvc.perform(get("/api/v1/discovery/clients"))
+                .andExpect(status().isNotFound());
+    }
+
+    private void enqueueBacklog(Project project, int runs) {
+        for (int i = 0; i < runs; i++) {
+            DiscoveryRun run = new DiscoveryRun();
+            run.setProject(project);
+            run.setProvider(CloudProvider.AWS);
+            run.setStatus("QUEUED");
+            run.setAvailableAt(OffsetDateTime.now(ZoneOffset.UTC).plusDays(1));
+            discoveryRunRepository.save(run);
+        }
+    }
+
+    private void makeScheduleDue(UUID projectId) {
+        jdbcTemplate.update("update discovery_schedules set next_run_at = ? where project_id = ?",
+                OffsetDateTime.now(ZoneOffset.UTC).minusMinutes(1), projectId);
+    }
+
+    private int scheduleInterval(UUID projectId) {
+        return jdbcTemplate.queryForObject(
+                "select interval_seconds from discovery_schedules where project_id = ?", Integer.class, projectId);
+    }
+
+    private JsonNode readSummary(String discoveryResponse) throws Exception {
+        return readSummaryJson(objectMapper.readTree(discoveryResponse).get("summaryJson").asText());
+    }
+
+    private JsonNode readSummaryJson(String summaryJson) throws Exception {
+        JsonNode summary = objectMapper.readTree(summaryJson);
+        return summary.isTextual() ? objectMapper.readTree(summary.asText()) : summary;
+    }
 }
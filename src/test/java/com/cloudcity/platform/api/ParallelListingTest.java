@@ -0,0 +1,140 @@
+package com.cloudcity.platform.api;
+
+import com.cloudcity.platform.api.dto.DiscoveryCreateRequest;
+import com.cloudcity.platform.domain.CloudProvider;
+import com.cloudcity.platform.domain.Org;
+import com.cloudcity.platform.domain.Project;
+import com.cloudcity.platform.domain.RelationType;
+import com.cloudcity.platform.domain.ResourceEdge;
+import com.cloudcity.platform.domain.ResourceNode;
+import com.cloudcity.platform.domain.ResourceType;
+import com.cloudcity.platform.infrastructure.aws.AwsDiscoveredResource;
+import com.cloudcity.platform.infrastructure.aws.AwsDiscoveryContext;
+import com.cloudcity.platform.infrastructure.aws.AwsResourceCollector;
+import com.cloudcity.platform.repository.OrgRepository;
+import com.cloudcity.platform.repository.ProjectRepository;
+import com.cloudcity.platform.repository.ResourceEdgeRepository;
+import com.cloudcity.platform.repository.ResourceNodeRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "cloudcity.aws.stub.latency-ms=" + ParallelListingTest.LATENCY_MS)
+@AutoConfigureMockMvc(addFilters = false)
+class ParallelListingTest {
+    static final long LATENCY_MS = 1000;
+    private static final AtomicLong bucketsStarted = new AtomicLong();
+
+    // Every stub page takes a second, so the VPC listing cannot finish before then. The buckets inside
+    // the VPCs are listed right away.
+    @TestConfiguration
+    static class BucketCollectorConfig {
+        @Bean
+        AwsResourceCollector bucketCollector() {
+            return new AwsResourceCollector() {
+                @Override
+                public ResourceType type() {
+                    return ResourceType.S3;
+                }
+
+                @Override
+                public ResourceType parentType() {
+                    return ResourceType.VPC;
+                }
+
+                @Override
+                public String parentId(AwsDiscoveredResource resource) {
+                    return resource.getVpcId();
+                }
+
+                @Override
+                public void collect(AwsDiscoveryContext context, Consumer<List<AwsDiscoveredResource>> pageConsumer) {
+                    bucketsStarted.set(System.nanoTime());
+                    String id = "bucket-" + context.region();
+                    pageConsumer.accept(List.of(new AwsDiscoveredResource(id, id, context.region(), "vpc-123", null)));
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OrgRepository orgRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private ResourceNodeRepository resourceNodeRepository;
+
+    @Autowired
+    private ResourceEdgeRepository resourceEdgeRepository;
+
+    @Test
+    void childrenListAlongsideTheirParentsAndAreLinkedOnceItFinishes() throws Exception {
+        Org org = new Org();
+        org.setName("Cloud City");
+        Org savedOrg = orgRepository.save(org);
+
+        Project project = new Project();
+        project.setOrg(savedOrg);
+        project.setName("Parallel Listing");
+        Project savedProject = projectRepository.save(project);
+
+        DiscoveryCreateRequest request = new DiscoveryCreateRequest();
+        request.setProvider(CloudProvider.AWS);
+        request.setAccountId("123456789012");
+        request.setRegions(List.of("us-east-1"));
+
+        String createResponse = mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries", savedProject.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        String discoveryId = objectMapper.readTree(createResponse).get("id").asText();
+
+        long started = System.nanoTime();
+        mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries/{discoveryId}/execute",
+                        savedProject.getId(), discoveryId))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(jsonPath("$.status").value("COMPLETED"));
+
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(bucketsStarted.get() - started);
+        Assertions.assertTrue(waitedMillis < LATENCY_MS, "the bucket listing started after " + waitedMillis + "ms");
+
+        List<ResourceNode> nodes = resourceNodeRepository.findAllByProjectId(savedProject.getId());
+        ResourceNode vpc = nodes.stream().filter(node -> node.getType() == ResourceType.VPC)
+                .findFirst().orElseThrow();
+        ResourceNode bucket = nodes.stream().filter(node -> node.getType() == ResourceType.S3)
+                .findFirst().orElseThrow();
+        List<ResourceEdge> edges = resourceEdgeRepository.findAllByProjectId(savedProject.getId()).stream()
+                .filter(edge -> edge.getToNode().getId().equals(bucket.getId()))
+                .toList();
+        Assertions.assertEquals(1, edges.size());
+        Assertions.assertEquals(vpc.getId(), edges.get(0).getFromNode().getId());
+        Assertions.assertEquals(RelationType.CONTAINS, edges.get(0).getRelationType());
+    }
+}
@@ -1,7 +1,9 @@
 package com.cloudcity.platform.api;
 
+import com.cloudcity.platform.api.dto.ProjectCreateRequest;
 import com.cloudcity.platform.api.dto.ResourceEdgeRequest;
 import com.cloudcity.platform.api.dto.ResourceNodeRequest;
+import com.cloudcity.platform.api.dto.ResourceNodeUpdateRequest;
 import com.cloudcity.platform.domain.CloudProvider;
 import com.cloudcity.platform.domain.Org;
 import com.cloudcity.platform.domain.Project;
@@ -10,18 +12,24 @@ import com.cloudcity.platform.domain.ResourceSource;
 import com.cloudcity.platform.domain.ResourceType;
 import com.cloudcity.platform.repository.OrgRepository;
 import com.cloudcity.platform.repository.ProjectRepository;
+import com.cloudcity.platform.service.GraphSummaryService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.math.BigDecimal;
 import java.util.UUID;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.web.servlet.MockMvc;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -40,6 +48,12 @@ class ResourceGraphControllerTest {
     @Autowired
     private ProjectRepository projectRepository;
 
+    @Autowired
+    private GraphSummaryService graphSummaryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @Test
     void createNodesEdgesAndFetchGraph() throws Exception {
         Org org = new Org();
@@ -101,8 +115,15 @@ class ResourceGraphControllerTest {
 
         mockMvc.perform(get("/api/v1/projects/{projectId}/graph", projectId))
                 .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.nodes.length()").value(2))
-                .andExpect(jsonPath("$.edges.length()").value(1));
+                .andExpect(jsonPath("$.nodes[0].projectId").value(projectId.toString()))
+                .andExpect(jsonPath("$.edges.length()").value(1))
+                .andExpect(jsonPath("$.edges[0].toNodeId").value(vpcId))
+                .andExpect(jsonPath("$.edges[0].relationType").value("CONTAINS"));
+
+        mockMvc.perform(get("/api/v1/projects/{projectId}/graph", UUID.randomUUID()))
+                .andExpect(status().isNotFound());
     }
 
     @Test
@@ -141,6 +162,84 @@ class ResourceGraphControllerTest {
                 .andExpect(jsonPath("$.topCostTypes[0].estimatedCost").value(200))
                 .andExpect(jsonPath("$.topCostRegions[0].key").value("us-west-2"))
                 .andExpect(jsonPath("$.topCostRegions[0].estimatedCost").value(200));
+        // Saved around ProjectService, so it has no summary row; the read sums it up without writing one.
+        Assertions.assertEquals(0, jdbcTemplate.queryForObject(
+                "select count(*) from graph_summaries where project_id = ?", Integer.class, projectId));
+    }
+
+    @Test
+    void graphSummaryFollowsChangesAndVerifierRepairsDrift() throws Exception {
+        Org org = new Org();
+        org.setName("Cloud City");
+        Org savedOrg = orgRepository.save(org);
+
+        // Created through the API, which creates the project's summary with it.
+        ProjectCreateRequest projectRequest = new ProjectCreateRequest();
+        projectRequest.setName("Graph Summary Maintenance");
+        String projectResponse = mockMvc.perform(post("/api/v1/orgs/{orgId}/projects", savedOrg.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(projectRequest)))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        UUID projectId = UUID.fromString(objectMapper.readTree(projectResponse).get("id").asText());
+        Assertions.assertEquals(1, jdbcTemplate.queryForObject(
+                "select count(*) from graph_summaries where project_id = ?", Integer.class, projectId));
+
+        String vpcId = createNodeAndReturnId(projectId, ResourceType.VPC, "vpc-main", "us-east-1",
+                new BigDecimal("100.00"));
+        String subnetId = createNodeAndReturnId(projectId, ResourceType.SUBNET, "subnet-main", "us-east-1", null);
+
+        // Every change is applied to the summary as a delta.
+        mockMvc.perform(get("/api/v1/projects/{projectId}/graph/summary", projectId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalNodes").value(2));
+
+        String ec2Id = createNodeAndReturnId(projectId, ResourceType.EC2, "app-1", "us-east-1",
+                new BigDecimal("50.00"));
+        createEdge(projectId, vpcId, subnetId);
+        createEdge(projectId, subnetId, ec2Id);
+
+        ResourceNodeUpdateRequest move = new ResourceNodeUpdateRequest();
+        move.setRegion("us-west-2");
+        move.setCostEstimate(new BigDecimal("80.00"));
+        mockMvc.perform(patch("/api/v1/projects/{projectId}/nodes/{nodeId}", projectId, ec2Id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(move)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(delete("/api/v1/projects/{projectId}/nodes/{nodeId}", projectId, subnetId))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/api/v1/projects/{projectId}/graph/summary", projectId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalNodes").value(2))
+                .andExpect(jsonPath("$.totalEdges").value(0))
+                .andExpect(jsonPath("$.totalEstimatedCost").value(180))
+                .andExpect(jsonPath("$.nodeCountByType.SUBNET").doesNotExist())
+                .andExpect(jsonPath("$.nodeCountByRegion['us-east-1']").value(1))
+                .andExpect(jsonPath("$.estimatedCostByRegion['us-west-2']").value(80));
+        Assertions.assertFalse(graphSummaryService.verify(projectId));
+
+        jdbcTemplate.update("update graph_summaries set edge_count = 7 where project_id = ?", projectId);
+        jdbcTemplate.update("delete from graph_summary_rollups where project_id = ? and type = 'VPC'", projectId);
+        Assertions.assertTrue(graphSummaryService.verify(projectId));
+
+        mockMvc.perform(get("/api/v1/projects/{projectId}/graph/summary", projectId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalNodes").value(2))
+                .andExpect(jsonPath("$.totalEdges").value(0))
+                .andExpect(jsonPath("$.nodeCountByType.VPC").value(1));
+
+        // A project never verified comes first in the next batch.
+        jdbcTemplate.update("update graph_summaries set edge_count = 5, verified_at = null where project_id = ?",
+                projectId);
+        Assertions.assertTrue(graphSummaryService.verifyBatch() >= 1);
+        mockMvc.perform(get("/api/v1/projects/{projectId}/graph/summary", projectId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalEdges").value(0));
     }
 
     @Test
@@ -171,6 +270,101 @@ class ResourceGraphControllerTest {
                 .andExpect(jsonPath("$.totalEdges").value(2))
                 .andExpect(jsonPath("$.orphanNodeCount").value(2))
                 .andExpect(jsonPath("$.misconfiguredNodeCount").value(1));
+
+        String firstPage = mockMvc.perform(get("/api/v1/projects/{projectId}/graph/health", projectId)
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orphanNodeCount").value(2))
+                .andExpect(jsonPath("$.orphanNodes.length()").value(1))
+                .andExpect(jsonPath("$.misconfiguredNodes[0].nodeName").value("bad-subnet"))
+                .andExpect(jsonPath("$.misconfiguredNodes[0].issue").value("Subnet is missing region"))
+                .andReturn().getResponse().getContentAsString();
+        String firstOrphan = objectMapper.readTree(firstPage).path("orphanNodes").get(0).path("nodeName").asText();
+        String cursor = objectMapper.readTree(firstPage).path("nextOrphanCursor").asText();
+
+        mockMvc.perform(get("/api/v1/projects/{projectId}/graph/health", projectId)
+                        .param("limit", "1")
+                        .param("orphanAfter", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orphanNodeCount").doesNotExist())
+                .andExpect(jsonPath("$.misconfiguredNodeCount").value(1))
+                .andExpect(jsonPath("$.orphanNodes.length()").value(1))
+                .andExpect(jsonPath("$.orphanNodes[0].nodeName")
+                        .value(firstOrphan.equals("orphan-ec2") ? "bad-subnet" : "orphan-ec2"));
+
+        mockMvc.perform(get("/api/v1/projects/{projectId}/graph/health", projectId)
+                        .param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void graphPagesAreFilteredAndKeysetPaginated() throws Exception {
+        Org org = new Org();
+        org.setName("Cloud City");
+        Org savedOrg = orgRepository.save(org);
+
+        Project project = new Project();
+        project.setOrg(savedOrg);
+        project.setName("Graph Pages");
+        Project savedProject = projectRepository.save(project);
+
+        UUID projectId = savedProject.getId();
+
+        String vpcId = createNodeAndReturnId(projectId, ResourceType.VPC, "vpc-main", "us-east-1", null);
+        String subnetId = createNodeAndReturnId(projectId, ResourceType.SUBNET, "subnet-a", "us-east-1", null);
+        createNode(projectId, ResourceType.SUBNET, "subnet-b", "us-east-1", null);
+        createNode(projectId, ResourceType.SUBNET, "subnet_c", "eu-west-1", null);
+        createEdge(projectId, vpcId, subnetId);
+
+        String firstPage = mockMvc.perform(get("/api/v1/projects/{projectId}/graph/nodes", projectId)
+                        .param("type", "SUBNET")
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andReturn().getResponse().getContentAsString();
+        String cursor = objectMapper.readTree(firstPage).path("nextCursor").asText();
+
+        mockMvc.perform(get("/api/v1/projects/{projectId}/graph/nodes", projectId)
+                        .param("type", "SUBNET")
+                        .param("limit", "2")
+                        .param("after", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+        mockMvc.perform(get("/api/v1/projects/{projectId}/graph/nodes", projectId)
+                        .param("region", "us-east-1")
+                        .param("namePrefix", "subnet-"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2));
+
+        mockMvc.perform(get("/api/v1/projects/{projectId}/graph/nodes", projectId)
+                        .param("namePrefix", "subnet_"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].name").value("subnet_c"));
+
+        mockMvc.perform(get("/api/v1/projects/{projectId}/graph/edges", projectId)
+                        .param("type", "VPC", "SUBNET")
+                        .param("source", "PLANNED"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.items[0].fromNodeId").value(vpcId));
+
+        mockMvc.perform(get("/api/v1/projects/{projectId}/graph/edges", projectId)
+                        .param("type", "SUBNET"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(0));
+
+        mockMvc.perform(get("/api/v1/projects/{projectId}/graph", projectId)
+                        .param("region", "eu-west-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.nodes.length()").value(1))
+                .andExpect(jsonPath("$.edges.length()").value(0));
+
+        mockMvc.perform(get("/api/v1/projects/{projectId}/graph/nodes", projectId)
+                        .param("limit", "0"))
+                .andExpect(status().isBadRequest());
     }
 
     private void createNode(UUID projectId,
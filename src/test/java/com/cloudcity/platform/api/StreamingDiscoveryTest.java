@@ -0,0 +1,135 @@
+package com.cloudcity.platform.api;
+
+import com.cloudcity.platform.api.dto.DiscoveryCreateRequest;
+import com.cloudcity.platform.domain.CloudProvider;
+import com.cloudcity.platform.domain.Org;
+import com.cloudcity.platform.domain.Project;
+import com.cloudcity.platform.domain.ResourceNode;
+import com.cloudcity.platform.domain.ResourceType;
+import com.cloudcity.platform.infrastructure.aws.AwsDiscoveredResource;
+import com.cloudcity.platform.infrastructure.aws.AwsDiscoveryContext;
+import com.cloudcity.platform.infrastructure.aws.AwsResourceCollector;
+import com.cloudcity.platform.repository.OrgRepository;
+import com.cloudcity.platform.repository.ProjectRepository;
+import com.cloudcity.platform.repository.ResourceNodeRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc(addFilters = false)
+class StreamingDiscoveryTest {
+    private static final int PAGES = 30;
+    private static final AtomicInteger listed = new AtomicInteger();
+    private static final AtomicInteger written = new AtomicInteger();
+    private static final AtomicInteger maxAhead = new AtomicInteger();
+
+    // Lists one bucket per page as fast as it can, while the ingest side is slowed down: parentId is
+    // asked on the region's writer thread as each resource is written.
+    @TestConfiguration
+    static class FastCollectorConfig {
+        @Bean
+        AwsResourceCollector bucketCollector() {
+            return new AwsResourceCollector() {
+                @Override
+                public ResourceType type() {
+                    return ResourceType.S3;
+                }
+
+                @Override
+                public ResourceType parentType() {
+                    return ResourceType.VPC;
+                }
+
+                @Override
+                public String parentId(AwsDiscoveredResource resource) {
+                    written.incrementAndGet();
+                    try {
+                        Thread.sleep(2);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return null;
+                }
+
+                @Override
+                public void collect(AwsDiscoveryContext context, Consumer<List<AwsDiscoveredResource>> pageConsumer) {
+                    for (int i = 0; i < PAGES; i++) {
+                        String id = "bucket-" + i + "-" + context.region();
+                        pageConsumer.accept(List.of(new AwsDiscoveredResource(id, id, context.region(), null, null)));
+                        maxAhead.accumulateAndGet(listed.incrementAndGet() - written.get(), Math::max);
+                    }
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OrgRepository orgRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private ResourceNodeRepository resourceNodeRepository;
+
+    @Test
+    void fullPageBufferHoldsBackTheListing() throws Exception {
+        Org org = new Org();
+        org.setName("Cloud City");
+        Org savedOrg = orgRepository.save(org);
+
+        Project project = new Project();
+        project.setOrg(savedOrg);
+        project.setName("Streaming");
+        Project savedProject = projectRepository.save(project);
+
+        DiscoveryCreateRequest request = new DiscoveryCreateRequest();
+        request.setProvider(CloudProvider.AWS);
+        request.setAccountId("123456789012");
+        request.setRegions(List.of("us-east-1"));
+
+        String createResponse = mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries", savedProject.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        String discoveryId = objectMapper.readTree(createResponse).get("id").asText();
+
+        mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries/{discoveryId}/execute",
+                        savedProject.getId(), discoveryId))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(jsonPath("$.status").value("COMPLETED"));
+
+        List<ResourceNode> buckets = resourceNodeRepository.findAllByProjectId(savedProject.getId()).stream()
+                .filter(node -> node.getType() == ResourceType.S3)
+                .toList();
+        Assertions.assertEquals(PAGES, buckets.size());
+        Assertions.assertEquals(PAGES, written.get());
+        // With page-buffer 1 the listing is at most one queued page plus the one being written ahead.
+        Assertions.assertTrue(maxAhead.get() <= 2, "listing ran " + maxAhead.get() + " pages ahead");
+    }
+}
@@ -0,0 +1,167 @@
+package com.cloudcity.platform.api;
+
+import com.cloudcity.platform.api.dto.DiscoveryCreateRequest;
+import com.cloudcity.platform.domain.CloudProvider;
+import com.cloudcity.platform.domain.Org;
+import com.cloudcity.platform.domain.Project;
+import com.cloudcity.platform.domain.ResourceEdge;
+import com.cloudcity.platform.domain.ResourceNode;
+import com.cloudcity.platform.domain.ResourceType;
+import com.cloudcity.platform.infrastructure.aws.AwsDiscoveredResource;
+import com.cloudcity.platform.infrastructure.aws.AwsDiscoveryContext;
+import com.cloudcity.platform.infrastructure.aws.AwsResourceCollector;
+import com.cloudcity.platform.repository.OrgRepository;
+import com.cloudcity.platform.repository.ProjectRepository;
+import com.cloudcity.platform.repository.ResourceEdgeRepository;
+import com.cloudcity.platform.repository.ResourceNodeRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "cloudcity.discovery.page-size=5",
+        "cloudcity.aws.stub.synthetic.enabled=true",
+        "cloudcity.aws.stub.synthetic.vpcs-per-region=2",
+        "cloudcity.aws.stub.synthetic.subnets-per-vpc=3",
+        "cloudcity.aws.stub.synthetic.instances-per-subnet=4",
+        "cloudcity.aws.stub.synthetic.security-groups-per-vpc=2",
+        "cloudcity.aws.stub.synthetic.load-balancers-per-vpc=1",
+        "cloudcity.aws.stub.synthetic.rds-per-vpc=2",
+        "cloudcity.aws.stub.throttle-rate=0.3",
+        "cloudcity.aws.stub.throttle-backoff-ms=1"
+})
+@AutoConfigureMockMvc(addFilters = false)
+class SyntheticDiscoveryTest {
+    // A type the AWS client knows nothing about, plugged in as a collector of its own.
+    @TestConfiguration
+    static class BucketCollectorConfig {
+        @Bean
+        AwsResourceCollector bucketCollector() {
+            return new AwsResourceCollector() {
+                @Override
+                public ResourceType type() {
+                    return ResourceType.S3;
+                }
+
+                @Override
+                public ResourceType parentType() {
+                    return null;
+                }
+
+                @Override
+                public String parentId(AwsDiscoveredResource resource) {
+                    return null;
+                }
+
+                @Override
+                public void collect(AwsDiscoveryContext context, Consumer<List<AwsDiscoveredResource>> pageConsumer) {
+                    pageConsumer.accept(List.of(
+                            new AwsDiscoveredResource("bucket-logs-" + context.region(), "logs", context.region(), null,
+                                    null),
+                            new AwsDiscoveredResource("bucket-assets-" + context.region(), "assets", context.region(),
+                                    null, null)));
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OrgRepository orgRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private ResourceNodeRepository resourceNodeRepository;
+
+    @Autowired
+    private ResourceEdgeRepository resourceEdgeRepository;
+
+    @Test
+    void syntheticAccountIsDiscoveredWithParentLinks() throws Exception {
+        Org org = new Org();
+        org.setName("Cloud City");
+        Org savedOrg = orgRepository.save(org);
+
+        Project project = new Project();
+        project.setOrg(savedOrg);
+        project.setName("Synthetic");
+        Project savedProject = projectRepository.save(project);
+
+        DiscoveryCreateRequest request = new DiscoveryCreateRequest();
+        request.setProvider(CloudProvider.AWS);
+        request.setAccountId("123456789012");
+        request.setRegions(List.of("us-east-1", "eu-west-1"));
+
+        String createResponse = mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries", savedProject.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        String discoveryId = objectMapper.readTree(createResponse).get("id").asText();
+
+        String executeResponse = mockMvc.perform(post("/api/v1/projects/{projectId}/discoveries/{discoveryId}/execute",
+                        savedProject.getId(), discoveryId))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        // Per region: 2 VPCs, 6 subnets, 24 instances, 4 SGs, 2 load balancers, 4 RDS instances and
+        // 2 buckets.
+        List<ResourceNode> nodes = resourceNodeRepository.findAllByProjectId(savedProject.getId());
+        Map<ResourceType, Long> byType = nodes.stream()
+                .collect(Collectors.groupingBy(ResourceNode::getType, Collectors.counting()));
+        Assertions.assertEquals(88, nodes.size());
+        Assertions.assertEquals(4L, byType.get(ResourceType.S3));
+        Assertions.assertEquals(4L, byType.get(ResourceType.VPC));
+        Assertions.assertEquals(12L, byType.get(ResourceType.SUBNET));
+        Assertions.assertEquals(48L, byType.get(ResourceType.EC2));
+        Assertions.assertEquals(8L, byType.get(ResourceType.SG));
+        Assertions.assertEquals(4L, byType.get(ResourceType.ELB));
+        Assertions.assertEquals(8L, byType.get(ResourceType.RDS));
+
+        // Every resource but the VPCs and buckets hangs off exactly one parent in its own region.
+        Map<UUID, ResourceNode> byId = nodes.stream()
+                .collect(Collectors.toMap(ResourceNode::getId, Function.identity()));
+        List<ResourceEdge> edges = resourceEdgeRepository.findAllByProjectId(savedProject.getId());
+        Assertions.assertEquals(80, edges.size());
+        edges.forEach(edge -> Assertions.assertEquals(
+                byId.get(edge.getFromNode().getId()).getRegion(),
+                byId.get(edge.getToNode().getId()).getRegion()));
+
+        JsonNode summary = objectMapper.readTree(objectMapper.readTree(executeResponse).get("summaryJson").asText());
+        if (summary.isTextual()) {
+            summary = objectMapper.readTree(summary.asText());
+        }
+        Assertions.assertTrue(summary.path("throttling").path("throttled").asLong() > 0);
+    }
+}
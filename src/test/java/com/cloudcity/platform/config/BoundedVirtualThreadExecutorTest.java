@@ -0,0 +1,85 @@
+package com.cloudcity.platform.config;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.system.JavaVersion;
+
+class BoundedVirtualThreadExecutorTest {
+    private static final int LIMIT = 3;
+    private static final int TASKS = 20;
+
+    // Stands in for virtual threads: one thread per task, so only the semaphore limits concurrency.
+    private final ExecutorService threads = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutDown() {
+        threads.shutdownNow();
+    }
+
+    @Test
+    void permitsBoundConcurrentTasks() throws Exception {
+        BoundedVirtualThreadExecutor executor = new BoundedVirtualThreadExecutor(threads::execute, LIMIT);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch finished = new CountDownLatch(TASKS);
+
+        for (int i = 0; i < TASKS; i++) {
+            executor.execute(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    running.decrementAndGet();
+                    finished.countDown();
+                }
+            });
+        }
+
+        Assertions.assertTrue(finished.await(10, TimeUnit.SECONDS));
+        Assertions.assertEquals(LIMIT, maxRunning.get());
+    }
+
+    @Test
+    void submittingNeverWaitsForAPermit() throws Exception {
+        BoundedVirtualThreadExecutor executor = new BoundedVirtualThreadExecutor(threads::execute, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(TASKS);
+
+        long started = System.nanoTime();
+        for (int i = 0; i < TASKS; i++) {
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    finished.countDown();
+                }
+            });
+        }
+        // Every task after the first is parked on its own thread, not on the submitter.
+        Assertions.assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started) < 5);
+
+        release.countDown();
+        Assertions.assertTrue(finished.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void virtualThreadsFailStartupBeforeJava21() {
+        Assumptions.assumeFalse(JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE));
+
+        IllegalStateException failure =
+                Assertions.assertThrows(IllegalStateException.class, () -> new AsyncConfig(true));
+
+        Assertions.assertTrue(failure.getMessage().contains("needs Java 21"));
+    }
+}
@@ -0,0 +1,154 @@
+package com.cloudcity.platform.infrastructure.aws;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+class AwsAsyncSdkDiscoveryClientTest {
+    private final ExecutorService eventLoop = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void shutDown() {
+        eventLoop.shutdownNow();
+    }
+
+    @Test
+    void pagesAreConsumedOnTheCallingThreadOneRequestAtATime() {
+        PagePublisher listing = new PagePublisher(3);
+        List<String> consumed = new ArrayList<>();
+        List<Thread> consumers = new ArrayList<>();
+
+        AwsAsyncSdkDiscoveryClient.await(context(Duration.ofSeconds(10)), () -> { }, listing, this::resources,
+                page -> {
+                    consumers.add(Thread.currentThread());
+                    consumed.add(page.get(0).getId());
+                    // The next page is only requested once this one has been handed off.
+                    Assertions.assertEquals(0, listing.outstanding.get());
+                });
+
+        Assertions.assertEquals(List.of("vpc-0", "vpc-1", "vpc-2"), consumed);
+        Assertions.assertTrue(consumers.stream().allMatch(thread -> thread == Thread.currentThread()));
+        Assertions.assertEquals(1, listing.maxOutstanding.get());
+    }
+
+    @Test
+    void callerWaitsForRateLimitCapacityBeforeEveryRequest() {
+        PagePublisher listing = new PagePublisher(3);
+        List<Thread> waiters = new ArrayList<>();
+        Runnable awaitCapacity = () -> {
+            waiters.add(Thread.currentThread());
+            Assertions.assertEquals(0, listing.outstanding.get());
+        };
+
+        AwsAsyncSdkDiscoveryClient.await(context(Duration.ofSeconds(10)), awaitCapacity, listing, this::resources,
+                page -> { });
+
+        // Three pages plus the request that completes the listing.
+        Assertions.assertEquals(4, waiters.size());
+        Assertions.assertTrue(waiters.stream().allMatch(thread -> thread == Thread.currentThread()));
+    }
+
+    @Test
+    void failedListingIsRethrownOnTheCallingThread() {
+        PagePublisher listing = new PagePublisher(1);
+        listing.failAfterPages = true;
+
+        IllegalStateException failure = Assertions.assertThrows(IllegalStateException.class, () ->
+                AwsAsyncSdkDiscoveryClient.await(context(Duration.ofSeconds(10)), () -> { }, listing, this::resources,
+                        page -> { }));
+
+        Assertions.assertEquals("listing failed", failure.getMessage());
+    }
+
+    @Test
+    void cancelledRunCancelsTheSubscription() {
+        PagePublisher listing = new PagePublisher(0);
+        listing.stalled = true;
+        AwsDiscoveryContext context = context(Duration.ofSeconds(10));
+        context.deadline().cancel("Discovery cancelled");
+
+        Assertions.assertThrows(CancellationException.class, () ->
+                AwsAsyncSdkDiscoveryClient.await(context, () -> { }, listing, this::resources, page -> { }));
+
+        Assertions.assertTrue(listing.cancelled.get());
+    }
+
+    @Test
+    void failingConsumerCancelsTheSubscription() {
+        PagePublisher listing = new PagePublisher(3);
+
+        Assertions.assertThrows(CancellationException.class, () ->
+                AwsAsyncSdkDiscoveryClient.await(context(Duration.ofSeconds(10)), () -> { }, listing, this::resources,
+                        page -> {
+                            throw new CancellationException("Region ingest aborted");
+                        }));
+
+        Assertions.assertTrue(listing.cancelled.get());
+    }
+
+    private List<AwsDiscoveredResource> resources(Integer page) {
+        return List.of(new AwsDiscoveredResource("vpc-" + page, "vpc-" + page, "us-east-1", null, null));
+    }
+
+    private AwsDiscoveryContext context(Duration timeout) {
+        return new AwsDiscoveryContext(null, "us-east-1", new AwsCallStats(), new AwsCallDeadline(timeout));
+    }
+
+    // Emits numbered pages from its own thread, the way the SDK does from the event loop.
+    private final class PagePublisher implements Publisher<Integer> {
+        private final int pages;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger maxOutstanding = new AtomicInteger();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private volatile boolean failAfterPages;
+        private volatile boolean stalled;
+
+        private PagePublisher(int pages) {
+            this.pages = pages;
+        }
+
+        @Override
+        public void subscribe(Subscriber<? super Integer> subscriber) {
+            AtomicInteger emitted = new AtomicInteger();
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                    maxOutstanding.accumulateAndGet(outstanding.addAndGet((int) n), Math::max);
+                    if (stalled) {
+                        return;
+                    }
+                    eventLoop.execute(() -> {
+                        if (cancelled.get()) {
+                            return;
+                        }
+                        int page = emitted.getAndIncrement();
+                        if (page < pages) {
+                            outstanding.decrementAndGet();
+                            subscriber.onNext(page);
+                        } else if (failAfterPages) {
+                            subscriber.onError(new IllegalStateException("listing failed"));
+                        } else {
+                            subscriber.onComplete();
+                        }
+                    });
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled.set(true);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.cloudcity.platform.infrastructure.aws;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.services.ec2.Ec2AsyncClient;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+
+class AwsClientRegistryTest {
+    private static final AwsAccount ACCOUNT =
+            new AwsAccount("123456789012", "arn:aws:iam::123456789012:role/CloudCityReadOnly", "external-id-123");
+
+    private final AwsRateLimiter rateLimiter = new AwsRateLimiter(10, 1, 50, 0.5, 0.5, 10, 5, 500);
+    private final AwsAssumeRoleCredentials assumeRoleCredentials = new AwsAssumeRoleCredentials("us-east-1", 3600, 300);
+    private AwsClientRegistry registry;
+
+    @AfterEach
+    void close() {
+        if (registry != null) {
+            registry.destroy();
+        }
+        assumeRoleCredentials.destroy();
+    }
+
+    @Test
+    void secondDiscoveryOfAnAccountReusesItsClients() {
+        registry = new AwsClientRegistry(rateLimiter, 10, 900);
+
+        Ec2Client first;
+        try (AwsClientRegistry.Lease<Ec2Client> lease =
+                     registry.ec2("us-east-1", assumeRoleCredentials.forAccount(ACCOUNT))) {
+            first = lease.client();
+        }
+        // A later run resolves the same role session, so it lands on the same cached client.
+        Ec2Client second;
+        try (AwsClientRegistry.Lease<Ec2Client> lease =
+                     registry.ec2("us-east-1", assumeRoleCredentials.forAccount(ACCOUNT))) {
+            second = lease.client();
+        }
+
+        Assertions.assertSame(first, second);
+        Assertions.assertEquals(1, assumeRoleCredentials.cachedRoles());
+        AwsClientRegistry.Stats stats = registry.stats();
+        Assertions.assertEquals(1, stats.misses());
+        Assertions.assertEquals(1, stats.hits());
+        Assertions.assertEquals(1, stats.liveClients());
+    }
+
+    @Test
+    void clientsAreKeptApartByRegionTypeAndCredentials() {
+        registry = new AwsClientRegistry(rateLimiter, 10, 900);
+        AwsCredentialsProvider role = assumeRoleCredentials.forAccount(ACCOUNT);
+
+        try (AwsClientRegistry.Lease<Ec2Client> east = registry.ec2("us-east-1", role);
+             AwsClientRegistry.Lease<Ec2Client> west = registry.ec2("us-west-2", role);
+             AwsClientRegistry.Lease<Ec2AsyncClient> async = registry.ec2Async("us-east-1", role);
+             AwsClientRegistry.Lease<Ec2Client> own = registry.ec2("us-east-1")) {
+            Assertions.assertNotSame(east.client(), west.client());
+            Assertions.assertNotSame(east.client(), own.client());
+            Assertions.assertNotNull(async.client());
+        }
+
+        Assertions.assertEquals(4, registry.stats().misses());
+        Assertions.assertEquals(0, registry.stats().hits());
+    }
+
+    @Test
+    void idleClientsAreEvictedButLeasedOnesAreKept() throws Exception {
+        registry = new AwsClientRegistry(rateLimiter, 10, 0);
+
+        Ec2Client idle;
+        try (AwsClientRegistry.Lease<Ec2Client> lease = registry.ec2("us-east-1")) {
+            idle = lease.client();
+        }
+        try (AwsClientRegistry.Lease<Ec2Client> leased = registry.ec2("us-west-2")) {
+            Thread.sleep(5);
+            registry.evictIdleClients();
+
+            Assertions.assertEquals(1, registry.stats().evictions());
+            Assertions.assertEquals(1, registry.stats().liveClients());
+        }
+
+        // The evicted client was closed; the next lease builds a fresh one.
+        try (AwsClientRegistry.Lease<Ec2Client> lease = registry.ec2("us-east-1")) {
+            Assertions.assertNotSame(idle, lease.client());
+        }
+        Assertions.assertEquals(3, registry.stats().misses());
+    }
+}
@@ -0,0 +1,45 @@
+package com.cloudcity.platform.infrastructure.aws;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class AwsRateLimiterTest {
+    private static final String API = "ec2:DescribeVpcs";
+
+    @Test
+    void awaitingCapacityLeavesTheTokenForTheRequest() {
+        AwsRateLimiter rateLimiter = new AwsRateLimiter(10, 1, 10, 0.5, 0.5, 1, 0, 500);
+        AwsDiscoveryContext context = context();
+
+        // A spare token is not used up by waiting for it.
+        rateLimiter.awaitCapacity(context, API);
+        rateLimiter.awaitCapacity(context, API);
+        Assertions.assertEquals(0, context.stats().getWaitMillis());
+
+        // Once the request takes it, the next caller waits for the refill at 10 calls a second.
+        Assertions.assertEquals(0, rateLimiter.acquire("default", "us-east-1", API));
+        long started = System.nanoTime();
+        rateLimiter.awaitCapacity(context, API);
+        long waitedMillis = Duration.ofNanos(System.nanoTime() - started).toMillis();
+        Assertions.assertTrue(waitedMillis >= 50, "waited " + waitedMillis + "ms");
+        Assertions.assertTrue(context.stats().getWaitMillis() >= 50);
+    }
+
+    @Test
+    void cancelledRunStopsWaitingForCapacity() {
+        AwsRateLimiter rateLimiter = new AwsRateLimiter(1, 1, 1, 0, 0.5, 1, 0, 500);
+        AwsDiscoveryContext context = context();
+        rateLimiter.acquire("default", "us-east-1", API);
+        context.deadline().cancel("Discovery cancelled");
+
+        Assertions.assertThrows(CancellationException.class,
+                () -> rateLimiter.awaitCapacity(context, API));
+    }
+
+    private AwsDiscoveryContext context() {
+        return new AwsDiscoveryContext(null, "us-east-1", new AwsCallStats(),
+                new AwsCallDeadline(Duration.ofSeconds(10)));
+    }
+}
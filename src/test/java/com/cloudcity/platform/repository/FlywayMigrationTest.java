@@ -0,0 +1,67 @@
+package com.cloudcity.platform.repository;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationState;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+// The other tests build the schema from the entities on H2, which cannot run the Postgres-only
+// migrations (partial indexes, jsonb operators, pgcrypto). This one migrates a real, throwaway
+// Postgres database and lets Hibernate validate the entities against the result.
+// Set FLYWAY_TEST_DB_URL (and FLYWAY_TEST_DB_USERNAME / FLYWAY_TEST_DB_PASSWORD) to run it; the
+// database is cleaned first.
+@EnabledIfEnvironmentVariable(named = "FLYWAY_TEST_DB_URL", matches = ".+")
+@SpringBootTest(properties = {
+        "spring.datasource.url=${FLYWAY_TEST_DB_URL}",
+        "spring.datasource.driver-class-name=org.postgresql.Driver",
+        "spring.datasource.username=${FLYWAY_TEST_DB_USERNAME:cloud_city}",
+        "spring.datasource.password=${FLYWAY_TEST_DB_PASSWORD:cloud_city}",
+        "spring.flyway.enabled=true",
+        "spring.flyway.clean-disabled=false",
+        "spring.jpa.hibernate.ddl-auto=validate"
+})
+class FlywayMigrationTest {
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private DiscoveryJobRepository discoveryJobRepository;
+
+    @Autowired
+    private DiscoveryScheduleRepository discoveryScheduleRepository;
+
+    @Test
+    void migrationsApplyAndMatchTheEntities() {
+        // The context only starts if Hibernate validated every entity against the migrated schema.
+        MigrationInfo[] migrations = flyway.info().all();
+        Assertions.assertTrue(migrations.length > 0);
+        for (MigrationInfo migration : migrations) {
+            Assertions.assertEquals(MigrationState.SUCCESS, migration.getState(), migration.getScript());
+        }
+        Assertions.assertEquals(0, flyway.info().pending().length);
+    }
+
+    @Test
+    void queueQueriesRunAgainstTheMigratedSchema() {
+        Assertions.assertEquals(0, discoveryJobRepository.queueStats().queued());
+        Assertions.assertEquals(0, discoveryScheduleRepository.countActiveRuns());
+    }
+
+    @TestConfiguration
+    static class CleanMigration {
+        @Bean
+        FlywayMigrationStrategy cleanMigrate() {
+            return flyway -> {
+                flyway.clean();
+                flyway.migrate();
+            };
+        }
+    }
+}
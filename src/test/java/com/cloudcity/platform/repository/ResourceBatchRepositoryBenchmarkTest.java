@@ -0,0 +1,136 @@
+package com.cloudcity.platform.repository;
+
+import com.cloudcity.platform.domain.CloudProvider;
+import com.cloudcity.platform.domain.Org;
+import com.cloudcity.platform.domain.Project;
+import com.cloudcity.platform.domain.RelationType;
+import com.cloudcity.platform.domain.ResourceEdge;
+import com.cloudcity.platform.domain.ResourceNode;
+import com.cloudcity.platform.domain.ResourceSource;
+import com.cloudcity.platform.domain.ResourceType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Tag("benchmark")
+@SpringBootTest(properties = "cloudcity.discovery.ingest.batch-size=1000")
+class ResourceBatchRepositoryBenchmarkTest {
+    private static final int RESOURCES = 20_000;
+
+    @Autowired
+    private OrgRepository orgRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private ResourceNodeRepository resourceNodeRepository;
+
+    @Autowired
+    private ResourceEdgeRepository resourceEdgeRepository;
+
+    @Autowired
+    private ResourceBatchRepository resourceBatchRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void batchIngestOutperformsPerEntitySaves() {
+        UUID entityProjectId = createProject("Per-entity ingest");
+        UUID batchProjectId = createProject("Batch ingest");
+
+        long entityNanos = time(() -> ingestPerEntity(entityProjectId));
+        long batchNanos = time(() -> ingestBatched(batchProjectId));
+
+        System.out.printf("Ingest of %d nodes + %d edges: per-entity %d ms, batch %d ms (%.1fx)%n",
+                RESOURCES, RESOURCES - 1, entityNanos / 1_000_000, batchNanos / 1_000_000,
+                (double) entityNanos / batchNanos);
+
+        Assertions.assertEquals(RESOURCES, resourceNodeRepository.findAllByProjectId(batchProjectId).size());
+        Assertions.assertEquals(RESOURCES - 1, resourceEdgeRepository.findAllByProjectId(batchProjectId).size());
+        Assertions.assertTrue(batchNanos < entityNanos, "Batch ingest should be faster than per-entity saves");
+    }
+
+    private void ingestPerEntity(UUID projectId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Project project = projectRepository.getReferenceById(projectId);
+            ResourceNode subnet = null;
+            for (int i = 0; i < RESOURCES; i++) {
+                ResourceNode node = new ResourceNode();
+                node.setProject(project);
+                node.setProvider(CloudProvider.AWS);
+                node.setType(i == 0 ? ResourceType.SUBNET : ResourceType.EC2);
+                node.setName("resource-" + i);
+                node.setRegion("us-east-1");
+                node.setSource(ResourceSource.DISCOVERED);
+                node.setMetadataJson("{\"awsId\":\"i-" + i + "\"}");
+                ResourceNode saved = resourceNodeRepository.save(node);
+                if (subnet == null) {
+                    subnet = saved;
+                    continue;
+                }
+                ResourceEdge edge = new ResourceEdge();
+                edge.setProject(project);
+                edge.setFromNode(subnet);
+                edge.setToNode(saved);
+                edge.setRelationType(RelationType.CONTAINS);
+                resourceEdgeRepository.save(edge);
+            }
+        });
+    }
+
+    private void ingestBatched(UUID projectId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<ResourceBatchRepository.NodeRow> nodes = new ArrayList<>(RESOURCES);
+            List<ResourceBatchRepository.EdgeRow> edges = new ArrayList<>(RESOURCES);
+            UUID subnetId = null;
+            for (int i = 0; i < RESOURCES; i++) {
+                UUID nodeId = UUID.randomUUID();
+                nodes.add(new ResourceBatchRepository.NodeRow(
+                        nodeId,
+                        projectId,
+                        CloudProvider.AWS,
+                        i == 0 ? ResourceType.SUBNET : ResourceType.EC2,
+                        "resource-" + i,
+                        "us-east-1",
+                        "123456789012",
+                        "i-" + i,
+                        ResourceSource.DISCOVERED,
+                        "{\"awsId\":\"i-" + i + "\"}"
+                ));
+                if (subnetId == null) {
+                    subnetId = nodeId;
+                    continue;
+                }
+                edges.add(new ResourceBatchRepository.EdgeRow(
+                        UUID.randomUUID(), projectId, subnetId, nodeId, RelationType.CONTAINS));
+            }
+            resourceBatchRepository.insertNodes(nodes);
+            resourceBatchRepository.insertEdges(edges);
+        });
+    }
+
+    private UUID createProject(String name) {
+        Org org = new Org();
+        org.setName("Cloud City");
+        Org savedOrg = orgRepository.save(org);
+
+        Project project = new Project();
+        project.setOrg(savedOrg);
+        project.setName(name);
+        return projectRepository.save(project).getId();
+    }
+
+    private long time(Runnable runnable) {
+        long start = System.nanoTime();
+        runnable.run();
+        return System.nanoTime() - start;
+    }
+}